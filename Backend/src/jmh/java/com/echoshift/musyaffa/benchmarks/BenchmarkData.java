@@ -0,0 +1,50 @@
+package com.echoshift.musyaffa.benchmarks;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.echoshift.musyaffa.dto.LoginResponse;
+import com.echoshift.musyaffa.dto.RunResponse;
+import com.echoshift.musyaffa.models.Player;
+import com.echoshift.musyaffa.models.Run;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Deterministic fixtures shared by the benchmarks so results are comparable across commits.
+ */
+final class BenchmarkData {
+
+    static final int HISTORY_PAGE_SIZE = 50;
+
+    private BenchmarkData() {
+    }
+
+    static List<Run> runs(int count) {
+        Random random = new Random(42);
+        UUID playerId = new UUID(random.nextLong(), random.nextLong());
+        List<Run> runs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Run run = new Run(playerId, random.nextFloat() * 600, random.nextInt(100_000), 1 + random.nextInt(20));
+            run.setId(new UUID(random.nextLong(), random.nextLong()));
+            runs.add(run);
+        }
+        return runs;
+    }
+
+    static BaseResponse<List<RunResponse>> historyResponse() {
+        List<RunResponse> responses = new ArrayList<>(HISTORY_PAGE_SIZE);
+        for (Run run : runs(HISTORY_PAGE_SIZE)) {
+            responses.add(new RunResponse(run));
+        }
+        return BaseResponse.success("Player runs retrieved successfully", responses);
+    }
+
+    static BaseResponse<LoginResponse> loginResponse() {
+        Player player = new Player("benchmark-player", "secret");
+        player.setId(UUID.fromString("6f1c2f3e-8d6b-4a2e-9a55-0b7c3e2d1f00"));
+        player.setExperience(1234);
+        return BaseResponse.success("Login successful", new LoginResponse(player, UUID.randomUUID().toString()));
+    }
+}
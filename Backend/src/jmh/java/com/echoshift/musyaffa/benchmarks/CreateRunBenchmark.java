@@ -0,0 +1,76 @@
+package com.echoshift.musyaffa.benchmarks;
+
+import com.echoshift.musyaffa.MusyaffaApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full POST /api/runs path over HTTP: Tomcat, JSON binding, session resolution,
+ * the INSERT against the embedded H2 database of the test profile, and serialization.
+ * Controller debug output is discarded so it does not flood the JMH log.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@Threads(4)
+public class CreateRunBenchmark {
+
+    private static final String RUN_JSON = "{\"score\":1200,\"timeElapsed\":95.5,\"levelReached\":3}";
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private URI runsUri;
+    private String sessionToken;
+    private PrintStream originalOut;
+
+    @Setup
+    public void setUp() throws Exception {
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        context = new SpringApplicationBuilder(MusyaffaApplication.class)
+                .profiles("test")
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        runsUri = URI.create("http://localhost:" + port + "/api/runs");
+        httpClient = HttpClient.newHttpClient();
+
+        HttpRequest register = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/players"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"username\":\"benchmark\",\"password\":\"benchmark\"}"))
+                .build();
+        String body = httpClient.send(register, HttpResponse.BodyHandlers.ofString()).body();
+        sessionToken = new ObjectMapper().readTree(body).at("/data/sessionToken").asText();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        System.setOut(originalOut);
+    }
+
+    @Benchmark
+    public int createRun() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(runsUri)
+                .header("Content-Type", "application/json")
+                .header("Authorization", sessionToken)
+                .POST(HttpRequest.BodyPublishers.ofString(RUN_JSON))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,52 @@
+package com.echoshift.musyaffa.benchmarks;
+
+import com.echoshift.musyaffa.services.PasswordService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login-time password verification through PasswordService, including the hop onto
+ * its hashing pool. Runs on one thread against a one-thread pool, so the score is
+ * logins per second per core at each BCrypt strength; multiply by the core count
+ * for the ceiling of a login storm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@Threads(1)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({ "10", "12" })
+    public int strength;
+
+    private PasswordService passwordService;
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        passwordService = new PasswordService(new SimpleMeterRegistry(), strength, 1, 16, 60_000);
+        storedHash = passwordService.hash(PASSWORD);
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordService.shutdown();
+    }
+
+    @Benchmark
+    public boolean verifyLogin() {
+        return passwordService.matches(PASSWORD, storedHash);
+    }
+
+    @Benchmark
+    public boolean verifyLegacyPlainText() {
+        return passwordService.matches(PASSWORD, PASSWORD);
+    }
+}
@@ -0,0 +1,35 @@
+package com.echoshift.musyaffa.benchmarks;
+
+import com.echoshift.musyaffa.dto.RunResponse;
+import com.echoshift.musyaffa.models.Run;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Mapping a page of Run entities into RunResponse DTOs, as the history endpoint used to do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class RunMappingBenchmark {
+
+    private List<Run> runs;
+
+    @Setup
+    public void setUp() {
+        runs = BenchmarkData.runs(BenchmarkData.HISTORY_PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<RunResponse> mapHistoryPage() {
+        return runs.stream()
+                .map(RunResponse::new)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,45 @@
+package com.echoshift.musyaffa.benchmarks;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.echoshift.musyaffa.dto.LoginResponse;
+import com.echoshift.musyaffa.dto.RunResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the two most frequent response bodies,
+ * using the same ObjectMapper defaults Spring Boot applies to the controllers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class SerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private BaseResponse<List<RunResponse>> historyResponse;
+    private BaseResponse<LoginResponse> loginResponse;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        historyResponse = BenchmarkData.historyResponse();
+        loginResponse = BenchmarkData.loginResponse();
+    }
+
+    @Benchmark
+    public byte[] runHistoryPage() throws Exception {
+        return objectMapper.writeValueAsBytes(historyResponse);
+    }
+
+    @Benchmark
+    public byte[] loginResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(loginResponse);
+    }
+}
@@ -0,0 +1,76 @@
+package com.echoshift.musyaffa.benchmarks;
+
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.repositories.PlayerSessionRepository;
+import com.echoshift.musyaffa.services.SessionService;
+import com.echoshift.musyaffa.services.SignedSessionTokens;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session-token resolution through SessionService: UUID tokens with a warm cache,
+ * and HMAC-signed tokens that are verified without any lookup.
+ * The repository is a stub, so this measures the in-process path only;
+ * the database round-trip on a miss is covered by CreateRunBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@Threads(4)
+public class SessionResolutionBenchmark {
+
+    private static final int TOKENS = 10_000;
+
+    private SessionService sessionService;
+    private String[] tokens;
+    private String[] signedTokens;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        PlayerSessionRepository repository = (PlayerSessionRepository) Proxy.newProxyInstance(
+                PlayerSessionRepository.class.getClassLoader(),
+                new Class<?>[] { PlayerSessionRepository.class },
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findPrincipalBySessionToken")) {
+                        return Optional.of(new SessionPrincipal(UUID.nameUUIDFromBytes(((String) args[0]).getBytes()), "player"));
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SignedSessionTokens signer = new SignedSessionTokens(registry, true, "benchmark-secret-benchmark-secret-0123", Duration.ofDays(7));
+        sessionService = new SessionService(repository, signer, registry, TOKENS * 2L, Duration.ofHours(1), Duration.ofDays(7));
+        tokens = new String[TOKENS];
+        signedTokens = new String[TOKENS];
+        for (int i = 0; i < TOKENS; i++) {
+            tokens[i] = new UUID(i, i * 31L).toString();
+            sessionService.resolve(tokens[i]);
+            signedTokens[i] = signer.issue(new UUID(i, i * 31L), "player" + i).getValue();
+        }
+    }
+
+    @Benchmark
+    public Optional<SessionPrincipal> resolveCachedToken(Cursor cursor) {
+        cursor.next = (cursor.next + 1) % TOKENS;
+        return sessionService.resolve(tokens[cursor.next]);
+    }
+
+    @Benchmark
+    public Optional<SessionPrincipal> resolveSignedToken(Cursor cursor) {
+        cursor.next = (cursor.next + 1) % TOKENS;
+        return sessionService.resolve(signedTokens[cursor.next]);
+    }
+}
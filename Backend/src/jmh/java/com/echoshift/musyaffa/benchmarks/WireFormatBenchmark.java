@@ -0,0 +1,73 @@
+package com.echoshift.musyaffa.benchmarks;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.echoshift.musyaffa.dto.LoginResponse;
+import com.echoshift.musyaffa.dto.RunRequest;
+import com.echoshift.musyaffa.dto.RunResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON against CBOR for the bodies the mobile client exchanges most: the run submitted on
+ * every score update, the response to it, a history page and the login response. Mappers are
+ * built the way CborConfig builds them. Encoded sizes are printed once per fork.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class WireFormatBenchmark {
+
+    @Param({ "json", "cbor" })
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private byte[] runRequestBody;
+    private BaseResponse<RunResponse> runResponse;
+    private BaseResponse<List<RunResponse>> historyResponse;
+    private BaseResponse<LoginResponse> loginResponse;
+
+    @Setup
+    public void setUp() throws Exception {
+        objectMapper = "cbor".equals(format)
+                ? Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build()
+                : Jackson2ObjectMapperBuilder.json().build();
+        runRequestBody = objectMapper.writeValueAsBytes(new RunRequest(48_250, 312.5f, 14));
+        historyResponse = BenchmarkData.historyResponse();
+        runResponse = BaseResponse.success("Run updated successfully", historyResponse.getData().get(0));
+        loginResponse = BenchmarkData.loginResponse();
+
+        System.out.printf("%n%s bytes: runRequest=%d runResponse=%d historyPage=%d loginResponse=%d%n", format,
+                runRequestBody.length,
+                objectMapper.writeValueAsBytes(runResponse).length,
+                objectMapper.writeValueAsBytes(historyResponse).length,
+                objectMapper.writeValueAsBytes(loginResponse).length);
+    }
+
+    @Benchmark
+    public RunRequest readRunRequest() throws Exception {
+        return objectMapper.readValue(runRequestBody, RunRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeRunResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(runResponse);
+    }
+
+    @Benchmark
+    public byte[] writeHistoryPage() throws Exception {
+        return objectMapper.writeValueAsBytes(historyResponse);
+    }
+
+    @Benchmark
+    public byte[] writeLoginResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(loginResponse);
+    }
+}
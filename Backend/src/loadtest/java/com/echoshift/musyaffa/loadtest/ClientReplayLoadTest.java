@@ -0,0 +1,280 @@
+package com.echoshift.musyaffa.loadtest;
+
+import com.echoshift.musyaffa.MusyaffaApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays the Unity client's traffic for N concurrent virtual players:
+ * register, then per run POST /api/runs, several PUT /api/runs/{id} score updates
+ * (as RunTracker.UpdateScore does), PATCH /api/runs/{id}/end, then optionally a sync of
+ * runs played offline through POST /api/runs/batch, and finally GET /api/runs/{playerId}
+ * as RunsManager does when the menu opens.
+ *
+ * Without -Dloadtest.baseUrl the application is started in-process with the
+ * embedded H2 test profile; any extra Spring properties given as system
+ * properties (e.g. -Dspring.profiles.active=virtual-threads) apply to it.
+ *
+ * Options (system properties):
+ *   loadtest.baseUrl        target an already running instance instead
+ *   loadtest.players        concurrent virtual players (default 100)
+ *   loadtest.runsPerPlayer  runs played by each player (default 5)
+ *   loadtest.updatesPerRun  PUTs per run (default 20)
+ *   loadtest.offlineRuns    runs each player uploads in one JSON array batch (default 0, none);
+ *                           with runsPerPlayer=0 the result measures bulk ingestion alone
+ *   loadtest.thinkTimeMs    pause between requests of one player (default 0)
+ *   loadtest.warmupPlayers  players replayed once before measuring, results discarded (default 10)
+ *   loadtest.output         JSON result file
+ */
+public class ClientReplayLoadTest {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final String baseUrl;
+    private final int players;
+    private final int runsPerPlayer;
+    private final int updatesPerRun;
+    private final long thinkTimeMs;
+    private final int offlineRuns;
+    private final HttpClient httpClient;
+    private final AtomicLong ingestedRuns = new AtomicLong();
+
+    private final LatencyRecorder register = new LatencyRecorder("register");
+    private final LatencyRecorder createRun = new LatencyRecorder("createRun");
+    private final LatencyRecorder updateRun = new LatencyRecorder("updateRun");
+    private final LatencyRecorder endRun = new LatencyRecorder("endRun");
+    private final LatencyRecorder history = new LatencyRecorder("history");
+    private final LatencyRecorder batchUpload = new LatencyRecorder("batchUpload");
+
+    ClientReplayLoadTest(String baseUrl, int players, int runsPerPlayer, int updatesPerRun, long thinkTimeMs, int offlineRuns) {
+        this.baseUrl = baseUrl;
+        this.players = players;
+        this.runsPerPlayer = runsPerPlayer;
+        this.updatesPerRun = updatesPerRun;
+        this.thinkTimeMs = thinkTimeMs;
+        this.offlineRuns = offlineRuns;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors())))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        ConfigurableApplicationContext context = null;
+        String baseUrl = System.getProperty("loadtest.baseUrl");
+        if (baseUrl == null) {
+            // Controller debug output would otherwise dominate the console and the measurement
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            context = new SpringApplicationBuilder(MusyaffaApplication.class)
+                    .profiles("test")
+                    .properties("server.port=0", "logging.level.root=WARN")
+                    // Every virtual player comes from this one address; as an argument it
+                    // outranks the profile's production default
+                    .run("--echoshift.rate-limit.enabled=false");
+            baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        }
+
+        try {
+            int warmupPlayers = Integer.getInteger("loadtest.warmupPlayers", 10);
+            int offlineRuns = Integer.getInteger("loadtest.offlineRuns", 0);
+            if (warmupPlayers > 0) {
+                new ClientReplayLoadTest(baseUrl, warmupPlayers, 2, 10, 0L, Math.min(offlineRuns, 100)).run();
+            }
+
+            ClientReplayLoadTest loadTest = new ClientReplayLoadTest(
+                    baseUrl,
+                    Integer.getInteger("loadtest.players", 100),
+                    Integer.getInteger("loadtest.runsPerPlayer", 5),
+                    Integer.getInteger("loadtest.updatesPerRun", 20),
+                    Long.getLong("loadtest.thinkTimeMs", 0L),
+                    offlineRuns);
+            Map<String, Object> result = loadTest.run();
+            result.put("virtualThreads", context != null
+                    ? context.getEnvironment().getProperty("spring.threads.virtual.enabled", Boolean.class, false)
+                    : Boolean.getBoolean("spring.threads.virtual.enabled"));
+
+            String json = OBJECT_MAPPER.writeValueAsString(result);
+            System.err.println(json);
+            String output = System.getProperty("loadtest.output");
+            if (output != null) {
+                OBJECT_MAPPER.writeValue(new File(output), result);
+                System.err.println("Load test result written to " + output);
+            }
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            System.exit(0);
+        }
+    }
+
+    Map<String, Object> run() throws InterruptedException {
+        ExecutorService playerThreads = Executors.newFixedThreadPool(players);
+        CountDownLatch done = new CountDownLatch(players);
+        long start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            long seed = i;
+            playerThreads.execute(() -> {
+                try {
+                    playSession(new Random(seed));
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double durationSeconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        playerThreads.shutdown();
+        playerThreads.awaitTermination(10, TimeUnit.SECONDS);
+
+        long totalRequests = 0;
+        long totalErrors = 0;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        for (LatencyRecorder recorder : List.of(register, createRun, updateRun, endRun, batchUpload, history)) {
+            Map<String, Object> summary = recorder.summarize(durationSeconds);
+            operations.put(recorder.getName(), summary);
+            totalRequests += ((Number) summary.get("requests")).longValue();
+            totalErrors += ((Number) summary.get("errors")).longValue();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("baseUrl", baseUrl);
+        result.put("players", players);
+        result.put("runsPerPlayer", runsPerPlayer);
+        result.put("updatesPerRun", updatesPerRun);
+        result.put("thinkTimeMs", thinkTimeMs);
+        result.put("offlineRuns", offlineRuns);
+        result.put("durationSeconds", durationSeconds);
+        result.put("requests", totalRequests);
+        result.put("errors", totalErrors);
+        result.put("throughputPerSecond", totalRequests / durationSeconds);
+        result.put("ingestedRuns", ingestedRuns.get());
+        result.put("ingestedRunsPerSecond", ingestedRuns.get() / durationSeconds);
+        result.put("operations", operations);
+        return result;
+    }
+
+    private void playSession(Random random) {
+        String username = "load-" + UUID.randomUUID().toString().substring(0, 18);
+        JsonNode registered = send(register, post("/api/players", null,
+                "{\"username\":\"" + username + "\",\"password\":\"load-test\"}"));
+        if (registered == null) {
+            return;
+        }
+        String sessionToken = registered.at("/data/sessionToken").asText();
+        String playerId = registered.at("/data/player/id").asText();
+
+        for (int run = 0; run < runsPerPlayer; run++) {
+            JsonNode created = send(createRun, post("/api/runs", sessionToken, runJson(0, 0f, 1)));
+            if (created == null) {
+                continue;
+            }
+            String runId = created.at("/data/id").asText();
+
+            int score = 0;
+            int level = 1;
+            float elapsed = 0f;
+            for (int update = 0; update < updatesPerRun; update++) {
+                score += 10 + random.nextInt(90);
+                elapsed += 1f + random.nextFloat() * 4f;
+                if (random.nextInt(10) == 0) {
+                    level++;
+                }
+                send(updateRun, request("/api/runs/" + runId, sessionToken)
+                        .PUT(HttpRequest.BodyPublishers.ofString(runJson(score, elapsed, level))).build());
+            }
+
+            send(endRun, request("/api/runs/" + runId + "/end", sessionToken)
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString(runJson(score, elapsed, level))).build());
+        }
+
+        if (offlineRuns > 0) {
+            StringBuilder batch = new StringBuilder("[");
+            for (int run = 0; run < offlineRuns; run++) {
+                if (run > 0) {
+                    batch.append(',');
+                }
+                batch.append(runJson(random.nextInt(5000), 30f + random.nextFloat() * 300f, 1 + random.nextInt(20)));
+            }
+            JsonNode uploaded = send(batchUpload, post("/api/runs/batch", sessionToken, batch.append(']').toString()));
+            if (uploaded != null) {
+                uploaded.at("/data").forEach(item -> {
+                    if (item.at("/success").asBoolean()) {
+                        ingestedRuns.incrementAndGet();
+                    }
+                });
+            }
+        }
+
+        send(history, request("/api/runs/" + playerId, sessionToken).GET().build());
+    }
+
+    private JsonNode send(LatencyRecorder recorder, HttpRequest request) {
+        pause();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            recorder.record(System.nanoTime() - start);
+            if (response.statusCode() >= 400) {
+                recorder.recordError();
+                return null;
+            }
+            return OBJECT_MAPPER.readTree(response.body());
+        } catch (Exception e) {
+            recorder.record(System.nanoTime() - start);
+            recorder.recordError();
+            return null;
+        }
+    }
+
+    private HttpRequest post(String path, String sessionToken, String json) {
+        return request(path, sessionToken).POST(HttpRequest.BodyPublishers.ofString(json)).build();
+    }
+
+    private HttpRequest.Builder request(String path, String sessionToken) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json");
+        if (sessionToken != null) {
+            builder.header("Authorization", sessionToken);
+        }
+        return builder;
+    }
+
+    private void pause() {
+        if (thinkTimeMs > 0) {
+            try {
+                Thread.sleep(thinkTimeMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static String runJson(int score, float timeElapsed, int levelReached) {
+        return "{\"score\":" + score + ",\"timeElapsed\":" + timeElapsed + ",\"levelReached\":" + levelReached + "}";
+    }
+}
@@ -0,0 +1,61 @@
+package com.echoshift.musyaffa.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects latencies and error counts for one kind of request.
+ * Samples are appended under a lock; the harness records at most a few million
+ * samples, so a growable long array is enough and keeps percentiles exact.
+ */
+final class LatencyRecorder {
+
+    private final String name;
+    private final AtomicLong errors = new AtomicLong();
+    private long[] samples = new long[1024];
+    private int count;
+
+    LatencyRecorder(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    synchronized void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    void recordError() {
+        errors.incrementAndGet();
+    }
+
+    synchronized Map<String, Object> summarize(double durationSeconds) {
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", count);
+        summary.put("errors", errors.get());
+        summary.put("errorRate", count == 0 ? 0.0 : (double) errors.get() / count);
+        summary.put("throughputPerSecond", durationSeconds > 0 ? count / durationSeconds : 0.0);
+        summary.put("p50Millis", percentileMillis(sorted, 0.50));
+        summary.put("p95Millis", percentileMillis(sorted, 0.95));
+        summary.put("p99Millis", percentileMillis(sorted, 0.99));
+        summary.put("maxMillis", sorted.length == 0 ? 0.0 : sorted[sorted.length - 1] / 1_000_000.0);
+        return summary;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+}
@@ -1,9 +1,15 @@
 package com.echoshift.musyaffa.controllers;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 public class BaseResponse<T> {
     private boolean success;
     private String message;
     private T data;
+    
+    // Only present on paginated responses that have a following page
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 
     public BaseResponse(boolean success, String message, T data) {
         this.success = success;
@@ -40,4 +46,12 @@ public class BaseResponse<T> {
     public void setData(T data) {
         this.data = data;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
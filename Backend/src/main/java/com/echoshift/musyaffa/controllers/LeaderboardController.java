@@ -0,0 +1,47 @@
+package com.echoshift.musyaffa.controllers;
+
+import com.echoshift.musyaffa.dto.LeaderboardEntry;
+import com.echoshift.musyaffa.services.LeaderboardIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/leaderboard")
+public class LeaderboardController {
+
+    private static final int MAX_LIMIT = 100;
+
+    @Autowired
+    private LeaderboardIndex leaderboardIndex;
+
+    @GetMapping
+    public ResponseEntity<BaseResponse<List<LeaderboardEntry>>> getLeaderboard(@RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_LIMIT) {
+            BaseResponse<List<LeaderboardEntry>> response = new BaseResponse<>(false, "Limit must be between 1 and " + MAX_LIMIT, null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        List<LeaderboardEntry> entries = leaderboardIndex.top(limit);
+        BaseResponse<List<LeaderboardEntry>> response = new BaseResponse<>(true, "Leaderboard retrieved successfully", entries);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/rank/{playerId}")
+    public ResponseEntity<BaseResponse<LeaderboardEntry>> getPlayerRank(@PathVariable UUID playerId) {
+        Optional<LeaderboardEntry> entry = leaderboardIndex.rankOf(playerId);
+        
+        if (!entry.isPresent()) {
+            BaseResponse<LeaderboardEntry> response = new BaseResponse<>(false, "Player has no ranked runs", null);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        
+        BaseResponse<LeaderboardEntry> response = new BaseResponse<>(true, "Player rank retrieved successfully", entry.get());
+        return ResponseEntity.ok(response);
+    }
+}
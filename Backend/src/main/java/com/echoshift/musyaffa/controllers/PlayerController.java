@@ -1,12 +1,22 @@
 package com.echoshift.musyaffa.controllers;
 
 import com.echoshift.musyaffa.models.Player;
-import com.echoshift.musyaffa.models.PlayerSession;
 import com.echoshift.musyaffa.repositories.PlayerRepository;
-import com.echoshift.musyaffa.repositories.PlayerSessionRepository;
 import com.echoshift.musyaffa.dto.LoginRequest;
 import com.echoshift.musyaffa.dto.LoginResponse;
 import com.echoshift.musyaffa.dto.PlayerDto;
+import com.echoshift.musyaffa.dto.PlayerStatsDto;
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.services.ExperienceService;
+import com.echoshift.musyaffa.services.LeaderboardIndex;
+import com.echoshift.musyaffa.services.PasswordHashingBusyException;
+import com.echoshift.musyaffa.services.PasswordService;
+import com.echoshift.musyaffa.services.PlayerStatsService;
+import com.echoshift.musyaffa.services.RunHistoryVersions;
+import com.echoshift.musyaffa.services.SessionService;
+import com.echoshift.musyaffa.web.Authenticated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,11 +29,28 @@ import java.util.UUID;
 @RequestMapping("/api/players")
 public class PlayerController {
 
+    private static final Logger log = LoggerFactory.getLogger(PlayerController.class);
+
     @Autowired
     private PlayerRepository playerRepository;
     
     @Autowired
-    private PlayerSessionRepository playerSessionRepository;
+    private SessionService sessionService;
+    
+    @Autowired
+    private LeaderboardIndex leaderboardIndex;
+    
+    @Autowired
+    private PasswordService passwordService;
+    
+    @Autowired
+    private PlayerStatsService playerStatsService;
+    
+    @Autowired
+    private ExperienceService experienceService;
+    
+    @Autowired
+    private RunHistoryVersions runHistoryVersions;
 
     @PostMapping
     public ResponseEntity<BaseResponse<LoginResponse>> createPlayer(@RequestBody Player player) {
@@ -36,6 +63,12 @@ public class PlayerController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
         
+        if (player.getPassword() == null || player.getPassword().trim().isEmpty()) {
+            log.debug("Registration without a password");
+            BaseResponse<LoginResponse> response = new BaseResponse<>(false, "Password cannot be null or empty", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
         // Check if username already exists
         if (playerRepository.existsByUsername(player.getUsername())) {
             System.out.println("Username already exists: " + player.getUsername());
@@ -44,16 +77,13 @@ public class PlayerController {
         }
         
         try {
+            player.setPassword(passwordService.hash(player.getPassword()));
             System.out.println("Saving player: " + player.getUsername());
             Player savedPlayer = playerRepository.save(player);
             System.out.println("Player saved successfully with ID: " + savedPlayer.getId());
             
-            // Create session token for auto-login
-            String sessionToken = UUID.randomUUID().toString();
-            
-            // Create new session
-            PlayerSession session = new PlayerSession(sessionToken, savedPlayer);
-            playerSessionRepository.save(session);
+            // Create session for auto-login
+            String sessionToken = sessionService.createSession(savedPlayer);
             
             System.out.println("Registration and auto-login successful for user: " + savedPlayer.getUsername() + " with session: " + sessionToken);
             
@@ -62,6 +92,8 @@ public class PlayerController {
             BaseResponse<LoginResponse> response = new BaseResponse<>(true, "Player created and logged in successfully", loginResponse);
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
             
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
         } catch (Exception e) {
             System.err.println("Error saving player: " + e.getMessage());
             e.printStackTrace();
@@ -92,17 +124,17 @@ public class PlayerController {
             if (playerOptional.isPresent()) {
                 Player player = playerOptional.get();
                 
-                // Verify password (in production, use proper password hashing like BCrypt)
-                if (player.getPassword().equals(loginRequest.getPassword())) {
-                    // Deactivate any existing sessions for this player
-                    playerSessionRepository.deactivateAllPlayerSessions(player.getId());
+                if (passwordService.matches(loginRequest.getPassword(), player.getPassword())) {
+                    // Upgrade legacy plain text rows and hashes weaker than the current strength
+                    if (passwordService.needsRehash(player.getPassword())) {
+                        rehash(player, loginRequest.getPassword());
+                    }
                     
-                    // Generate new session token
-                    String sessionToken = UUID.randomUUID().toString();
+                    // Deactivate any existing sessions for this player
+                    sessionService.deactivateAllPlayerSessions(player.getId());
                     
                     // Create new session
-                    PlayerSession session = new PlayerSession(sessionToken, player);
-                    playerSessionRepository.save(session);
+                    String sessionToken = sessionService.createSession(player);
                     
                     System.out.println("Login successful for user: " + player.getUsername() + " with session: " + sessionToken);
                     
@@ -115,10 +147,13 @@ public class PlayerController {
                     return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
                 }
             } else {
+                passwordService.matchUnknownUser(loginRequest.getPassword());
                 System.out.println("User not found: " + loginRequest.getUsername());
                 BaseResponse<LoginResponse> response = new BaseResponse<>(false, "Invalid username or password", null);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
+        } catch (PasswordHashingBusyException e) {
+            return busy(e);
         } catch (Exception e) {
             System.err.println("Error during login: " + e.getMessage());
             e.printStackTrace();            BaseResponse<LoginResponse> response = new BaseResponse<>(false, "Error during login: " + e.getMessage(), null);
@@ -126,23 +161,30 @@ public class PlayerController {
         }
     }
 
+    private void rehash(Player player, String rawPassword) {
+        try {
+            player.setPassword(passwordService.hash(rawPassword));
+            playerRepository.save(player);
+            log.info("Password hash upgraded for user {}", player.getUsername());
+        } catch (PasswordHashingBusyException e) {
+            // The login itself succeeded; the upgrade is retried on the next login
+            log.info("Skipped password rehash for user {}: {}", player.getUsername(), e.getMessage());
+        }
+    }
+    
+    private ResponseEntity<BaseResponse<LoginResponse>> busy(PasswordHashingBusyException e) {
+        log.warn("Password hashing saturated: {}", e.getMessage());
+        BaseResponse<LoginResponse> response = new BaseResponse<>(false, "Server is busy, please retry", null);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(response);
+    }
+
+    @Authenticated
     @PostMapping("/logout")
     public ResponseEntity<BaseResponse<Void>> logoutPlayer(@RequestHeader("Authorization") String sessionToken) {
         System.out.println("Received logout request for session: " + sessionToken);
         
-        if (sessionToken == null || sessionToken.trim().isEmpty()) {
-            BaseResponse<Void> response = new BaseResponse<>(false, "Session token is required", null);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
-        
         try {
-            Optional<PlayerSession> sessionOptional = playerSessionRepository.findBySessionTokenAndIsActive(sessionToken, true);
-            
-            if (sessionOptional.isPresent()) {
-                PlayerSession session = sessionOptional.get();
-                session.setIsActive(false);
-                playerSessionRepository.save(session);
-                
+            if (sessionService.deactivateSession(sessionToken)) {
                 System.out.println("Logout successful for session: " + sessionToken);
                 BaseResponse<Void> response = new BaseResponse<>(true, "Logout successful", null);
                 return ResponseEntity.ok(response);
@@ -159,29 +201,23 @@ public class PlayerController {
         }
     }
 
+    @Authenticated
     @GetMapping("/session/validate")
-    public ResponseEntity<BaseResponse<PlayerDto>> validateSession(@RequestHeader("Authorization") String sessionToken) {
-        System.out.println("Received session validation request for: " + sessionToken);
-        
-        if (sessionToken == null || sessionToken.trim().isEmpty()) {
-            BaseResponse<PlayerDto> response = new BaseResponse<>(false, "Session token is required", null);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
-        
+    public ResponseEntity<BaseResponse<PlayerDto>> validateSession(SessionPrincipal principal) {
         try {
-            Optional<PlayerSession> sessionOptional = playerSessionRepository.findBySessionTokenAndIsActive(sessionToken, true);
+            Optional<Player> playerOptional = playerRepository.findById(principal.getPlayerId());
             
-            if (sessionOptional.isPresent()) {
-                Player player = sessionOptional.get().getPlayer();
+            if (playerOptional.isPresent()) {
+                Player player = playerOptional.get();
                 System.out.println("Session validation successful for user: " + player.getUsername());
                 
-                // Convert to DTO to avoid proxy issues
-                PlayerDto playerDto = new PlayerDto(player);
+                // Convert to DTO to avoid proxy issues; experience includes awards not flushed yet
+                PlayerDto playerDto = new PlayerDto(player, experienceService.currentExperience(player));
                 
                 BaseResponse<PlayerDto> response = new BaseResponse<>(true, "Session is valid", playerDto);
                 return ResponseEntity.ok(response);
             } else {
-                System.out.println("Invalid or expired session token: " + sessionToken);
+                log.debug("Session player {} no longer exists", principal.getPlayerId());
                 BaseResponse<PlayerDto> response = new BaseResponse<>(false, "Invalid or expired session", null);
                 return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
             }
@@ -193,11 +229,38 @@ public class PlayerController {
         }
     }
     
+    @GetMapping("/{id}/stats")
+    public ResponseEntity<BaseResponse<PlayerStatsDto>> getPlayerStats(@PathVariable UUID id) {
+        try {
+            // One primary-key read of the maintained row; no aggregation over runs
+            Optional<PlayerStatsDto> stats = playerStatsService.find(id);
+            if (stats.isPresent()) {
+                BaseResponse<PlayerStatsDto> response = new BaseResponse<>(true, "Player stats retrieved successfully", stats.get());
+                return ResponseEntity.ok(response);
+            }
+            if (playerRepository.existsById(id)) {
+                // No run recorded yet
+                BaseResponse<PlayerStatsDto> response = new BaseResponse<>(true, "Player stats retrieved successfully", PlayerStatsDto.empty(id));
+                return ResponseEntity.ok(response);
+            }
+            BaseResponse<PlayerStatsDto> response = new BaseResponse<>(false, "Player not found", null);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        } catch (Exception e) {
+            log.error("Error retrieving stats of player {}", id, e);
+            BaseResponse<PlayerStatsDto> response = new BaseResponse<>(false, "Error retrieving player stats: " + e.getMessage(), null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+    
     @DeleteMapping("/{id}")
     public ResponseEntity<BaseResponse<String>> deletePlayer(@PathVariable UUID id) {
         try {
             if (playerRepository.existsById(id)) {
                 playerRepository.deleteById(id);
+                leaderboardIndex.removePlayer(id);
+                playerStatsService.playerDeleted(id);
+                experienceService.playerDeleted(id);
+                runHistoryVersions.changed(id);
                 BaseResponse<String> response = new BaseResponse<>(true, "Player deleted successfully", "deleted");
                 return ResponseEntity.ok(response);
             } else {
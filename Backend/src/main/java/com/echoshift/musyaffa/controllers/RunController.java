@@ -1,80 +1,246 @@
 package com.echoshift.musyaffa.controllers;
 
 import com.echoshift.musyaffa.models.Run;
-import com.echoshift.musyaffa.models.PlayerSession;
 import com.echoshift.musyaffa.repositories.RunRepository;
-import com.echoshift.musyaffa.repositories.PlayerSessionRepository;
+import com.echoshift.musyaffa.dto.RunBatchResult;
+import com.echoshift.musyaffa.dto.RunCursor;
 import com.echoshift.musyaffa.dto.RunRequest;
 import com.echoshift.musyaffa.dto.RunResponse;
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.services.AdminAccess;
+import com.echoshift.musyaffa.services.ExperienceService;
+import com.echoshift.musyaffa.services.LeaderboardIndex;
+import com.echoshift.musyaffa.services.PlayerStatsService;
+import com.echoshift.musyaffa.services.RunArchive;
+import com.echoshift.musyaffa.services.RunExportService;
+import com.echoshift.musyaffa.services.RunHistoryVersions;
+import com.echoshift.musyaffa.services.RunIngestService;
+import com.echoshift.musyaffa.services.RunNotOwnedException;
+import com.echoshift.musyaffa.services.RunUpdateBuffer;
+import com.echoshift.musyaffa.web.Authenticated;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/runs")
 public class RunController {
 
+    private static final Logger log = LoggerFactory.getLogger(RunController.class);
+
+    private static final int DEFAULT_HISTORY_LIMIT = 50;
+    private static final int MAX_HISTORY_LIMIT = 200;
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     @Autowired
     private RunRepository runRepository;
     
     @Autowired
-    private PlayerSessionRepository playerSessionRepository;
+    private RunUpdateBuffer runUpdateBuffer;
+    
+    @Autowired
+    private LeaderboardIndex leaderboardIndex;
+    
+    @Autowired
+    private RunIngestService runIngestService;
+    
+    @Autowired
+    private PlayerStatsService playerStatsService;
+    
+    @Autowired
+    private ExperienceService experienceService;
+    
+    @Autowired
+    private RunArchive runArchive;
+    
+    @Autowired
+    private RunHistoryVersions runHistoryVersions;
+    
+    @Autowired
+    private RunExportService runExportService;
+    
+    @Autowired
+    private AdminAccess adminAccess;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Full run history of one player, or of every player, streamed as NDJSON (default) or CSV.
+     * Admin only; the body is written batch by batch after the response is committed.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRuns(
+            @RequestParam(required = false) UUID playerId,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = AdminAccess.HEADER, required = false) String adminToken) {
+        if (!adminAccess.isAdmin(adminToken)) {
+            return exportError(HttpStatus.FORBIDDEN, "Admin access required");
+        }
+        RunExportService.Format exportFormat;
+        try {
+            exportFormat = RunExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return exportError(HttpStatus.BAD_REQUEST, "Format must be ndjson or csv");
+        }
+        
+        String fileName = "runs" + (playerId != null ? "-" + playerId : "") + "." + format.toLowerCase();
+        StreamingResponseBody body = output -> {
+            long written = runExportService.export(playerId, exportFormat, output);
+            log.info("Exported {} runs{}", written, playerId != null ? " for player " + playerId : "");
+        };
+        return ResponseEntity.ok()
+                .contentType(exportFormat == RunExportService.Format.CSV ? new MediaType("text", "csv") : MediaType.parseMediaType(NDJSON_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> exportError(HttpStatus status, String message) {
+        return ResponseEntity.status(status)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(output -> objectMapper.writeValue(output, BaseResponse.error(message)));
+    }
 
+    /**
+     * A player's runs of the hot window (echoshift.runs.hot-months), best score first, in keyset
+     * pages. Older runs are not included; /{playerId}/archive pages through them the same way.
+     */
     @GetMapping("/{playerId}")
-    public ResponseEntity<BaseResponse<List<RunResponse>>> getRunsByPlayerId(@PathVariable UUID playerId) {
+    public ResponseEntity<BaseResponse<List<RunResponse>>> getRunsByPlayerId(
+            @PathVariable UUID playerId,
+            @RequestParam(defaultValue = "" + DEFAULT_HISTORY_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest) {
+        if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+            BaseResponse<List<RunResponse>> response = new BaseResponse<>(false, "Limit must be between 1 and " + MAX_HISTORY_LIMIT, null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        RunCursor after;
+        try {
+            after = cursor != null ? RunCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            BaseResponse<List<RunResponse>> response = new BaseResponse<>(false, "Invalid cursor", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        // Only the hot window; older runs are served by /{playerId}/archive
+        LocalDateTime hotCutoff = runArchive.hotCutoff();
+        // Unchanged since the client's copy: answer from memory, before any query
+        String etag = runHistoryVersions.etag(playerId, hotCutoff, accept);
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        
         try {
-            System.out.println("=== GET RUNS BY PLAYER DEBUG START ===");
-            System.out.println("Fetching runs for player ID: " + playerId);
+            log.debug("Fetching runs for player {} (limit {}, cursor {})", playerId, limit, cursor);
             
-            List<Run> runs = runRepository.findByPlayerIdOrderByScoreDesc(playerId);
-            System.out.println("Found " + runs.size() + " runs for player " + playerId + " (sorted by highest score)");
+            // Fetch one extra row to learn whether another page follows
+            Limit pageLimit = Limit.of(limit + 1);
+            List<RunResponse> page = after == null
+                    ? runRepository.findHistoryPage(playerId, hotCutoff, pageLimit)
+                    : runRepository.findHistoryPageAfter(playerId, hotCutoff, after.getScore(), after.getId(), pageLimit);
+            boolean hasMore = page.size() > limit;
+            if (hasMore) {
+                page = page.subList(0, limit);
+            }
+            log.debug("Found {} runs for player {}", page.size(), playerId);
             
-            List<RunResponse> runResponses = runs.stream()
-                    .map(RunResponse::new)
+            // Prefer buffered in-progress state over what has been flushed so far
+            List<RunResponse> runResponses = page.stream()
+                    .map(run -> runUpdateBuffer.pendingState(run.getId()).orElse(run))
                     .collect(Collectors.toList());
             
-            System.out.println("Converted to " + runResponses.size() + " response DTOs");
-            
             BaseResponse<List<RunResponse>> response = new BaseResponse<>(true, "Player runs retrieved successfully", runResponses);
-            System.out.println("=== GET RUNS BY PLAYER DEBUG END (SUCCESS) ===");
-            return ResponseEntity.ok(response);
+            if (hasMore) {
+                response.setNextCursor(RunCursor.of(page.get(page.size() - 1)).encode());
+            }
+            // no-cache: clients keep the body but revalidate it with If-None-Match every time
+            return ResponseEntity.ok()
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(response);
         } catch (Exception e) {
-            System.err.println("=== GET RUNS BY PLAYER ERROR ===");
-            System.err.println("ERROR in getRunsByPlayerId: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error retrieving runs of player {}", playerId, e);
             BaseResponse<List<RunResponse>> response = new BaseResponse<>(false, "Error retrieving player runs: " + e.getMessage(), null);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
 
+    @GetMapping("/{playerId}/archive")
+    public ResponseEntity<BaseResponse<List<RunResponse>>> getArchivedRunsByPlayerId(
+            @PathVariable UUID playerId,
+            @RequestParam(defaultValue = "" + DEFAULT_HISTORY_LIMIT) int limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+            BaseResponse<List<RunResponse>> response = new BaseResponse<>(false, "Limit must be between 1 and " + MAX_HISTORY_LIMIT, null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        RunCursor after;
+        try {
+            after = cursor != null ? RunCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            BaseResponse<List<RunResponse>> response = new BaseResponse<>(false, "Invalid cursor", null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        
+        try {
+            List<RunResponse> page = runArchive.coldHistoryPage(playerId, after, limit);
+            boolean hasMore = page.size() > limit;
+            if (hasMore) {
+                page = page.subList(0, limit);
+            }
+            BaseResponse<List<RunResponse>> response = new BaseResponse<>(true, "Archived player runs retrieved successfully", page);
+            if (hasMore) {
+                response.setNextCursor(RunCursor.of(page.get(page.size() - 1)).encode());
+            }
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            log.error("Error retrieving archived runs of player {}", playerId, e);
+            BaseResponse<List<RunResponse>> response = new BaseResponse<>(false, "Error retrieving archived runs: " + e.getMessage(), null);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @Authenticated
     @PostMapping
     public ResponseEntity<BaseResponse<RunResponse>> createRun(
             @RequestBody RunRequest request,
-            @RequestHeader("Authorization") String sessionToken) {
+            SessionPrincipal principal) {
         
         System.out.println("=== CREATE RUN DEBUG START ===");
         System.out.println("Received createRun request: " + request);
-        System.out.println("Session token: " + (sessionToken != null ? sessionToken.substring(0, Math.min(10, sessionToken.length())) + "..." : "null"));
         
         try {
-            // Validate session
-            System.out.println("Looking for session with token: " + sessionToken);
-            Optional<PlayerSession> sessionOptional = playerSessionRepository.findBySessionTokenAndIsActive(sessionToken, true);
-            
-            if (!sessionOptional.isPresent()) {
-                System.out.println("ERROR: Session not found or inactive");
-                BaseResponse<RunResponse> response = new BaseResponse<>(false, "Invalid session", null);
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-            }
-            
-            PlayerSession session = sessionOptional.get();
-            UUID playerId = session.getPlayer().getId();
+            UUID playerId = principal.getPlayerId();
             System.out.println("Session validated. Player ID: " + playerId);
             
             // Log the request data in detail
@@ -99,6 +265,9 @@ public class RunController {
             System.out.println("Saving run to database...");
             Run savedRun = runRepository.save(run);
             System.out.println("Run saved successfully with ID: " + savedRun.getId());
+            leaderboardIndex.recordRun(playerId, principal.getUsername(), savedRun.getId(), savedRun.getScore());
+            playerStatsService.runsCreated(playerId, 1, savedRun.getTimeElapsed(), savedRun.getScore(), savedRun.getLevelReached());
+            runHistoryVersions.changed(playerId);
             
             // Log saved run details
             System.out.println("Saved Run details:");
@@ -131,8 +300,50 @@ public class RunController {
         }
     }
 
+    @Authenticated
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BaseResponse<List<RunBatchResult>>> createRuns(
+            @RequestBody List<RunRequest> requests,
+            SessionPrincipal principal) {
+        if (requests.size() > runIngestService.getMaxItems()) {
+            BaseResponse<List<RunBatchResult>> response = new BaseResponse<>(false, "Batch exceeds the maximum of " + runIngestService.getMaxItems() + " runs", null);
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(response);
+        }
+        
+        return batchResponse(runIngestService.ingest(principal, requests.iterator()));
+    }
+
+    @Authenticated
+    @PostMapping(value = "/batch", consumes = NDJSON_VALUE)
+    public ResponseEntity<BaseResponse<List<RunBatchResult>>> createRunsFromStream(
+            HttpServletRequest httpRequest,
+            SessionPrincipal principal) {
+        // Runs are read one line at a time and written chunk by chunk, so the upload is never held in memory.
+        // A malformed line ends the upload: earlier chunks are already committed, so the results so far
+        // are returned with the failing line as the last entry
+        try (MappingIterator<RunRequest> requests = objectMapper.readerFor(RunRequest.class).readValues(httpRequest.getInputStream())) {
+            return batchResponse(runIngestService.ingest(principal, requests));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Rejected run stream: {}", e.getMessage());
+            BaseResponse<List<RunBatchResult>> response = new BaseResponse<>(false, "Error reading run stream: " + e.getMessage(), null);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+    }
+
+    private ResponseEntity<BaseResponse<List<RunBatchResult>>> batchResponse(List<RunBatchResult> results) {
+        long created = results.stream().filter(RunBatchResult::isSuccess).count();
+        String message = "Batch processed: " + created + " created, " + (results.size() - created) + " failed";
+        log.debug(message);
+        BaseResponse<List<RunBatchResult>> response = new BaseResponse<>(created > 0, message, results);
+        return ResponseEntity.status(created > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST).body(response);
+    }
+
+    @Authenticated
     @PutMapping("/{id}")
-    public ResponseEntity<BaseResponse<RunResponse>> updateRun(@PathVariable UUID id, @RequestBody RunRequest updateData) {
+    public ResponseEntity<BaseResponse<RunResponse>> updateRun(
+            @PathVariable UUID id,
+            @RequestBody RunRequest updateData,
+            SessionPrincipal principal) {
         System.out.println("=== UPDATE RUN DEBUG START ===");
         System.out.println("Updating run ID: " + id);
         System.out.println("Update data: " + updateData);
@@ -142,14 +353,34 @@ public class RunController {
         System.out.println("  - LevelReached: " + updateData.getLevelReached());
         
         try {
+            if (runUpdateBuffer.isEnabled()) {
+                // The owner is checked against the state the buffer loads (or already holds) anyway
+                Optional<RunResponse> buffered = runUpdateBuffer.update(id, principal.getPlayerId(), updateData);
+                if (!buffered.isPresent()) {
+                    log.debug("Run {} not found", id);
+                    BaseResponse<RunResponse> response = new BaseResponse<>(false, "Run not found", null);
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+                }
+                // History responses overlay the buffered state, so they change now
+                runHistoryVersions.changed(buffered.get().getPlayerId());
+                BaseResponse<RunResponse> response = new BaseResponse<>(true, "Run updated successfully", buffered.get());
+                return ResponseEntity.ok(response);
+            }
+            
             System.out.println("Looking for run with ID: " + id);
             Optional<Run> runOptional = runRepository.findById(id);
             if (runOptional.isPresent()) {
                 Run run = runOptional.get();
+                if (!run.getPlayerId().equals(principal.getPlayerId())) {
+                    return notOwned();
+                }
                 System.out.println("Found run. Current values:");
                 System.out.println("  - Current Score: " + run.getScore());
                 System.out.println("  - Current TimeElapsed: " + run.getTimeElapsed());
                 System.out.println("  - Current LevelReached: " + run.getLevelReached());
+                Float oldTime = run.getTimeElapsed();
+                Integer oldScore = run.getScore();
+                Integer oldLevel = run.getLevelReached();
                 
                 if (updateData.getScore() != null) {
                     System.out.println("Updating score from " + run.getScore() + " to " + updateData.getScore());
@@ -166,6 +397,9 @@ public class RunController {
                 
                 System.out.println("About to save updated run...");
                 Run updatedRun = runRepository.save(run);
+                playerStatsService.runChanged(new PlayerStatsService.RunChange(updatedRun.getPlayerId(), oldTime, oldScore, oldLevel,
+                        updatedRun.getTimeElapsed(), updatedRun.getScore(), updatedRun.getLevelReached()));
+                runHistoryVersions.changed(updatedRun.getPlayerId());
                 
                 System.out.println("Run updated successfully. Final values:");
                 System.out.println("  - Final Score: " + updatedRun.getScore());
@@ -187,6 +421,8 @@ public class RunController {
                 BaseResponse<RunResponse> response = new BaseResponse<>(false, "Run not found", null);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
+        } catch (RunNotOwnedException e) {
+            return notOwned();
         } catch (Exception e) {
             System.err.println("=== UPDATE RUN ERROR ===");
             System.err.println("ERROR in updateRun: " + e.getMessage());
@@ -197,87 +433,89 @@ public class RunController {
         }
     }
 
+    private ResponseEntity<BaseResponse<RunResponse>> notOwned() {
+        BaseResponse<RunResponse> response = new BaseResponse<>(false, "You can only update your own runs", null);
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+
+    @Authenticated
     @PatchMapping("/{id}/end")
-    public ResponseEntity<BaseResponse<RunResponse>> endRun(@PathVariable UUID id, @RequestBody RunRequest endRunData) {
-        System.out.println("=== END RUN DEBUG START ===");
-        System.out.println("Ending run ID: " + id);
-        System.out.println("End run data: " + endRunData);
-        System.out.println("End run details:");
-        System.out.println("  - Final Score: " + endRunData.getScore());
-        System.out.println("  - Final TimeElapsed: " + endRunData.getTimeElapsed());
-        System.out.println("  - Final LevelReached: " + endRunData.getLevelReached());
+    public ResponseEntity<BaseResponse<RunResponse>> endRun(
+            @PathVariable UUID id,
+            @RequestBody RunRequest endRunData,
+            SessionPrincipal principal) {
+        log.debug("Ending run {}: score {}, time {}, level {}", id,
+                endRunData.getScore(), endRunData.getTimeElapsed(), endRunData.getLevelReached());
         
         try {
-            System.out.println("Looking for run with ID: " + id);
-            Optional<Run> runOptional = runRepository.findById(id);
-            if (runOptional.isPresent()) {
-                Run run = runOptional.get();
-                System.out.println("Found run. Current values before ending:");
-                System.out.println("  - Current Score: " + run.getScore());
-                System.out.println("  - Current TimeElapsed: " + run.getTimeElapsed());
-                System.out.println("  - Current LevelReached: " + run.getLevelReached());
-                            
+            // Write any buffered progress first so the final state is applied on top of it
+            runUpdateBuffer.flush(id);
+            // The end stamp, final state, stats delta and experience award commit together, so a
+            // failure part way never leaves a run ended without its award (or awarded twice on retry)
+            Optional<Run> runOptional = transactionTemplate.execute(status -> {
+                // Only the first end of a run by its owner awards experience, even if the client retries
+                boolean firstEnd = runRepository.markEnded(id, principal.getPlayerId(), LocalDateTime.now()) > 0;
+
+                Optional<Run> found = runRepository.findById(id);
+                if (!found.isPresent() || !found.get().getPlayerId().equals(principal.getPlayerId())) {
+                    return found;
+                }
+                Run run = found.get();
+                Float oldTime = run.getTimeElapsed();
+                Integer oldScore = run.getScore();
+                Integer oldLevel = run.getLevelReached();
+
                 if (endRunData.getScore() != null) {
-                    System.out.println("Setting final score from " + run.getScore() + " to " + endRunData.getScore());
                     run.setScore(endRunData.getScore());
                 }
                 if (endRunData.getTimeElapsed() != null) {
-                    System.out.println("Setting final timeElapsed from " + run.getTimeElapsed() + " to " + endRunData.getTimeElapsed());
                     run.setTimeElapsed(endRunData.getTimeElapsed());
                 }
                 if (endRunData.getLevelReached() != null) {
-                    System.out.println("Setting final levelReached from " + run.getLevelReached() + " to " + endRunData.getLevelReached());
                     run.setLevelReached(endRunData.getLevelReached());
                 }
-                
-                System.out.println("About to save final run state...");
+
                 Run updatedRun = runRepository.save(run);
+                playerStatsService.runChanged(new PlayerStatsService.RunChange(updatedRun.getPlayerId(), oldTime, oldScore, oldLevel,
+                        updatedRun.getTimeElapsed(), updatedRun.getScore(), updatedRun.getLevelReached()));
+                if (firstEnd) {
+                    experienceService.awardRun(updatedRun.getPlayerId(), updatedRun.getScore());
+                }
+                return Optional.of(updatedRun);
+            });
+
+            if (runOptional.isPresent()) {
+                Run updatedRun = runOptional.get();
+                if (!updatedRun.getPlayerId().equals(principal.getPlayerId())) {
+                    return notOwned();
+                }
+                leaderboardIndex.recordRun(updatedRun.getPlayerId(), null, updatedRun.getId(), updatedRun.getScore());
+                runHistoryVersions.changed(updatedRun.getPlayerId());
                 
-                System.out.println("Run ended successfully. Final saved values:");
-                System.out.println("  - Final Score: " + updatedRun.getScore());
-                System.out.println("  - Final TimeElapsed: " + updatedRun.getTimeElapsed());
-                System.out.println("  - Final LevelReached: " + updatedRun.getLevelReached());
-                
-                RunResponse responseDto = new RunResponse(updatedRun);
-                System.out.println("Created final response DTO:");
-                System.out.println("  - DTO Score: " + responseDto.getScore());
-                System.out.println("  - DTO TimeElapsed: " + responseDto.getTimeElapsed());
-                System.out.println("  - DTO LevelReached: " + responseDto.getLevelReached());
+                log.debug("Ended run {}: score {}, time {}, level {}", id,
+                        updatedRun.getScore(), updatedRun.getTimeElapsed(), updatedRun.getLevelReached());
                 
-                BaseResponse<RunResponse> response = new BaseResponse<>(true, "Run completed successfully", responseDto);
-                System.out.println("=== END RUN DEBUG END (SUCCESS) ===");
+                BaseResponse<RunResponse> response = new BaseResponse<>(true, "Run completed successfully", new RunResponse(updatedRun));
                 return ResponseEntity.ok(response);
             } else {
-                System.out.println("ERROR: Run not found with ID: " + id);
                 BaseResponse<RunResponse> response = new BaseResponse<>(false, "Run not found", null);
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
             }
         } catch (Exception e) {
-            System.err.println("=== END RUN ERROR ===");
-            System.err.println("ERROR in endRun: " + e.getMessage());
-            System.err.println("Error class: " + e.getClass().getSimpleName());
-            e.printStackTrace();
+            log.error("Error ending run {}", id, e);
             BaseResponse<RunResponse> response = new BaseResponse<>(false, "Error ending run: " + e.getMessage(), null);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
 
+    @Authenticated
     @DeleteMapping("/{id}")
     public ResponseEntity<BaseResponse<Void>> deleteRun(
             @PathVariable UUID id,
-            @RequestHeader("Authorization") String sessionToken) {
+            SessionPrincipal principal) {
         
         try {
-            // Validate session
-            Optional<PlayerSession> sessionOptional = playerSessionRepository.findBySessionTokenAndIsActive(sessionToken, true);
-            
-            if (!sessionOptional.isPresent()) {
-                BaseResponse<Void> response = new BaseResponse<>(false, "Invalid session", null);
-                return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
-            }
-            
-            PlayerSession session = sessionOptional.get();
-            UUID currentPlayerId = session.getPlayer().getId();
+            UUID currentPlayerId = principal.getPlayerId();
             
             // Check if run exists and belongs to the current player
             Optional<Run> runOptional = runRepository.findById(id);
@@ -293,7 +531,11 @@ public class RunController {
             }
             
             // Delete the run
+            runUpdateBuffer.discard(id);
             runRepository.deleteById(id);
+            leaderboardIndex.runDeleted(currentPlayerId, id);
+            playerStatsService.runDeleted(currentPlayerId, run.getTimeElapsed() != null ? run.getTimeElapsed() : 0.0);
+            runHistoryVersions.changed(currentPlayerId);
             BaseResponse<Void> response = new BaseResponse<>(true, "Run deleted successfully", null);
             return ResponseEntity.ok(response);
             
@@ -0,0 +1,66 @@
+package com.echoshift.musyaffa.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * Sessions and players written to within the last read-your-writes window. Their reads stay
+ * on the primary (see ReadYourWritesFilter) so a client never reads a replica older than its
+ * own write. A no-op unless replicas are enabled.
+ *
+ * A replica is only used while its measured lag is under max-lag, and the lag is measured every
+ * check-interval-ms, so a replica can be up to max-lag + check-interval behind. The window has to
+ * be longer than that, or a read right after it closes (e.g. revalidating an ETag) could still
+ * return the state from before the write; startup fails otherwise.
+ */
+@Component
+public class ReadYourWrites {
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReadYourWrites(@Value("${echoshift.datasource.replicas.enabled:false}") boolean enabled,
+                          @Value("${echoshift.datasource.replicas.read-your-writes-window:20s}") Duration window,
+                          @Value("${echoshift.datasource.replicas.read-your-writes-maximum-size:100000}") long maximumSize,
+                          @Value("${echoshift.datasource.replicas.max-lag:10s}") Duration maxLag,
+                          @Value("${echoshift.datasource.replicas.check-interval-ms:5000}") long checkIntervalMs) {
+        if (enabled) {
+            Duration stalest = maxLag.plusMillis(checkIntervalMs);
+            if (maxLag.isZero() || window.compareTo(stalest) <= 0) {
+                throw new IllegalStateException("echoshift.datasource.replicas.read-your-writes-window (" + window
+                        + ") must be longer than max-lag + check-interval-ms (" + stalest
+                        + "), and max-lag must not be zero, or reads after a write may come from an older replica");
+            }
+        }
+        this.enabled = enabled;
+        this.recentWrites = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    public void sessionWrote(String sessionToken) {
+        if (enabled) {
+            recentWrites.put("session:" + sessionToken, Boolean.TRUE);
+        }
+    }
+
+    public void playerChanged(UUID playerId) {
+        if (enabled) {
+            recentWrites.put("player:" + playerId, Boolean.TRUE);
+        }
+    }
+
+    public boolean sessionWroteRecently(String sessionToken) {
+        return recentWrites.getIfPresent("session:" + sessionToken) != null;
+    }
+
+    public boolean playerChangedRecently(UUID playerId) {
+        return recentWrites.getIfPresent("player:" + playerId) != null;
+    }
+}
@@ -0,0 +1,145 @@
+package com.echoshift.musyaffa.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections for read-only transactions: round-robin over the replica pools when the thread
+ * allows replicas (see ReplicaRouting), the primary otherwise.
+ *
+ * A replica that fails to hand out a connection is skipped for retry-after; one whose
+ * replication lag exceeds max-lag is skipped until a later check finds it caught up. With
+ * no replica available reads fall back to the primary, counted in
+ * echoshift.datasource.replicas.fallbacks.
+ */
+public class ReplicaDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSource.class);
+
+    // Zero while the replica has replayed everything it received, even if the primary is idle
+    static final String POSTGRES_LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END";
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final AtomicInteger next = new AtomicInteger();
+    private final long retryAfterNanos;
+    private final Duration maxLag;
+    private final Counter fallbacks;
+
+    public ReplicaDataSource(DataSource primary, List<HikariDataSource> replicaPools, Duration retryAfter,
+                             Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicaPools.stream().map(Replica::new).toList();
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.maxLag = maxLag;
+        this.fallbacks = Counter.builder("echoshift.datasource.replicas.fallbacks")
+                .description("Read-only connections taken from the primary because no replica was available")
+                .register(meterRegistry);
+        Gauge.builder("echoshift.datasource.replicas.available", this, ReplicaDataSource::available)
+                .description("Replicas currently serving read-only transactions")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReplicaRouting.replicasAllowed() || replicas.isEmpty()) {
+            return primary.getConnection();
+        }
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (!replica.isAvailable(System.nanoTime())) {
+                continue;
+            }
+            try {
+                return replica.pool.getConnection();
+            } catch (SQLException e) {
+                replica.downUntil = System.nanoTime() + retryAfterNanos;
+                log.warn("Replica {} unavailable, using others for {}s: {}", replica.pool.getPoolName(),
+                        Duration.ofNanos(retryAfterNanos).toSeconds(), e.getMessage());
+            }
+        }
+        fallbacks.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the pool credentials");
+    }
+
+    /**
+     * Measure each replica's replication lag; skipped when max-lag is zero
+     */
+    @Scheduled(fixedDelayString = "${echoshift.datasource.replicas.check-interval-ms:5000}")
+    public void checkLag() {
+        if (maxLag.isZero()) {
+            return;
+        }
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.pool.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery(POSTGRES_LAG_QUERY)) {
+                resultSet.next();
+                double lagSeconds = resultSet.getDouble(1);
+                boolean lagging = lagSeconds > maxLag.toMillis() / 1000.0;
+                if (lagging != replica.lagging) {
+                    if (lagging) {
+                        log.warn("Replica {} is {}s behind, not using it", replica.pool.getPoolName(), lagSeconds);
+                    } else {
+                        log.info("Replica {} caught up", replica.pool.getPoolName());
+                    }
+                }
+                replica.lagging = lagging;
+                replica.downUntil = 0;
+            } catch (SQLException e) {
+                replica.downUntil = System.nanoTime() + retryAfterNanos;
+                log.warn("Replica {} failed its lag check: {}", replica.pool.getPoolName(), e.getMessage());
+            }
+        }
+    }
+
+    private double available() {
+        long now = System.nanoTime();
+        return replicas.stream().filter(replica -> replica.isAvailable(now)).count();
+    }
+
+    @Override
+    public void close() {
+        replicas.forEach(replica -> replica.pool.close());
+    }
+
+    private static final class Replica {
+        private final HikariDataSource pool;
+        // nanoTime before which the replica is skipped; 0 when it is up
+        private volatile long downUntil;
+        private volatile boolean lagging;
+
+        private Replica(HikariDataSource pool) {
+            this.pool = pool;
+        }
+
+        private boolean isAvailable(long now) {
+            long down = downUntil;
+            return !lagging && (down == 0 || now - down >= 0);
+        }
+    }
+}
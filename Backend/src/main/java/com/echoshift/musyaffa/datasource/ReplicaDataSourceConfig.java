@@ -0,0 +1,84 @@
+package com.echoshift.musyaffa.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replicas for the servlet variant. The application DataSource becomes a lazy proxy over
+ * the primary pool whose read-only transactions are handed to ReplicaDataSource; the physical
+ * connection is only taken at the first statement, once the transaction is known to be read-only.
+ * Replica pools share the spring.datasource.hikari settings of the primary.
+ */
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "echoshift.datasource.replicas.enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReplicaDataSourceConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaDataSourceConfig.class);
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource,
+                                              DataSourceProperties properties,
+                                              Environment environment,
+                                              MeterRegistry meterRegistry,
+                                              @Value("${echoshift.datasource.replicas.urls}") List<String> urls,
+                                              @Value("${echoshift.datasource.replicas.username:}") String username,
+                                              @Value("${echoshift.datasource.replicas.password:}") String password,
+                                              @Value("${echoshift.datasource.replicas.connection-timeout:1s}") Duration connectionTimeout,
+                                              @Value("${echoshift.datasource.replicas.retry-after:30s}") Duration retryAfter,
+                                              @Value("${echoshift.datasource.replicas.max-lag:10s}") Duration maxLag) {
+        // Replicas log in as the primary does unless they have their own username
+        List<HikariDataSource> pools = new ArrayList<>();
+        for (String url : urls) {
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class)
+                    .url(url.trim())
+                    .username(username.isEmpty() ? properties.determineUsername() : username)
+                    .password(username.isEmpty() ? properties.determinePassword() : password)
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            pool.setPoolName("replica-" + (pools.size() + 1));
+            pool.setReadOnly(true);
+            // Fail over quickly, and never keep the application from starting
+            pool.setConnectionTimeout(connectionTimeout.toMillis());
+            pool.setInitializationFailTimeout(-1);
+            pools.add(pool);
+        }
+        log.info("Routing read-only transactions of GET requests to {} replica(s)", pools.size());
+        return new ReplicaDataSource(primaryDataSource, pools, retryAfter, maxLag, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+}
@@ -0,0 +1,53 @@
+package com.echoshift.musyaffa.datasource;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-thread switch deciding whether read-only transactions may use a replica. Replicas are
+ * off unless a caller opts in (ReadYourWritesFilter does for GET requests), so writes, the
+ * reads they depend on and scheduled jobs always see the primary.
+ */
+public final class ReplicaRouting {
+
+    private static final ThreadLocal<Boolean> REPLICAS_ALLOWED = new ThreadLocal<>();
+
+    private ReplicaRouting() {
+    }
+
+    public static boolean replicasAllowed() {
+        return Boolean.TRUE.equals(REPLICAS_ALLOWED.get());
+    }
+
+    /**
+     * Let read-only transactions on this thread use a replica until the scope is closed
+     */
+    public static Scope allowReplicas() {
+        return set(Boolean.TRUE);
+    }
+
+    /**
+     * Run work against the primary even inside an allowReplicas() scope
+     */
+    public static <T> T onPrimary(Supplier<T> work) {
+        try (Scope scope = set(Boolean.FALSE)) {
+            return work.get();
+        }
+    }
+
+    private static Scope set(Boolean allowed) {
+        Boolean previous = REPLICAS_ALLOWED.get();
+        REPLICAS_ALLOWED.set(allowed);
+        return () -> {
+            if (previous != null) {
+                REPLICAS_ALLOWED.set(previous);
+            } else {
+                REPLICAS_ALLOWED.remove();
+            }
+        };
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.echoshift.musyaffa.datasource;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Per-thread recording of the SQL statements StatementCountingDataSource executes, used by
+ * SqlBudgetFilter to count the database round trips of each request. Outside a recording,
+ * executing a statement costs one ThreadLocal read.
+ */
+public final class SqlStatements {
+
+    // Statements kept for the log; beyond this only the count grows
+    static final int MAX_RECORDED = 100;
+
+    private static final ThreadLocal<Recording> CURRENT = new ThreadLocal<>();
+
+    private SqlStatements() {
+    }
+
+    /**
+     * Start recording this thread's statements, replacing any recording in progress until stop()
+     */
+    public static Recording start() {
+        Recording recording = new Recording(CURRENT.get());
+        CURRENT.set(recording);
+        return recording;
+    }
+
+    public static void stop(Recording recording) {
+        if (recording.previous != null) {
+            CURRENT.set(recording.previous);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    static void executed(String sql) {
+        Recording recording = CURRENT.get();
+        if (recording != null) {
+            recording.add(sql);
+        }
+    }
+
+    public static final class Recording {
+        private final Recording previous;
+        private final List<String> statements = new ArrayList<>();
+        private int count;
+
+        private Recording(Recording previous) {
+            this.previous = previous;
+        }
+
+        private void add(String sql) {
+            count++;
+            if (statements.size() < MAX_RECORDED) {
+                statements.add(sql);
+            }
+        }
+
+        /**
+         * Statements executed (a JDBC batch counts once: it is one round trip)
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * SQL of the first MAX_RECORDED statements, in execution order
+         */
+        public List<String> getStatements() {
+            return Collections.unmodifiableList(statements);
+        }
+    }
+}
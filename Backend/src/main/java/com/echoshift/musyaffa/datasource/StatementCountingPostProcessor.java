@@ -0,0 +1,26 @@
+package com.echoshift.musyaffa.datasource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/**
+ * Wraps the application DataSource (the bean named dataSource, whether auto-configured or
+ * the replica-routing proxy) in a StatementCountingDataSource for SqlBudgetFilter
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "echoshift.sql.budget.enabled", havingValue = "true", matchIfMissing = true)
+public class StatementCountingPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+            return new StatementCountingDataSource(dataSource);
+        }
+        return bean;
+    }
+}
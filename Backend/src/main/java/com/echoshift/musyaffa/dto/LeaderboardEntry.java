@@ -0,0 +1,39 @@
+package com.echoshift.musyaffa.dto;
+
+import java.util.UUID;
+
+public class LeaderboardEntry {
+    private int rank;
+    private UUID playerId;
+    private String username;
+    private Integer score;
+
+    public LeaderboardEntry(int rank, UUID playerId, String username, Integer score) {
+        this.rank = rank;
+        this.playerId = playerId;
+        this.username = username;
+        this.score = score;
+    }
+
+    public int getRank() { return rank; }
+    public void setRank(int rank) { this.rank = rank; }
+
+    public UUID getPlayerId() { return playerId; }
+    public void setPlayerId(UUID playerId) { this.playerId = playerId; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public Integer getScore() { return score; }
+    public void setScore(Integer score) { this.score = score; }
+
+    @Override
+    public String toString() {
+        return "LeaderboardEntry{" +
+                "rank=" + rank +
+                ", playerId=" + playerId +
+                ", username='" + username + '\'' +
+                ", score=" + score +
+                '}';
+    }
+}
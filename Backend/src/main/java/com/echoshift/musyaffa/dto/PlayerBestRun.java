@@ -0,0 +1,28 @@
+package com.echoshift.musyaffa.dto;
+
+import java.util.UUID;
+
+/**
+ * Projection of a player's highest scoring run, used to build the leaderboard index.
+ */
+public class PlayerBestRun {
+    private final UUID playerId;
+    private final String username;
+    private final UUID runId;
+    private final int score;
+
+    public PlayerBestRun(UUID playerId, String username, UUID runId, Integer score) {
+        this.playerId = playerId;
+        this.username = username;
+        this.runId = runId;
+        this.score = score != null ? score : 0;
+    }
+
+    public UUID getPlayerId() { return playerId; }
+
+    public String getUsername() { return username; }
+
+    public UUID getRunId() { return runId; }
+
+    public int getScore() { return score; }
+}
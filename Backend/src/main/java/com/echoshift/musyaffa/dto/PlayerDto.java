@@ -9,9 +9,16 @@ public class PlayerDto {
     private Integer experience;
 
     public PlayerDto(Player player) {
+        this(player, player.getExperience());
+    }
+
+    /**
+     * Use the given experience instead of the loaded column (e.g. including awards not yet flushed)
+     */
+    public PlayerDto(Player player, Integer experience) {
         this.id = player.getId();
         this.username = player.getUsername();
-        this.experience = player.getExperience();
+        this.experience = experience;
     }
 
     public UUID getId() { return id; }
@@ -0,0 +1,58 @@
+package com.echoshift.musyaffa.dto;
+
+import com.echoshift.musyaffa.models.PlayerStats;
+
+import java.util.UUID;
+
+public class PlayerStatsDto {
+    private UUID playerId;
+    private long totalRuns;
+    private int bestScore;
+    private double totalPlayTime;
+    private int highestLevel;
+
+    public PlayerStatsDto() {}
+
+    public PlayerStatsDto(PlayerStats stats) {
+        this.playerId = stats.getPlayerId();
+        this.totalRuns = stats.getTotalRuns();
+        this.bestScore = stats.getBestScore();
+        this.totalPlayTime = stats.getTotalPlayTime();
+        this.highestLevel = stats.getHighestLevel();
+    }
+
+    /**
+     * Stats of a player who has not recorded any run yet
+     */
+    public static PlayerStatsDto empty(UUID playerId) {
+        PlayerStatsDto dto = new PlayerStatsDto();
+        dto.playerId = playerId;
+        return dto;
+    }
+
+    public UUID getPlayerId() { return playerId; }
+    public void setPlayerId(UUID playerId) { this.playerId = playerId; }
+
+    public long getTotalRuns() { return totalRuns; }
+    public void setTotalRuns(long totalRuns) { this.totalRuns = totalRuns; }
+
+    public int getBestScore() { return bestScore; }
+    public void setBestScore(int bestScore) { this.bestScore = bestScore; }
+
+    public double getTotalPlayTime() { return totalPlayTime; }
+    public void setTotalPlayTime(double totalPlayTime) { this.totalPlayTime = totalPlayTime; }
+
+    public int getHighestLevel() { return highestLevel; }
+    public void setHighestLevel(int highestLevel) { this.highestLevel = highestLevel; }
+
+    @Override
+    public String toString() {
+        return "PlayerStatsDto{" +
+                "playerId=" + playerId +
+                ", totalRuns=" + totalRuns +
+                ", bestScore=" + bestScore +
+                ", totalPlayTime=" + totalPlayTime +
+                ", highestLevel=" + highestLevel +
+                '}';
+    }
+}
@@ -0,0 +1,47 @@
+package com.echoshift.musyaffa.dto;
+
+import java.util.UUID;
+
+public class RunBatchResult {
+    private int index;
+    private boolean success;
+    private UUID runId;
+    private String message;
+
+    public RunBatchResult(int index, boolean success, UUID runId, String message) {
+        this.index = index;
+        this.success = success;
+        this.runId = runId;
+        this.message = message;
+    }
+
+    public static RunBatchResult created(int index, UUID runId) {
+        return new RunBatchResult(index, true, runId, "Run created");
+    }
+
+    public static RunBatchResult failed(int index, String message) {
+        return new RunBatchResult(index, false, null, message);
+    }
+
+    public int getIndex() { return index; }
+    public void setIndex(int index) { this.index = index; }
+
+    public boolean isSuccess() { return success; }
+    public void setSuccess(boolean success) { this.success = success; }
+
+    public UUID getRunId() { return runId; }
+    public void setRunId(UUID runId) { this.runId = runId; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    @Override
+    public String toString() {
+        return "RunBatchResult{" +
+                "index=" + index +
+                ", success=" + success +
+                ", runId=" + runId +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
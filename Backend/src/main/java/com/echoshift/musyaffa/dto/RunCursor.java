@@ -0,0 +1,45 @@
+package com.echoshift.musyaffa.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque keyset cursor for run history ordered by (score DESC, id DESC).
+ * Encodes the sort key of the last run on a page.
+ */
+public class RunCursor {
+    private final int score;
+    private final UUID id;
+
+    public RunCursor(int score, UUID id) {
+        this.score = score;
+        this.id = id;
+    }
+
+    public static RunCursor of(RunResponse run) {
+        return new RunCursor(run.getScore() != null ? run.getScore() : 0, run.getId());
+    }
+
+    /**
+     * Parse a cursor produced by {@link #encode()}, throwing IllegalArgumentException if malformed
+     */
+    public static RunCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            return new RunCursor(Integer.parseInt(decoded.substring(0, separator)), UUID.fromString(decoded.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    public String encode() {
+        String raw = score + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public int getScore() { return score; }
+
+    public UUID getId() { return id; }
+}
@@ -17,6 +17,14 @@ public class RunResponse {
         this.levelReached = run.getLevelReached();
     }
 
+    public RunResponse(UUID id, UUID playerId, Float timeElapsed, Integer score, Integer levelReached) {
+        this.id = id;
+        this.playerId = playerId;
+        this.timeElapsed = timeElapsed;
+        this.score = score;
+        this.levelReached = levelReached;
+    }
+
     public UUID getId() { return id; }
     public void setId(UUID id) { this.id = id; }
     
@@ -0,0 +1,29 @@
+package com.echoshift.musyaffa.dto;
+
+import java.util.UUID;
+
+/**
+ * Lightweight view of the player behind an active session token.
+ * Resolved straight from a projection query so no entity or lazy proxy is involved.
+ */
+public class SessionPrincipal {
+    private final UUID playerId;
+    private final String username;
+
+    public SessionPrincipal(UUID playerId, String username) {
+        this.playerId = playerId;
+        this.username = username;
+    }
+
+    public UUID getPlayerId() { return playerId; }
+
+    public String getUsername() { return username; }
+
+    @Override
+    public String toString() {
+        return "SessionPrincipal{" +
+                "playerId=" + playerId +
+                ", username='" + username + '\'' +
+                '}';
+    }
+}
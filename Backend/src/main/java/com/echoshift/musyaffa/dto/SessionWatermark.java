@@ -0,0 +1,21 @@
+package com.echoshift.musyaffa.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Latest revoked session of a player, used to rebuild the signed-token deny list on startup.
+ */
+public class SessionWatermark {
+    private final UUID playerId;
+    private final LocalDateTime revokedUpTo;
+
+    public SessionWatermark(UUID playerId, LocalDateTime revokedUpTo) {
+        this.playerId = playerId;
+        this.revokedUpTo = revokedUpTo;
+    }
+
+    public UUID getPlayerId() { return playerId; }
+
+    public LocalDateTime getRevokedUpTo() { return revokedUpTo; }
+}
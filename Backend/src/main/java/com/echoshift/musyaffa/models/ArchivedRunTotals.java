@@ -0,0 +1,59 @@
+package com.echoshift.musyaffa.models;
+
+import jakarta.persistence.*;
+import java.util.UUID;
+
+/**
+ * Per-player aggregate over the runs that were archived out of the runs table,
+ * written by RunPartitionMaintenance when it drops a partition.
+ */
+@Entity
+@Table(name = "archived_run_totals")
+public class ArchivedRunTotals {
+
+    @Id
+    @Column(name = "player_id", nullable = false)
+    private UUID playerId;
+
+    @Column(name = "total_runs", nullable = false)
+    private long totalRuns;
+
+    @Column(name = "total_play_time", nullable = false)
+    private double totalPlayTime;
+
+    @Column(name = "best_score", nullable = false)
+    private int bestScore;
+
+    @Column(name = "best_run_id")
+    private UUID bestRunId;
+
+    @Column(name = "highest_level", nullable = false)
+    private int highestLevel;
+
+    public ArchivedRunTotals() {
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public long getTotalRuns() {
+        return totalRuns;
+    }
+
+    public double getTotalPlayTime() {
+        return totalPlayTime;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public UUID getBestRunId() {
+        return bestRunId;
+    }
+
+    public int getHighestLevel() {
+        return highestLevel;
+    }
+}
@@ -12,7 +12,8 @@ public class Player extends BaseEntity {
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
     
-    @Column(name = "experience", nullable = false, columnDefinition = "INT DEFAULT 0")
+    // Only ever changed by PlayerRepository.addExperience; saving a loaded player must not write back a stale value
+    @Column(name = "experience", nullable = false, updatable = false, columnDefinition = "INT DEFAULT 0")
     private Integer experience = 0;
 
     public Player() {
@@ -0,0 +1,52 @@
+package com.echoshift.musyaffa.models;
+
+import jakarta.persistence.*;
+import java.util.UUID;
+
+/**
+ * Per-player aggregate over the runs table, kept current by PlayerStatsService with
+ * atomic increments so profile reads never scan a player's runs.
+ */
+@Entity
+@Table(name = "player_stats")
+public class PlayerStats {
+
+    @Id
+    @Column(name = "player_id", nullable = false)
+    private UUID playerId;
+
+    @Column(name = "total_runs", nullable = false)
+    private long totalRuns;
+
+    @Column(name = "best_score", nullable = false)
+    private int bestScore;
+
+    @Column(name = "total_play_time", nullable = false)
+    private double totalPlayTime;
+
+    @Column(name = "highest_level", nullable = false)
+    private int highestLevel;
+
+    public PlayerStats() {
+    }
+
+    public UUID getPlayerId() {
+        return playerId;
+    }
+
+    public long getTotalRuns() {
+        return totalRuns;
+    }
+
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public double getTotalPlayTime() {
+        return totalPlayTime;
+    }
+
+    public int getHighestLevel() {
+        return highestLevel;
+    }
+}
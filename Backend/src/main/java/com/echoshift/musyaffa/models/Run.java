@@ -3,6 +3,7 @@ package com.echoshift.musyaffa.models;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
@@ -25,6 +26,16 @@ public class Run extends BaseEntity {
     @JsonProperty("level_reached")
     private Integer levelReached;
 
+    // Partition key of runs (monthly ranges); never changes so a row stays in its partition
+    @Column(name = "created_at", nullable = false, updatable = false)
+    @JsonProperty("created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Only set through RunRepository.markEnded, so saving a loaded run cannot clear it
+    @Column(name = "ended_at", updatable = false)
+    @JsonProperty("ended_at")
+    private LocalDateTime endedAt;
+
     // Constructors
     public Run() {}
 
@@ -67,4 +78,20 @@ public class Run extends BaseEntity {
     public void setLevelReached(Integer levelReached) {
         this.levelReached = levelReached;
     }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getEndedAt() {
+        return endedAt;
+    }
+
+    public void setEndedAt(LocalDateTime endedAt) {
+        this.endedAt = endedAt;
+    }
 }
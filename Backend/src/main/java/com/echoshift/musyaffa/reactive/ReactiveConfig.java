@@ -0,0 +1,75 @@
+package com.echoshift.musyaffa.reactive;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.repository.config.EnableR2dbcRepositories;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+@Configuration
+@Profile("reactive")
+@EnableR2dbcRepositories(basePackageClasses = ReactiveConfig.class)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveConfig implements WebFluxConfigurer {
+
+    @Value("${echoshift.reactive.blocking-pool-size:32}")
+    private int blockingPoolSize;
+
+    /**
+     * Tomcat is on the classpath for the servlet variant and would otherwise be picked
+     * as the reactive server too; Netty keeps the event loop to one thread per core.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * DataSource auto-configuration backs off once an R2DBC ConnectionFactory exists,
+     * but JPA still serves players, sessions and the leaderboard, so build the pool here.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Transactions over R2DBC, for run endpoints that issue several statements. The manager
+     * is deliberately not a bean: any ReactiveTransactionManager bean would make the JPA
+     * transaction manager back off.
+     */
+    @Bean
+    public TransactionalOperator transactionalOperator(ConnectionFactory connectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+
+    /**
+     * Controllers that still return plain values (players, leaderboard) call JPA,
+     * so WebFlux runs them on this bounded pool rather than on the event loop.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor blockingHandlerExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(blockingPoolSize);
+        executor.setMaxPoolSize(blockingPoolSize);
+        executor.setThreadNamePrefix("blocking-handler-");
+        return executor;
+    }
+
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        configurer.setExecutor(blockingHandlerExecutor());
+    }
+}
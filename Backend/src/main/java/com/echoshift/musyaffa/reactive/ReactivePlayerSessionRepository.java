@@ -0,0 +1,25 @@
+package com.echoshift.musyaffa.reactive;
+
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Non-blocking counterpart of PlayerSessionRepository for the reactive profile.
+ */
+public interface ReactivePlayerSessionRepository extends R2dbcRepository<PlayerSessionRow, UUID> {
+
+    /**
+     * Resolve an active, unexpired session token to its player id and username in a single query
+     */
+    @Query("SELECT p.id AS player_id, p.username AS username FROM player_sessions ps " +
+           "JOIN players p ON p.id = ps.player_id " +
+           "WHERE ps.session_token = :sessionToken AND ps.is_active = true AND ps.created_at > :createdAfter")
+    Mono<SessionPrincipal> findPrincipalBySessionToken(@Param("sessionToken") String sessionToken,
+                                                       @Param("createdAfter") LocalDateTime createdAfter);
+}
@@ -0,0 +1,424 @@
+package com.echoshift.musyaffa.reactive;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.echoshift.musyaffa.dto.RunCursor;
+import com.echoshift.musyaffa.dto.RunRequest;
+import com.echoshift.musyaffa.dto.RunResponse;
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.services.ExperienceService;
+import com.echoshift.musyaffa.services.LeaderboardIndex;
+import com.echoshift.musyaffa.services.PlayerStatsService;
+import com.echoshift.musyaffa.services.RunArchive;
+import com.echoshift.musyaffa.services.RunHistoryVersions;
+import com.echoshift.musyaffa.services.SessionService;
+import com.echoshift.musyaffa.web.RateLimits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Run endpoints of the reactive profile: same paths and payloads as RunController,
+ * but served from the event loop with R2DBC so a slow database does not pin a thread
+ * per in-flight request. Updates go straight to the database; the write-behind buffer
+ * is JDBC based and is not used here. Player stats are maintained through the same
+ * JDBC service as the servlet endpoints, off the event loop.
+ * Ending a run, its experience award included, takes several statements and runs in one
+ * R2DBC transaction.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/runs")
+public class ReactiveRunController {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveRunController.class);
+
+    private static final int DEFAULT_HISTORY_LIMIT = 50;
+    private static final int MAX_HISTORY_LIMIT = 200;
+
+    @Autowired
+    private ReactiveRunRepository runRepository;
+
+    @Autowired
+    private ReactivePlayerSessionRepository playerSessionRepository;
+
+    @Autowired
+    private R2dbcEntityTemplate entityTemplate;
+
+    @Autowired
+    private TransactionalOperator transactionalOperator;
+
+    @Autowired
+    private SessionService sessionService;
+
+    @Autowired
+    private LeaderboardIndex leaderboardIndex;
+
+    @Autowired
+    private PlayerStatsService playerStatsService;
+
+    @Autowired
+    private ExperienceService experienceService;
+
+    @Autowired
+    private RunArchive runArchive;
+
+    @Autowired
+    private RunHistoryVersions runHistoryVersions;
+
+    // Present when rate limits are enabled; its address limits run in ReactiveRateLimitFilter
+    @Autowired(required = false)
+    private RateLimits rateLimits;
+
+    @GetMapping("/{playerId}")
+    public Mono<ResponseEntity<BaseResponse<List<RunResponse>>>> getRunsByPlayerId(
+            @PathVariable UUID playerId,
+            @RequestParam(defaultValue = "" + DEFAULT_HISTORY_LIMIT) int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            ServerWebExchange exchange) {
+        if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+            return Mono.just(error(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_HISTORY_LIMIT));
+        }
+
+        RunCursor after;
+        try {
+            after = cursor != null ? RunCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.just(error(HttpStatus.BAD_REQUEST, "Invalid cursor"));
+        }
+
+        // Only the hot window; unchanged since the client's copy is answered before any query
+        LocalDateTime hotCutoff = runArchive.hotCutoff();
+        String etag = runHistoryVersions.etag(playerId, hotCutoff, accept);
+        if (exchange.checkNotModified(etag)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build());
+        }
+
+        // Fetch one extra row to learn whether another page follows
+        Flux<RunRow> rows = after == null
+                ? runRepository.findHistoryPage(playerId, hotCutoff, limit + 1)
+                : runRepository.findHistoryPageAfter(playerId, hotCutoff, after.getScore(), after.getId(), limit + 1);
+        return rows.map(RunRow::toResponse)
+                .collectList()
+                .map(page -> {
+                    boolean hasMore = page.size() > limit;
+                    List<RunResponse> runResponses = hasMore ? page.subList(0, limit) : page;
+                    BaseResponse<List<RunResponse>> response = new BaseResponse<>(true, "Player runs retrieved successfully", runResponses);
+                    if (hasMore) {
+                        response.setNextCursor(RunCursor.of(runResponses.get(runResponses.size() - 1)).encode());
+                    }
+                    return ResponseEntity.ok()
+                            .eTag(etag)
+                            .cacheControl(CacheControl.noCache())
+                            .varyBy(HttpHeaders.ACCEPT)
+                            .body(response);
+                })
+                .onErrorResume(e -> Mono.just(serverError("Error retrieving player runs", e)));
+    }
+
+    @GetMapping("/{playerId}/archive")
+    public Mono<ResponseEntity<BaseResponse<List<RunResponse>>>> getArchivedRunsByPlayerId(
+            @PathVariable UUID playerId,
+            @RequestParam(defaultValue = "" + DEFAULT_HISTORY_LIMIT) int limit,
+            @RequestParam(required = false) String cursor) {
+        if (limit < 1 || limit > MAX_HISTORY_LIMIT) {
+            return Mono.just(error(HttpStatus.BAD_REQUEST, "Limit must be between 1 and " + MAX_HISTORY_LIMIT));
+        }
+
+        RunCursor after;
+        try {
+            after = cursor != null ? RunCursor.decode(cursor) : null;
+        } catch (IllegalArgumentException e) {
+            return Mono.just(error(HttpStatus.BAD_REQUEST, "Invalid cursor"));
+        }
+
+        // Archive files and the JPA query are blocking, so the page is assembled off the event loop
+        return Mono.fromCallable(() -> runArchive.coldHistoryPage(playerId, after, limit))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(page -> {
+                    boolean hasMore = page.size() > limit;
+                    List<RunResponse> runResponses = hasMore ? page.subList(0, limit) : page;
+                    BaseResponse<List<RunResponse>> response = new BaseResponse<>(true, "Archived player runs retrieved successfully", runResponses);
+                    if (hasMore) {
+                        response.setNextCursor(RunCursor.of(runResponses.get(runResponses.size() - 1)).encode());
+                    }
+                    return ResponseEntity.ok(response);
+                })
+                .onErrorResume(e -> Mono.just(serverError("Error retrieving archived runs", e)));
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<BaseResponse<RunResponse>>> createRun(
+            @RequestBody RunRequest request,
+            @RequestHeader("Authorization") String sessionToken) {
+        return resolve(sessionToken)
+                .flatMap(principal -> {
+                    RunRow run = new RunRow(
+                            UUID.randomUUID(),
+                            principal.getPlayerId(),
+                            request.getTimeElapsed() != null ? request.getTimeElapsed() : 0.0f,
+                            request.getScore() != null ? request.getScore() : 0,
+                            request.getLevelReached() != null ? request.getLevelReached() : 1);
+                    return entityTemplate.insert(run)
+                            .flatMap(saved -> recordRun(principal.getPlayerId(), principal.getUsername(), saved))
+                            .flatMap(saved -> offload(() -> playerStatsService.runsCreated(saved.getPlayerId(), 1,
+                                    saved.getTimeElapsed(), saved.getScore(), saved.getLevelReached())).thenReturn(saved))
+                            .doOnNext(saved -> runHistoryVersions.changed(saved.getPlayerId()))
+                            .map(saved -> ResponseEntity.status(HttpStatus.CREATED)
+                                    .body(new BaseResponse<>(true, "Run created successfully", saved.toResponse())));
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> error(HttpStatus.UNAUTHORIZED, "Invalid session")))
+                .onErrorResume(e -> Mono.just(serverError("Error creating run", e)));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<BaseResponse<RunResponse>>> updateRun(
+            @PathVariable UUID id,
+            @RequestBody RunRequest updateData,
+            @RequestHeader(value = "Authorization", required = false) String sessionToken,
+            ServerHttpRequest request) {
+        return resolve(sessionToken)
+                .flatMap(principal -> this.<RunResponse>rateLimited(request, principal)
+                        .switchIfEmpty(Mono.defer(() -> runRepository.findById(id)
+                                .flatMap(run -> {
+                                    if (!run.getPlayerId().equals(principal.getPlayerId())) {
+                                        return Mono.just(this.<RunResponse>error(HttpStatus.FORBIDDEN, "You can only update your own runs"));
+                                    }
+                                    return applyAndSave(run, updateData)
+                                            .map(updated -> ResponseEntity.ok(new BaseResponse<>(true, "Run updated successfully", updated.toResponse())));
+                                })
+                                .switchIfEmpty(Mono.fromSupplier(() -> error(HttpStatus.NOT_FOUND, "Run not found"))))))
+                .switchIfEmpty(Mono.fromSupplier(() -> error(HttpStatus.UNAUTHORIZED, "Invalid session")))
+                .onErrorResume(e -> Mono.just(serverError("Error updating run", e)));
+    }
+
+    @PatchMapping("/{id}/end")
+    public Mono<ResponseEntity<BaseResponse<RunResponse>>> endRun(
+            @PathVariable UUID id,
+            @RequestBody RunRequest endRunData,
+            @RequestHeader(value = "Authorization", required = false) String sessionToken,
+            ServerHttpRequest request) {
+        // Only the first end of a run by its owner awards experience, even if the client retries.
+        // ended_at, the final state and the award are written on the same R2DBC connection and
+        // commit together: if any of them fails the run stays open, nothing was awarded, and the
+        // retry awards it. The JDBC side (stats, leaderboard) follows the commit.
+        return resolve(sessionToken)
+                .flatMap(principal -> this.<RunResponse>rateLimited(request, principal)
+                        .switchIfEmpty(Mono.defer(() -> runRepository.markEnded(id, principal.getPlayerId(), LocalDateTime.now())
+                                .flatMap(marked -> runRepository.findById(id)
+                                        .flatMap(run -> {
+                                            if (!run.getPlayerId().equals(principal.getPlayerId())) {
+                                                return Mono.just(SavedRun.rejected(this.<RunResponse>error(HttpStatus.FORBIDDEN, "You can only update your own runs")));
+                                            }
+                                            return save(run, endRunData)
+                                                    .flatMap(ended -> marked > 0
+                                                            ? awardExperience(ended)
+                                                            : Mono.just(ended));
+                                        }))
+                                .as(transactionalOperator::transactional)
+                                .doOnNext(ended -> {
+                                    if (ended.awarded > 0) {
+                                        experienceService.countAwarded(ended.awarded);
+                                    }
+                                })
+                                .flatMap(ended -> ended.response != null
+                                        ? Mono.just(ended.response)
+                                        : changed(ended)
+                                                .flatMap(updated -> recordRun(updated.getPlayerId(), null, updated))
+                                                .map(updated -> ResponseEntity.ok(new BaseResponse<>(true, "Run completed successfully", updated.toResponse()))))
+                                .switchIfEmpty(Mono.fromSupplier(() -> error(HttpStatus.NOT_FOUND, "Run not found"))))))
+                .switchIfEmpty(Mono.fromSupplier(() -> error(HttpStatus.UNAUTHORIZED, "Invalid session")))
+                .onErrorResume(e -> Mono.just(serverError("Error ending run", e)));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<BaseResponse<Void>>> deleteRun(
+            @PathVariable UUID id,
+            @RequestHeader("Authorization") String sessionToken) {
+        return resolve(sessionToken)
+                .flatMap(principal -> runRepository.findById(id)
+                        .flatMap(run -> {
+                            if (!run.getPlayerId().equals(principal.getPlayerId())) {
+                                return Mono.just(this.<Void>error(HttpStatus.FORBIDDEN, "You can only delete your own runs"));
+                            }
+                            return runRepository.deleteById(id)
+                                    .then(offload(() -> {
+                                        runHistoryVersions.changed(principal.getPlayerId());
+                                        leaderboardIndex.runDeleted(principal.getPlayerId(), id);
+                                        playerStatsService.runDeleted(principal.getPlayerId(),
+                                                run.getTimeElapsed() != null ? run.getTimeElapsed() : 0.0);
+                                    }))
+                                    .thenReturn(ResponseEntity.ok(new BaseResponse<Void>(true, "Run deleted successfully", null)));
+                        })
+                        .switchIfEmpty(Mono.fromSupplier(() -> error(HttpStatus.NOT_FOUND, "Run not found"))))
+                .switchIfEmpty(Mono.fromSupplier(() -> error(HttpStatus.UNAUTHORIZED, "Invalid session")))
+                .onErrorResume(e -> Mono.just(serverError("Error deleting run", e)));
+    }
+
+    /**
+     * Resolve the session without blocking (signed token or shared principal cache),
+     * querying R2DBC only on a cache miss
+     */
+    private Mono<SessionPrincipal> resolve(String sessionToken) {
+        if (sessionToken == null || sessionToken.trim().isEmpty()) {
+            return Mono.empty();
+        }
+        return Mono.justOrEmpty(sessionService.resolveLocally(sessionToken))
+                .switchIfEmpty(Mono.defer(() -> {
+                    long loadStamp = sessionService.loadStamp();
+                    return playerSessionRepository.findPrincipalBySessionToken(sessionToken, sessionService.expiryCutoff())
+                            .doOnNext(principal -> sessionService.remember(sessionToken, principal, loadStamp));
+                }));
+    }
+
+    /**
+     * The 429 response if the player has used up a per-player rate limit of this request, else empty
+     */
+    private <T> Mono<ResponseEntity<BaseResponse<T>>> rateLimited(ServerHttpRequest request, SessionPrincipal principal) {
+        if (rateLimits == null) {
+            return Mono.empty();
+        }
+        long retryAfter = rateLimits.acquireForPlayer(request.getMethod().name(),
+                request.getPath().pathWithinApplication().value(), principal.getPlayerId());
+        if (retryAfter == 0) {
+            return Mono.empty();
+        }
+        return Mono.just(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter))
+                .body(BaseResponse.<T>error("Too many requests, please retry later")));
+    }
+
+    /**
+     * The leaderboard index may reload a player's best run through JPA, so keep it off the event loop
+     */
+    private Mono<RunRow> recordRun(UUID playerId, String username, RunRow run) {
+        return Mono.fromRunnable(() -> leaderboardIndex.recordRun(playerId, username, run.getId(), run.getScore()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .thenReturn(run);
+    }
+
+    /**
+     * Add the experience of an ended run to its player within the caller's R2DBC transaction.
+     * ExperienceService writes through JDBC on another connection, which would commit the award
+     * even when this transaction rolls back, so only the amount is taken from it; its buffer is
+     * not used here.
+     */
+    private Mono<SavedRun> awardExperience(SavedRun ended) {
+        int amount = experienceService.experienceFor(ended.run.getScore());
+        if (amount <= 0) {
+            return Mono.just(ended);
+        }
+        return entityTemplate.getDatabaseClient()
+                .sql("UPDATE players SET experience = experience + :amount WHERE id = :playerId")
+                .bind("amount", amount)
+                .bind("playerId", ended.run.getPlayerId())
+                .fetch().rowsUpdated()
+                .thenReturn(ended.withAwarded(amount));
+    }
+
+    /**
+     * Save the updated run and apply the difference to its player's stats and history version
+     */
+    private Mono<RunRow> applyAndSave(RunRow run, RunRequest data) {
+        return save(run, data).flatMap(this::changed);
+    }
+
+    /**
+     * Save the updated run, keeping the change it makes to its player's stats
+     */
+    private Mono<SavedRun> save(RunRow run, RunRequest data) {
+        Float oldTime = run.getTimeElapsed();
+        Integer oldScore = run.getScore();
+        Integer oldLevel = run.getLevelReached();
+        apply(run, data);
+        return runRepository.save(run)
+                .map(saved -> new SavedRun(null, saved, new PlayerStatsService.RunChange(saved.getPlayerId(),
+                        oldTime, oldScore, oldLevel, saved.getTimeElapsed(), saved.getScore(), saved.getLevelReached())));
+    }
+
+    /**
+     * Apply a saved change to its player's stats and history version
+     */
+    private Mono<RunRow> changed(SavedRun saved) {
+        runHistoryVersions.changed(saved.run.getPlayerId());
+        return offload(() -> playerStatsService.runChanged(saved.change)).thenReturn(saved.run);
+    }
+
+    /**
+     * Run blocking JDBC work on the bounded elastic scheduler
+     */
+    private static Mono<Void> offload(Runnable work) {
+        return Mono.fromRunnable(work).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private static void apply(RunRow run, RunRequest data) {
+        if (data.getScore() != null) {
+            run.setScore(data.getScore());
+        }
+        if (data.getTimeElapsed() != null) {
+            run.setTimeElapsed(data.getTimeElapsed());
+        }
+        if (data.getLevelReached() != null) {
+            run.setLevelReached(data.getLevelReached());
+        }
+    }
+
+    private <T> ResponseEntity<BaseResponse<T>> error(HttpStatus status, String message) {
+        return ResponseEntity.status(status).body(new BaseResponse<>(false, message, null));
+    }
+
+    /**
+     * The details go to the log only; clients get the generic message
+     */
+    private <T> ResponseEntity<BaseResponse<T>> serverError(String message, Throwable e) {
+        log.error(message, e);
+        return error(HttpStatus.INTERNAL_SERVER_ERROR, message);
+    }
+
+    /**
+     * A saved run with the stats change to apply, or the response that ends the request instead
+     */
+    private static final class SavedRun {
+        private final ResponseEntity<BaseResponse<RunResponse>> response;
+        private final RunRow run;
+        private final PlayerStatsService.RunChange change;
+        // Experience added by ending the run, counted once its transaction commits
+        private final int awarded;
+
+        private SavedRun(ResponseEntity<BaseResponse<RunResponse>> response, RunRow run, PlayerStatsService.RunChange change) {
+            this(response, run, change, 0);
+        }
+
+        private SavedRun(ResponseEntity<BaseResponse<RunResponse>> response, RunRow run, PlayerStatsService.RunChange change, int awarded) {
+            this.response = response;
+            this.run = run;
+            this.change = change;
+            this.awarded = awarded;
+        }
+
+        private SavedRun withAwarded(int amount) {
+            return new SavedRun(response, run, change, amount);
+        }
+
+        private static SavedRun rejected(ResponseEntity<BaseResponse<RunResponse>> response) {
+            return new SavedRun(response, null, null);
+        }
+    }
+}
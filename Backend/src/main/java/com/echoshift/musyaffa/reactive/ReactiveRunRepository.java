@@ -0,0 +1,45 @@
+package com.echoshift.musyaffa.reactive;
+
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.data.repository.query.Param;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Non-blocking counterpart of RunRepository for the reactive profile.
+ */
+public interface ReactiveRunRepository extends R2dbcRepository<RunRow, UUID> {
+
+    /**
+     * First page of a player's recent run history, best score first
+     */
+    @Query("SELECT * FROM runs WHERE player_id = :playerId AND created_at >= :createdFrom " +
+           "ORDER BY score DESC, id DESC LIMIT :limit")
+    Flux<RunRow> findHistoryPage(@Param("playerId") UUID playerId,
+                                 @Param("createdFrom") LocalDateTime createdFrom,
+                                 @Param("limit") int limit);
+
+    /**
+     * Page of a player's recent run history following the (score, id) keyset cursor
+     */
+    @Query("SELECT * FROM runs WHERE player_id = :playerId AND created_at >= :createdFrom " +
+           "AND (score < :score OR (score = :score AND id < :id)) " +
+           "ORDER BY score DESC, id DESC LIMIT :limit")
+    Flux<RunRow> findHistoryPageAfter(@Param("playerId") UUID playerId,
+                                      @Param("createdFrom") LocalDateTime createdFrom,
+                                      @Param("score") int score,
+                                      @Param("id") UUID id,
+                                      @Param("limit") int limit);
+
+    /**
+     * Stamp the end of a run owned by the player; emits 0 if it had already ended (or is not theirs)
+     */
+    @Modifying
+    @Query("UPDATE runs SET ended_at = :endedAt WHERE id = :id AND player_id = :playerId AND ended_at IS NULL")
+    Mono<Integer> markEnded(@Param("id") UUID id, @Param("playerId") UUID playerId, @Param("endedAt") LocalDateTime endedAt);
+}
@@ -0,0 +1,63 @@
+package com.echoshift.musyaffa.reactive;
+
+import com.echoshift.musyaffa.dto.RunResponse;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * R2DBC mapping of the runs table, mirroring the JPA Run entity.
+ */
+@Table("runs")
+public class RunRow {
+    @Id
+    private UUID id;
+    private UUID playerId;
+    private Float timeElapsed;
+    private Integer score;
+    private Integer levelReached;
+    private LocalDateTime createdAt;
+    // Only set through ReactiveRunRepository.markEnded
+    @ReadOnlyProperty
+    private LocalDateTime endedAt;
+
+    public RunRow() {
+    }
+
+    public RunRow(UUID id, UUID playerId, Float timeElapsed, Integer score, Integer levelReached) {
+        this.id = id;
+        this.playerId = playerId;
+        this.timeElapsed = timeElapsed;
+        this.score = score;
+        this.levelReached = levelReached;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public RunResponse toResponse() {
+        return new RunResponse(id, playerId, timeElapsed, score, levelReached);
+    }
+
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+
+    public UUID getPlayerId() { return playerId; }
+    public void setPlayerId(UUID playerId) { this.playerId = playerId; }
+
+    public Float getTimeElapsed() { return timeElapsed; }
+    public void setTimeElapsed(Float timeElapsed) { this.timeElapsed = timeElapsed; }
+
+    public Integer getScore() { return score; }
+    public void setScore(Integer score) { this.score = score; }
+
+    public Integer getLevelReached() { return levelReached; }
+    public void setLevelReached(Integer levelReached) { this.levelReached = levelReached; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getEndedAt() { return endedAt; }
+    public void setEndedAt(LocalDateTime endedAt) { this.endedAt = endedAt; }
+}
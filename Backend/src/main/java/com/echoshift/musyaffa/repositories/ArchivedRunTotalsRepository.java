@@ -0,0 +1,24 @@
+package com.echoshift.musyaffa.repositories;
+
+import com.echoshift.musyaffa.dto.PlayerBestRun;
+import com.echoshift.musyaffa.models.ArchivedRunTotals;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read access to archived_run_totals; rows are folded in by RunPartitionMaintenance
+ */
+@Repository
+public interface ArchivedRunTotalsRepository extends JpaRepository<ArchivedRunTotals, UUID> {
+
+    /**
+     * Best archived run of every player that has one
+     */
+    @Query("SELECT new com.echoshift.musyaffa.dto.PlayerBestRun(p.id, p.username, a.bestRunId, a.bestScore) " +
+           "FROM ArchivedRunTotals a, Player p WHERE a.playerId = p.id AND a.bestRunId IS NOT NULL")
+    List<PlayerBestRun> findBestArchivedRuns();
+}
@@ -2,7 +2,11 @@ package com.echoshift.musyaffa.repositories;
 
 import com.echoshift.musyaffa.models.Player;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -11,4 +15,12 @@ import java.util.UUID;
 public interface PlayerRepository extends JpaRepository<Player, UUID> {
     Optional<Player> findByUsername(String username);
     boolean existsByUsername(String username);
+    
+    /**
+     * Add experience in the database itself, so concurrent awards never overwrite each other
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE players SET experience = experience + :amount WHERE id = :playerId", nativeQuery = true)
+    int addExperience(@Param("playerId") UUID playerId, @Param("amount") int amount);
 }
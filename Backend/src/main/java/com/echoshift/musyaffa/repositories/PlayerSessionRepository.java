@@ -1,6 +1,9 @@
 package com.echoshift.musyaffa.repositories;
 
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.dto.SessionWatermark;
 import com.echoshift.musyaffa.models.PlayerSession;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -20,6 +24,23 @@ public interface PlayerSessionRepository extends JpaRepository<PlayerSession, UU
      */
     Optional<PlayerSession> findBySessionTokenAndIsActive(String sessionToken, Boolean isActive);
     
+    /**
+     * Resolve an active, unexpired session token to its player id and username in a single query
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.echoshift.musyaffa.dto.SessionPrincipal(p.id, p.username) " +
+           "FROM PlayerSession ps JOIN ps.player p " +
+           "WHERE ps.sessionToken = :sessionToken AND ps.isActive = true AND ps.createdAt > :createdAfter")
+    Optional<SessionPrincipal> findPrincipalBySessionToken(@Param("sessionToken") String sessionToken,
+                                                           @Param("createdAfter") LocalDateTime createdAfter);
+    
+    /**
+     * Per player, the creation time of the newest inactive session created after the given time
+     */
+    @Query("SELECT new com.echoshift.musyaffa.dto.SessionWatermark(ps.player.id, MAX(ps.createdAt)) " +
+           "FROM PlayerSession ps WHERE ps.isActive = false AND ps.createdAt > :since GROUP BY ps.player.id")
+    List<SessionWatermark> findRevocationWatermarks(@Param("since") LocalDateTime since);
+    
     /**
      * Find an active session for a specific player
      */
@@ -41,7 +62,7 @@ public interface PlayerSessionRepository extends JpaRepository<PlayerSession, UU
     @Modifying
     @Transactional
     @Query("UPDATE PlayerSession ps SET ps.isActive = false WHERE ps.player.id = :playerId AND ps.isActive = true")
-    void deactivateAllPlayerSessions(@Param("playerId") UUID playerId);
+    int deactivateAllPlayerSessions(@Param("playerId") UUID playerId);
     
     /**
      * Deactivate a specific session by token
@@ -49,13 +70,24 @@ public interface PlayerSessionRepository extends JpaRepository<PlayerSession, UU
     @Modifying
     @Transactional
     @Query("UPDATE PlayerSession ps SET ps.isActive = false WHERE ps.sessionToken = :sessionToken AND ps.isActive = true")
-    void deactivateSessionByToken(@Param("sessionToken") String sessionToken);
+    int deactivateSessionByToken(@Param("sessionToken") String sessionToken);
+    
+    /**
+     * Next keyset page of ids of sessions that are expired, or inactive and old enough to drop
+     */
+    @Query("SELECT ps.id FROM PlayerSession ps WHERE ps.id > :after " +
+           "AND (ps.createdAt < :expiredBefore OR (ps.isActive = false AND ps.createdAt < :inactiveBefore)) " +
+           "ORDER BY ps.id")
+    List<UUID> findPurgeableIds(@Param("after") UUID after,
+                                @Param("expiredBefore") LocalDateTime expiredBefore,
+                                @Param("inactiveBefore") LocalDateTime inactiveBefore,
+                                Limit limit);
     
     /**
-     * Clean up old inactive sessions (for maintenance)
+     * Delete one batch of sessions by id (see SessionReaper)
      */
     @Modifying
     @Transactional
-    @Query("DELETE FROM PlayerSession ps WHERE ps.isActive = false")
-    void deleteInactiveSessions();
+    @Query("DELETE FROM PlayerSession ps WHERE ps.id IN :ids")
+    int deleteByIds(@Param("ids") List<UUID> ids);
 }
@@ -0,0 +1,14 @@
+package com.echoshift.musyaffa.repositories;
+
+import com.echoshift.musyaffa.models.PlayerStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+/**
+ * Read access to player_stats; all writes are atomic SQL in PlayerStatsService
+ */
+@Repository
+public interface PlayerStatsRepository extends JpaRepository<PlayerStats, UUID> {
+}
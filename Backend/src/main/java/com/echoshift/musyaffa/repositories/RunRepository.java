@@ -1,13 +1,129 @@
 package com.echoshift.musyaffa.repositories;
 
+import com.echoshift.musyaffa.dto.PlayerBestRun;
+import com.echoshift.musyaffa.dto.RunResponse;
 import com.echoshift.musyaffa.models.Run;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface RunRepository extends JpaRepository<Run, UUID> {
+
+    /**
+     * Rows per round trip when streaming runs for export
+     */
+    int EXPORT_FETCH_SIZE = 500;
+
     List<Run> findByPlayerIdOrderByScoreDesc(UUID playerId);
+
+    /**
+     * First page of a player's recent run history, best score first, projected straight into DTOs.
+     * The created_at bound limits the scan to the partitions of the hot window.
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.echoshift.musyaffa.dto.RunResponse(r.id, r.playerId, r.timeElapsed, r.score, r.levelReached) " +
+           "FROM Run r WHERE r.playerId = :playerId AND r.createdAt >= :createdFrom " +
+           "ORDER BY r.score DESC, r.id DESC")
+    List<RunResponse> findHistoryPage(@Param("playerId") UUID playerId,
+                                      @Param("createdFrom") LocalDateTime createdFrom,
+                                      Limit limit);
+
+    /**
+     * Page of a player's recent run history following the (score, id) keyset cursor
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.echoshift.musyaffa.dto.RunResponse(r.id, r.playerId, r.timeElapsed, r.score, r.levelReached) " +
+           "FROM Run r WHERE r.playerId = :playerId AND r.createdAt >= :createdFrom " +
+           "AND (r.score < :score OR (r.score = :score AND r.id < :id)) " +
+           "ORDER BY r.score DESC, r.id DESC")
+    List<RunResponse> findHistoryPageAfter(@Param("playerId") UUID playerId,
+                                           @Param("createdFrom") LocalDateTime createdFrom,
+                                           @Param("score") int score,
+                                           @Param("id") UUID id,
+                                           Limit limit);
+
+    /**
+     * First page of a player's runs older than the hot window that are not archived yet (see RunArchive)
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.echoshift.musyaffa.dto.RunResponse(r.id, r.playerId, r.timeElapsed, r.score, r.levelReached) " +
+           "FROM Run r WHERE r.playerId = :playerId AND r.createdAt < :createdBefore " +
+           "ORDER BY r.score DESC, r.id DESC")
+    List<RunResponse> findColdHistoryPage(@Param("playerId") UUID playerId,
+                                          @Param("createdBefore") LocalDateTime createdBefore,
+                                          Limit limit);
+
+    /**
+     * Page of older runs following the (score, id) keyset cursor
+     */
+    @Transactional(readOnly = true)
+    @Query("SELECT new com.echoshift.musyaffa.dto.RunResponse(r.id, r.playerId, r.timeElapsed, r.score, r.levelReached) " +
+           "FROM Run r WHERE r.playerId = :playerId AND r.createdAt < :createdBefore " +
+           "AND (r.score < :score OR (r.score = :score AND r.id < :id)) " +
+           "ORDER BY r.score DESC, r.id DESC")
+    List<RunResponse> findColdHistoryPageAfter(@Param("playerId") UUID playerId,
+                                               @Param("createdBefore") LocalDateTime createdBefore,
+                                               @Param("score") int score,
+                                               @Param("id") UUID id,
+                                               Limit limit);
+
+    /**
+     * Highest scoring run of every player (ties yield one row per tied run)
+     */
+    @Query("SELECT new com.echoshift.musyaffa.dto.PlayerBestRun(p.id, p.username, r.id, r.score) " +
+           "FROM Run r, Player p WHERE r.playerId = p.id " +
+           "AND r.score = (SELECT MAX(r2.score) FROM Run r2 WHERE r2.playerId = r.playerId)")
+    List<PlayerBestRun> findBestRunPerPlayer();
+
+    /**
+     * Runs of a single player ordered by score, best first; page with size 1 for the best run
+     */
+    @Query("SELECT new com.echoshift.musyaffa.dto.PlayerBestRun(p.id, p.username, r.id, r.score) " +
+           "FROM Run r, Player p WHERE r.playerId = p.id AND r.playerId = :playerId " +
+           "ORDER BY r.score DESC")
+    List<PlayerBestRun> findBestRunsForPlayer(@Param("playerId") UUID playerId, Pageable pageable);
+
+    /**
+     * Stamp the end of a run owned by the player; returns 0 if it had already ended (or is not
+     * theirs), so only the first call wins
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Run r SET r.endedAt = :endedAt WHERE r.id = :id AND r.playerId = :playerId AND r.endedAt IS NULL")
+    int markEnded(@Param("id") UUID id, @Param("playerId") UUID playerId, @Param("endedAt") LocalDateTime endedAt);
+
+    /**
+     * Every run, read forward-only in fetch-size batches (see RunExportService); must be
+     * consumed inside a transaction and closed
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Run r")
+    Stream<Run> streamAll();
+
+    /**
+     * A player's runs in creation order, read like streamAll
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT r FROM Run r WHERE r.playerId = :playerId ORDER BY r.createdAt")
+    Stream<Run> streamByPlayerId(@Param("playerId") UUID playerId);
 }
@@ -0,0 +1,32 @@
+package com.echoshift.musyaffa.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Operator access for endpoints that are not scoped to one player (e.g. the global run export).
+ * Callers present echoshift.admin.token in the X-Admin-Token header; with no token configured
+ * admin access is disabled.
+ */
+@Service
+public class AdminAccess {
+
+    public static final String HEADER = "X-Admin-Token";
+
+    private final byte[] token;
+
+    public AdminAccess(@Value("${echoshift.admin.token:}") String token) {
+        this.token = token.isEmpty() ? null : token.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public boolean isAdmin(String presentedToken) {
+        if (token == null || presentedToken == null) {
+            return false;
+        }
+        // Constant-time comparison so the token cannot be guessed byte by byte from timings
+        return MessageDigest.isEqual(token, presentedToken.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,201 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.models.Player;
+import com.echoshift.musyaffa.repositories.PlayerRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Awards player experience when a run ends.
+ * Every award is an increment applied by the database (experience = experience + ?), never a
+ * read-modify-write of the Player entity, so concurrent run completions cannot lose XP.
+ *
+ * With echoshift.experience.buffer.enabled awards are summed per player in memory and written
+ * in JDBC batches on a fixed delay. Amounts leave the buffer atomically per player, a failed
+ * write puts them back, and the buffer is drained on shutdown. An award made inside a transaction
+ * is buffered only once that transaction commits, like the direct write would be.
+ */
+@Service
+public class ExperienceService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExperienceService.class);
+
+    private static final String ADD_SQL = "UPDATE players SET experience = experience + ? WHERE id = ?";
+
+    private final PlayerRepository playerRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean buffered;
+    private final int scorePerExperience;
+    private final int batchSize;
+    private final Counter awarded;
+    private final Map<UUID, Integer> pending = new ConcurrentHashMap<>();
+    // Awards hold the read lock while they add to the buffer; shutdown takes the write lock to close it
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+    private boolean closed;
+
+    public ExperienceService(PlayerRepository playerRepository,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${echoshift.experience.buffer.enabled:false}") boolean buffered,
+                             @Value("${echoshift.experience.score-per-point:10}") int scorePerExperience,
+                             @Value("${echoshift.experience.buffer.batch-size:100}") int batchSize) {
+        this.playerRepository = playerRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Also used from afterCommit, where the finished transaction is still bound to the thread
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.buffered = buffered;
+        this.scorePerExperience = scorePerExperience;
+        this.batchSize = batchSize;
+        this.awarded = Counter.builder("echoshift.experience.awarded")
+                .description("Experience points awarded for completed runs")
+                .register(meterRegistry);
+        meterRegistry.gauge("echoshift.experience.pending_players", pending, Map::size);
+    }
+
+    /**
+     * Experience earned by a run with the given final score
+     */
+    public int experienceFor(Integer score) {
+        return score != null && score > 0 ? score / scorePerExperience : 0;
+    }
+
+    /**
+     * Award the experience of a completed run to its player
+     */
+    public void awardRun(UUID playerId, Integer score) {
+        award(playerId, experienceFor(score));
+    }
+
+    public void award(UUID playerId, int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        if (buffered && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addToBuffer(playerId, amount);
+                }
+            });
+        } else if (buffered) {
+            addToBuffer(playerId, amount);
+        } else {
+            playerRepository.addExperience(playerId, amount);
+            awarded.increment(amount);
+        }
+    }
+
+    /**
+     * Count experience a caller added within its own transaction (the reactive run endpoints),
+     * once that transaction has committed
+     */
+    public void countAwarded(int amount) {
+        awarded.increment(amount);
+    }
+
+    private void addToBuffer(UUID playerId, int amount) {
+        closing.readLock().lock();
+        try {
+            if (!closed) {
+                // merge is atomic per key and only locks that key's bin, so players do not contend
+                pending.merge(playerId, amount, Integer::sum);
+                awarded.increment(amount);
+                return;
+            }
+        } finally {
+            closing.readLock().unlock();
+        }
+        transactionTemplate.executeWithoutResult(status -> playerRepository.addExperience(playerId, amount));
+        awarded.increment(amount);
+    }
+
+    /**
+     * A loaded player's experience including awards still waiting in the buffer
+     */
+    public int currentExperience(Player player) {
+        int stored = player.getExperience() != null ? player.getExperience() : 0;
+        return stored + pending.getOrDefault(player.getId(), 0);
+    }
+
+    public void playerDeleted(UUID playerId) {
+        pending.remove(playerId);
+    }
+
+    @Scheduled(fixedDelayString = "${echoshift.experience.buffer.flush-interval-ms:1000}")
+    public void flush() {
+        flushPending();
+    }
+
+    /**
+     * Returns false if the write failed and the drained amounts were put back
+     */
+    private boolean flushPending() {
+        if (pending.isEmpty()) {
+            return true;
+        }
+        // remove() hands each player's sum over atomically; awards that arrive afterwards
+        // start a new entry and go out with the next flush
+        List<Map.Entry<UUID, Integer>> drained = new ArrayList<>(pending.size());
+        for (UUID playerId : pending.keySet()) {
+            Integer amount = pending.remove(playerId);
+            if (amount != null) {
+                drained.add(Map.entry(playerId, amount));
+            }
+        }
+        try {
+            // One transaction, so a failure never leaves part of the batch applied before it is retried
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(ADD_SQL, drained, batchSize, (ps, entry) -> {
+                        ps.setInt(1, entry.getValue());
+                        ps.setObject(2, entry.getKey());
+                    }));
+            return true;
+        } catch (Exception e) {
+            log.warn("Error flushing buffered experience, will retry", e);
+            for (Map.Entry<UUID, Integer> entry : drained) {
+                pending.merge(entry.getKey(), entry.getValue(), Integer::sum);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Later awards are written directly, then whatever is buffered is flushed
+     */
+    @PreDestroy
+    public void flushOnShutdown() {
+        // Waits for awards already adding to the buffer; none can add after this
+        closing.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        if (!flushPending()) {
+            log.error("Experience for {} players could not be written on shutdown: {}", pending.size(), pending);
+        }
+    }
+}
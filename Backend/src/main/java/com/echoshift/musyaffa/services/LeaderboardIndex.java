@@ -0,0 +1,457 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.LeaderboardEntry;
+import com.echoshift.musyaffa.dto.PlayerBestRun;
+import com.echoshift.musyaffa.repositories.ArchivedRunTotalsRepository;
+import com.echoshift.musyaffa.repositories.RunRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory global leaderboard holding the best score of every player.
+ * Entries live in a size-augmented treap ordered by score (highest first), so rank
+ * lookups and inserts are O(log n) and the top N is an in-order walk.
+ * Ranks use competition ranking: tied scores share a rank.
+ *
+ * Runs archived out of the runs table still count: their per-player best is read from
+ * archived_run_totals and kept in memory, so refreshing a player costs no extra query.
+ *
+ * warm() and refreshPlayer() query the database without holding the lock. Updates applied
+ * while such a rebuild is in flight are logged and replayed onto its result, so a rebuild
+ * that read the database before an update never overwrites it.
+ */
+@Service
+public class LeaderboardIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LeaderboardIndex.class);
+
+    private final RunRepository runRepository;
+    private final ArchivedRunTotalsRepository archivedRunTotalsRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<UUID, Entry> byPlayer = new HashMap<>();
+    private Node root;
+    // Updates applied while rebuilds are in flight, numbered up to updateSequence; cleared
+    // when the last rebuild finishes
+    private final List<Update> updates = new ArrayList<>();
+    private long updateSequence;
+    private int rebuilds;
+    private volatile Map<UUID, PlayerBestRun> archivedBest = Map.of();
+
+    public LeaderboardIndex(RunRepository runRepository, ArchivedRunTotalsRepository archivedRunTotalsRepository) {
+        this.runRepository = runRepository;
+        this.archivedRunTotalsRepository = archivedRunTotalsRepository;
+    }
+
+    /**
+     * Warm the index from the runs table once the application is up.
+     * The new tree is built aside and replaces the current one, with the updates that
+     * arrived during the query replayed onto it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        long start = beginRebuild();
+        try {
+            reloadArchived();
+            Map<UUID, Entry> players = new HashMap<>();
+            Node tree = null;
+            for (PlayerBestRun bestRun : runRepository.findBestRunPerPlayer()) {
+                if (!players.containsKey(bestRun.getPlayerId())) {
+                    Entry entry = new Entry(bestRun.getPlayerId(), bestRun.getUsername(), bestRun.getRunId(), bestRun.getScore());
+                    players.put(entry.playerId, entry);
+                    tree = insert(tree, entry);
+                }
+            }
+            for (PlayerBestRun archived : archivedBest.values()) {
+                Entry current = players.get(archived.getPlayerId());
+                if (current == null || archived.getScore() > current.score) {
+                    if (current != null) {
+                        tree = remove(tree, current);
+                    }
+                    Entry entry = new Entry(archived.getPlayerId(), archived.getUsername(), archived.getRunId(), archived.getScore());
+                    players.put(entry.playerId, entry);
+                    tree = insert(tree, entry);
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                byPlayer = players;
+                root = tree;
+                replay(start, null);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Leaderboard warmed with {} players", size());
+        } catch (Exception e) {
+            log.error("Error warming leaderboard", e);
+        } finally {
+            finishRebuild();
+        }
+    }
+
+    /**
+     * Record the current score of a run (on create and end).
+     * username may be null when the caller does not know it.
+     */
+    public void recordRun(UUID playerId, String username, UUID runId, int score) {
+        boolean needsRefresh;
+        lock.writeLock().lock();
+        try {
+            needsRefresh = applyRun(playerId, username, runId, score);
+            logUpdate(playerId, () -> applyRun(playerId, username, runId, score));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (needsRefresh) {
+            refreshPlayer(playerId);
+        }
+    }
+
+    /**
+     * Keep the index consistent after a run was deleted
+     */
+    public void runDeleted(UUID playerId, UUID runId) {
+        boolean wasBest;
+        lock.readLock().lock();
+        try {
+            Entry current = byPlayer.get(playerId);
+            wasBest = current != null && runId.equals(current.runId);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (wasBest) {
+            refreshPlayer(playerId);
+        }
+    }
+
+    public void removePlayer(UUID playerId) {
+        lock.writeLock().lock();
+        try {
+            applyEntry(playerId, null);
+            logUpdate(playerId, () -> applyEntry(playerId, null));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reload the best archived run of every player, after partitions were archived
+     */
+    public void reloadArchived() {
+        Map<UUID, PlayerBestRun> reloaded = new HashMap<>();
+        for (PlayerBestRun archived : archivedRunTotalsRepository.findBestArchivedRuns()) {
+            reloaded.put(archived.getPlayerId(), archived);
+        }
+        archivedBest = reloaded;
+    }
+
+    /**
+     * Reload a single player's best run from the database; updates of the player that
+     * arrived during the query are replayed onto it
+     */
+    public void refreshPlayer(UUID playerId) {
+        long start = beginRebuild();
+        try {
+            List<PlayerBestRun> bestRuns = runRepository.findBestRunsForPlayer(playerId, PageRequest.of(0, 1));
+            PlayerBestRun bestRun = bestRuns.isEmpty() ? null : bestRuns.get(0);
+            PlayerBestRun archived = archivedBest.get(playerId);
+            if (archived != null && (bestRun == null || archived.getScore() > bestRun.getScore())) {
+                bestRun = archived;
+            }
+            Entry best = bestRun != null ? new Entry(playerId, bestRun.getUsername(), bestRun.getRunId(), bestRun.getScore()) : null;
+            lock.writeLock().lock();
+            try {
+                applyEntry(playerId, best);
+                replay(start, playerId);
+                // Other rebuilds in flight take the refreshed entry as a whole
+                Entry refreshed = byPlayer.get(playerId);
+                logUpdate(playerId, () -> applyEntry(playerId, refreshed));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            finishRebuild();
+        }
+    }
+
+    public List<LeaderboardEntry> top(int limit) {
+        List<LeaderboardEntry> entries = new ArrayList<>(Math.min(limit, 1024));
+        lock.readLock().lock();
+        try {
+            Deque<Node> stack = new ArrayDeque<>();
+            Node node = root;
+            int position = 0;
+            int rank = 0;
+            Integer previousScore = null;
+            while ((node != null || !stack.isEmpty()) && entries.size() < limit) {
+                while (node != null) {
+                    stack.push(node);
+                    node = node.left;
+                }
+                node = stack.pop();
+                position++;
+                if (previousScore == null || node.entry.score != previousScore) {
+                    rank = position;
+                    previousScore = node.entry.score;
+                }
+                entries.add(node.entry.toLeaderboardEntry(rank));
+                node = node.right;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return entries;
+    }
+
+    public Optional<LeaderboardEntry> rankOf(UUID playerId) {
+        lock.readLock().lock();
+        try {
+            Entry entry = byPlayer.get(playerId);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            return Optional.of(entry.toLeaderboardEntry(countHigherThan(entry.score) + 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return byPlayer.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Updates and their log, callers must hold the write lock
+
+    /**
+     * Apply a run's score; true if the player's best has to be reloaded from the database
+     */
+    private boolean applyRun(UUID playerId, String username, UUID runId, int score) {
+        Entry current = byPlayer.get(playerId);
+        if (current == null) {
+            if (username == null) {
+                return true;
+            }
+            put(new Entry(playerId, username, runId, score));
+        } else if (score > current.score || (score == current.score && runId.equals(current.runId))) {
+            remove(current);
+            put(new Entry(playerId, username != null ? username : current.username, runId, score));
+        } else if (runId.equals(current.runId)) {
+            // The best run went down, another run may be the best now
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Replace the player's entry, or remove it when entry is null
+     */
+    private void applyEntry(UUID playerId, Entry entry) {
+        Entry current = byPlayer.get(playerId);
+        if (current != null) {
+            remove(current);
+        }
+        if (entry != null) {
+            put(entry);
+        }
+    }
+
+    private void logUpdate(UUID playerId, Runnable apply) {
+        if (rebuilds > 0) {
+            updates.add(new Update(playerId, apply));
+            updateSequence++;
+        }
+    }
+
+    /**
+     * Re-apply the updates logged since start, of one player or of all when playerId is null
+     */
+    private void replay(long start, UUID playerId) {
+        for (int i = (int) (start - (updateSequence - updates.size())); i < updates.size(); i++) {
+            Update update = updates.get(i);
+            if (playerId == null || playerId.equals(update.playerId)) {
+                update.apply.run();
+            }
+        }
+    }
+
+    /**
+     * Start logging updates for a rebuild; returns the sequence its replay starts from
+     */
+    private long beginRebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuilds++;
+            return updateSequence;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void finishRebuild() {
+        lock.writeLock().lock();
+        try {
+            if (--rebuilds == 0) {
+                updates.clear();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Treap primitives, callers must hold the write lock (or read lock for queries)
+
+    private void put(Entry entry) {
+        byPlayer.put(entry.playerId, entry);
+        root = insert(root, entry);
+    }
+
+    private void remove(Entry entry) {
+        byPlayer.remove(entry.playerId);
+        root = remove(root, entry);
+    }
+
+    private int countHigherThan(int score) {
+        int count = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.entry.score > score) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    private static Node insert(Node node, Entry entry) {
+        Node[] parts = split(node, entry);
+        return merge(merge(parts[0], new Node(entry)), parts[1]);
+    }
+
+    private static Node remove(Node node, Entry entry) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(entry, node.entry);
+        if (cmp == 0) {
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, entry);
+        } else {
+            node.right = remove(node.right, entry);
+        }
+        node.update();
+        return node;
+    }
+
+    /**
+     * Split into nodes ordered before the entry and nodes ordered at or after it
+     */
+    private static Node[] split(Node node, Entry entry) {
+        if (node == null) {
+            return new Node[] { null, null };
+        }
+        if (compare(node.entry, entry) < 0) {
+            Node[] parts = split(node.right, entry);
+            node.right = parts[0];
+            node.update();
+            return new Node[] { node, parts[1] };
+        }
+        Node[] parts = split(node.left, entry);
+        node.left = parts[1];
+        node.update();
+        return new Node[] { parts[0], node };
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = merge(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static int compare(Entry a, Entry b) {
+        int byScore = Integer.compare(b.score, a.score);
+        return byScore != 0 ? byScore : a.playerId.compareTo(b.playerId);
+    }
+
+    private static int size(Node node) {
+        return node != null ? node.size : 0;
+    }
+
+    private static final class Entry {
+        private final UUID playerId;
+        private final String username;
+        private final UUID runId;
+        private final int score;
+
+        private Entry(UUID playerId, String username, UUID runId, int score) {
+            this.playerId = playerId;
+            this.username = username;
+            this.runId = runId;
+            this.score = score;
+        }
+
+        private LeaderboardEntry toLeaderboardEntry(int rank) {
+            return new LeaderboardEntry(rank, playerId, username, score);
+        }
+    }
+
+    private static final class Update {
+        private final UUID playerId;
+        private final Runnable apply;
+
+        private Update(UUID playerId, Runnable apply) {
+            this.playerId = playerId;
+            this.apply = apply;
+        }
+    }
+
+    private static final class Node {
+        private final Entry entry;
+        private final int priority = ThreadLocalRandom.current().nextInt();
+        private Node left;
+        private Node right;
+        private int size = 1;
+
+        private Node(Entry entry) {
+            this.entry = entry;
+        }
+
+        private void update() {
+            size = 1 + LeaderboardIndex.size(left) + LeaderboardIndex.size(right);
+        }
+    }
+}
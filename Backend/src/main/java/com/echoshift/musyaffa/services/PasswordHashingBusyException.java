@@ -0,0 +1,11 @@
+package com.echoshift.musyaffa.services;
+
+/**
+ * Thrown when the password hashing pool is saturated and the request should be retried later.
+ */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,151 @@
+package com.echoshift.musyaffa.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Salted adaptive password hashing (BCrypt, stored as "{bcrypt}...").
+ * Hashing is deliberately expensive, so it runs on a small dedicated pool with a bounded
+ * queue instead of on request threads; when the pool is saturated callers get a
+ * PasswordHashingBusyException straight away rather than piling up behind a login storm.
+ * Rows written before hashing was introduced hold the raw password without an id prefix;
+ * they still verify and report needsRehash so login can upgrade them.
+ */
+@Service
+public class PasswordService {
+
+    private static final String ENCODING_ID = "bcrypt";
+
+    private final DelegatingPasswordEncoder encoder;
+    private final ExecutorService executor;
+    private final long maxWaitMillis;
+    private final Counter rejected;
+    // Verified against for unknown usernames so they cost as much as a wrong password
+    private final String unknownUserHash;
+
+    public PasswordService(MeterRegistry meterRegistry,
+                           @Value("${echoshift.password.bcrypt-strength:10}") int strength,
+                           @Value("${echoshift.password.hashing.threads:0}") int threads,
+                           @Value("${echoshift.password.hashing.queue-capacity:64}") int queueCapacity,
+                           @Value("${echoshift.password.hashing.max-wait-ms:2000}") long maxWaitMillis) {
+        this.encoder = new DelegatingPasswordEncoder(ENCODING_ID, Map.of(ENCODING_ID, new BCryptPasswordEncoder(strength)));
+        this.encoder.setDefaultPasswordEncoderForMatches(new LegacyPlainTextEncoder());
+        this.maxWaitMillis = maxWaitMillis;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "passwordHashing");
+        this.rejected = Counter.builder("echoshift.password_hashing.rejected")
+                .description("Password hashing tasks rejected because the hashing pool was saturated")
+                .register(meterRegistry);
+        this.unknownUserHash = encoder.encode("unknown-user");
+    }
+
+    /**
+     * Hash a raw password for storage
+     */
+    public String hash(String rawPassword) {
+        return execute(() -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * Check a raw password against a stored hash (or legacy plain value)
+     */
+    public boolean matches(String rawPassword, String storedPassword) {
+        return execute(() -> encoder.matches(rawPassword, storedPassword));
+    }
+
+    /**
+     * Spend the same work as a real check when the username does not exist
+     */
+    public void matchUnknownUser(String rawPassword) {
+        matches(rawPassword, unknownUserHash);
+    }
+
+    /**
+     * True for legacy plain values and for hashes weaker than the configured strength
+     */
+    public boolean needsRehash(String storedPassword) {
+        return encoder.upgradeEncoding(storedPassword);
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("Password hashing queue is full");
+        }
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new PasswordHashingBusyException("Password hashing timed out");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new PasswordHashingBusyException("Interrupted while waiting for password hashing");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Matches rows stored before hashing was introduced; never used to encode
+     */
+    private static final class LegacyPlainTextEncoder implements PasswordEncoder {
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            throw new UnsupportedOperationException("Plain text passwords are no longer written");
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String storedPassword) {
+            if (rawPassword == null || storedPassword == null) {
+                return false;
+            }
+            return MessageDigest.isEqual(rawPassword.toString().getBytes(StandardCharsets.UTF_8),
+                    storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
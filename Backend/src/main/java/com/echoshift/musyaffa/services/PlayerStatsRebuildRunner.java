@@ -0,0 +1,45 @@
+package com.echoshift.musyaffa.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintenance command: started with --rebuild-player-stats, the application recomputes
+ * player_stats from the runs table and exits instead of serving requests.
+ */
+@Component
+public class PlayerStatsRebuildRunner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerStatsRebuildRunner.class);
+
+    static final String OPTION = "rebuild-player-stats";
+
+    private final PlayerStatsService playerStatsService;
+    private final ApplicationContext applicationContext;
+    private final int batchSize;
+
+    public PlayerStatsRebuildRunner(PlayerStatsService playerStatsService,
+                                    ApplicationContext applicationContext,
+                                    @Value("${echoshift.stats.rebuild.batch-size:500}") int batchSize) {
+        this.playerStatsService = playerStatsService;
+        this.applicationContext = applicationContext;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption(OPTION)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long players = playerStatsService.rebuild(batchSize);
+        log.info("Player stats rebuild finished: {} players in {} ms", players, System.currentTimeMillis() - start);
+        System.exit(SpringApplication.exit(applicationContext, () -> 0));
+    }
+}
@@ -0,0 +1,213 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.PlayerStatsDto;
+import com.echoshift.musyaffa.repositories.PlayerStatsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Maintains player_stats incrementally as runs are created, updated, ended and deleted.
+ * Every change is a single atomic UPDATE (counters added, maxima via GREATEST), so
+ * concurrent run completions never overwrite each other. Maxima can only be raised
+ * in place; when a run's score or level goes down, or a run is deleted, they are
+ * recomputed from that player's runs.
+ *
+ * The runs table plus archived_run_totals (runs archived out of it) stay the source of truth:
+ * rebuild() recomputes every row from them.
+ */
+@Service
+public class PlayerStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlayerStatsService.class);
+
+    private static final String ADD_SQL =
+            "UPDATE player_stats SET total_runs = total_runs + ?, total_play_time = total_play_time + ?, " +
+            "best_score = GREATEST(best_score, ?), highest_level = GREATEST(highest_level, ?) WHERE player_id = ?";
+    // ON CONFLICT instead of catching the duplicate key: callers run inside a transaction, which a
+    // failed statement would abort on PostgreSQL
+    private static final String INSERT_EMPTY_SQL =
+            "INSERT INTO player_stats (player_id, total_runs, total_play_time, best_score, highest_level) VALUES (?, 0, 0, 0, 0) " +
+            "ON CONFLICT DO NOTHING";
+    // Runs archived out of the runs table count through archived_run_totals
+    private static final String RECOMPUTE_MAXIMA_SQL =
+            "UPDATE player_stats SET " +
+            "best_score = GREATEST(COALESCE((SELECT MAX(score) FROM runs WHERE player_id = ?), 0), " +
+            "COALESCE((SELECT a.best_score FROM archived_run_totals a WHERE a.player_id = ?), 0)), " +
+            "highest_level = GREATEST(COALESCE((SELECT MAX(level_reached) FROM runs WHERE player_id = ?), 0), " +
+            "COALESCE((SELECT a.highest_level FROM archived_run_totals a WHERE a.player_id = ?), 0)) " +
+            "WHERE player_id = ?";
+    private static final String REBUILD_INSERT_SQL =
+            "INSERT INTO player_stats (player_id, total_runs, total_play_time, best_score, highest_level) " +
+            "SELECT p.id, 0, 0, 0, 0 FROM players p WHERE p.id IN (:ids) " +
+            "AND NOT EXISTS (SELECT 1 FROM player_stats s WHERE s.player_id = p.id)";
+    private static final String REBUILD_UPDATE_SQL =
+            "UPDATE player_stats SET " +
+            "total_runs = (SELECT COUNT(*) FROM runs r WHERE r.player_id = player_stats.player_id) + " +
+            "COALESCE((SELECT a.total_runs FROM archived_run_totals a WHERE a.player_id = player_stats.player_id), 0), " +
+            "total_play_time = COALESCE((SELECT SUM(r.time_elapsed) FROM runs r WHERE r.player_id = player_stats.player_id), 0) + " +
+            "COALESCE((SELECT a.total_play_time FROM archived_run_totals a WHERE a.player_id = player_stats.player_id), 0), " +
+            "best_score = GREATEST(COALESCE((SELECT MAX(r.score) FROM runs r WHERE r.player_id = player_stats.player_id), 0), " +
+            "COALESCE((SELECT a.best_score FROM archived_run_totals a WHERE a.player_id = player_stats.player_id), 0)), " +
+            "highest_level = GREATEST(COALESCE((SELECT MAX(r.level_reached) FROM runs r WHERE r.player_id = player_stats.player_id), 0), " +
+            "COALESCE((SELECT a.highest_level FROM archived_run_totals a WHERE a.player_id = player_stats.player_id), 0)) " +
+            "WHERE player_id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PlayerStatsRepository playerStatsRepository;
+
+    public PlayerStatsService(JdbcTemplate jdbcTemplate,
+                              NamedParameterJdbcTemplate namedJdbcTemplate,
+                              PlayerStatsRepository playerStatsRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = namedJdbcTemplate;
+        this.playerStatsRepository = playerStatsRepository;
+    }
+
+    public Optional<PlayerStatsDto> find(UUID playerId) {
+        return playerStatsRepository.findById(playerId).map(PlayerStatsDto::new);
+    }
+
+    /**
+     * Count newly inserted runs; for a batch pass the totals and maxima of the batch
+     */
+    public void runsCreated(UUID playerId, int count, double playTime, int bestScore, int highestLevel) {
+        add(playerId, count, playTime, bestScore, highestLevel);
+    }
+
+    /**
+     * Apply an update of one run's values, given what was stored before and after
+     */
+    public void runChanged(RunChange change) {
+        add(change.playerId, 0, change.newTime - change.oldTime, change.newScore, change.newLevel);
+        if (change.lowersMaxima()) {
+            recomputeMaxima(change.playerId);
+        }
+    }
+
+    /**
+     * Apply many run updates at once (write-behind flushes)
+     */
+    public void runsChanged(List<RunChange> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(ADD_SQL, changes, changes.size(), (ps, change) -> {
+            ps.setLong(1, 0);
+            ps.setDouble(2, change.newTime - change.oldTime);
+            ps.setInt(3, change.newScore);
+            ps.setInt(4, change.newLevel);
+            ps.setObject(5, change.playerId);
+        });
+        int[] updated = counts.length > 0 ? counts[0] : new int[0];
+        for (int i = 0; i < changes.size(); i++) {
+            RunChange change = changes.get(i);
+            // Drivers may report SUCCESS_NO_INFO (-2) instead of a count; only 0 means the row is missing
+            if (i < updated.length && updated[i] == 0) {
+                ensureRow(change.playerId);
+                jdbcTemplate.update(ADD_SQL, 0L, change.newTime - change.oldTime, change.newScore, change.newLevel, change.playerId);
+            }
+            if (change.lowersMaxima()) {
+                recomputeMaxima(change.playerId);
+            }
+        }
+    }
+
+    /**
+     * Remove a deleted run from its player's totals
+     */
+    public void runDeleted(UUID playerId, double playTime) {
+        add(playerId, -1, -playTime, 0, 0);
+        recomputeMaxima(playerId);
+    }
+
+    public void playerDeleted(UUID playerId) {
+        jdbcTemplate.update("DELETE FROM player_stats WHERE player_id = ?", playerId);
+        jdbcTemplate.update("DELETE FROM archived_run_totals WHERE player_id = ?", playerId);
+    }
+
+    /**
+     * Recompute every player's row from the runs table and archived totals, walking players in primary-key
+     * order batchSize at a time so each statement touches a bounded set of rows.
+     * Returns the number of players processed.
+     */
+    public long rebuild(int batchSize) {
+        long processed = 0;
+        UUID after = new UUID(0L, 0L);
+        while (true) {
+            List<UUID> ids = jdbcTemplate.queryForList(
+                    "SELECT id FROM players WHERE id > ? ORDER BY id LIMIT ?", UUID.class, after, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+            namedJdbcTemplate.update(REBUILD_INSERT_SQL, params);
+            namedJdbcTemplate.update(REBUILD_UPDATE_SQL, params);
+            processed += ids.size();
+            after = ids.get(ids.size() - 1);
+            log.info("Rebuilt player stats for {} players", processed);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        return processed;
+    }
+
+    private void add(UUID playerId, long runs, double playTime, int score, int level) {
+        if (jdbcTemplate.update(ADD_SQL, runs, playTime, score, level, playerId) == 0) {
+            ensureRow(playerId);
+            jdbcTemplate.update(ADD_SQL, runs, playTime, score, level, playerId);
+        }
+    }
+
+    /**
+     * Create the empty row unless another request just did; the increment then applies to either
+     */
+    private void ensureRow(UUID playerId) {
+        jdbcTemplate.update(INSERT_EMPTY_SQL, playerId);
+    }
+
+    private void recomputeMaxima(UUID playerId) {
+        jdbcTemplate.update(RECOMPUTE_MAXIMA_SQL, playerId, playerId, playerId, playerId, playerId);
+    }
+
+    /**
+     * Stored values of one run before and after an update
+     */
+    public static final class RunChange {
+        private final UUID playerId;
+        private final double oldTime;
+        private final int oldScore;
+        private final int oldLevel;
+        private final double newTime;
+        private final int newScore;
+        private final int newLevel;
+
+        public RunChange(UUID playerId, Float oldTime, Integer oldScore, Integer oldLevel,
+                         Float newTime, Integer newScore, Integer newLevel) {
+            this.playerId = playerId;
+            this.oldTime = oldTime != null ? oldTime : 0.0;
+            this.oldScore = oldScore != null ? oldScore : 0;
+            this.oldLevel = oldLevel != null ? oldLevel : 0;
+            this.newTime = newTime != null ? newTime : 0.0;
+            this.newScore = newScore != null ? newScore : 0;
+            this.newLevel = newLevel != null ? newLevel : 0;
+        }
+
+        boolean lowersMaxima() {
+            return newScore < oldScore || newLevel < oldLevel;
+        }
+
+        public boolean isNoop() {
+            return oldTime == newTime && oldScore == newScore && oldLevel == newLevel;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.RunCursor;
+import com.echoshift.musyaffa.dto.RunResponse;
+import com.echoshift.musyaffa.repositories.RunRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Splits run history into the hot window served by the regular history endpoint and
+ * everything older: runs still in older partitions plus partitions that RunPartitionMaintenance
+ * has detached into gzip-compressed CSV files.
+ *
+ * Each file holds its rows sorted by player, one gzip member per player (concatenated members
+ * still read as one CSV), next to a {name}.idx of fixed-size records (player id, offset, length)
+ * in the same order. Reading a player's archived runs is a binary search per file plus one
+ * member decompressed, however large the archive grows.
+ */
+@Service
+public class RunArchive {
+
+    static final String FILE_SUFFIX = ".csv.gz";
+    static final String INDEX_SUFFIX = ".idx";
+    // Player id (16 bytes), offset (8) and length (4) of the player's gzip member
+    private static final int INDEX_RECORD_BYTES = 28;
+
+    // Also the CSV format of RunExportService
+    static final String CSV_HEADER = "id,player_id,time_elapsed,score,level_reached,created_at,ended_at";
+    private static final Pattern TABLE_NAME = Pattern.compile("[a-z0-9_]+");
+
+    // Same order as the SQL history queries; PostgreSQL compares uuids byte-wise, like their hex strings
+    private static final Comparator<RunResponse> HISTORY_ORDER =
+            Comparator.comparing((RunResponse run) -> run.getScore() != null ? run.getScore() : 0).reversed()
+                    .thenComparing(run -> run.getId().toString(), Comparator.reverseOrder());
+
+    private final RunRepository runRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Path directory;
+    private final int hotMonths;
+
+    public RunArchive(RunRepository runRepository,
+                      JdbcTemplate jdbcTemplate,
+                      PlatformTransactionManager transactionManager,
+                      @Value("${echoshift.runs.archive.directory:archive/runs}") String directory,
+                      @Value("${echoshift.runs.hot-months:3}") int hotMonths) {
+        this.runRepository = runRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.directory = Paths.get(directory);
+        this.hotMonths = hotMonths;
+    }
+
+    /**
+     * Runs created at or after this instant are hot (the current month and the hotMonths - 1 before it)
+     */
+    public LocalDateTime hotCutoff() {
+        return YearMonth.now().minusMonths(hotMonths - 1).atDay(1).atStartOfDay();
+    }
+
+    /**
+     * One page of a player's runs older than the hot window, from the database and the
+     * archive files merged in history order. Returns up to limit + 1 runs so callers can
+     * tell whether another page follows.
+     */
+    public List<RunResponse> coldHistoryPage(UUID playerId, RunCursor after, int limit) {
+        LocalDateTime cutoff = hotCutoff();
+        Limit pageLimit = Limit.of(limit + 1);
+        List<RunResponse> page = new ArrayList<>(after == null
+                ? runRepository.findColdHistoryPage(playerId, cutoff, pageLimit)
+                : runRepository.findColdHistoryPageAfter(playerId, cutoff, after.getScore(), after.getId(), pageLimit));
+        for (RunResponse run : readArchived(playerId)) {
+            if (after == null || HISTORY_ORDER.compare(run, new RunResponse(after.getId(), playerId, null, after.getScore(), null)) > 0) {
+                page.add(run);
+            }
+        }
+        page.sort(HISTORY_ORDER);
+        return page.size() > limit + 1 ? page.subList(0, limit + 1) : page;
+    }
+
+    /**
+     * Write every row of a (detached) runs partition to {name}.csv.gz and its index, returning
+     * the row count. Both files appear under their final names only once they are complete.
+     */
+    public long archiveTable(String table) {
+        if (!TABLE_NAME.matcher(table).matches()) {
+            throw new IllegalArgumentException("Unexpected table name: " + table);
+        }
+        try {
+            Files.createDirectories(directory);
+            Path target = directory.resolve(table + FILE_SUFFIX);
+            Path temporary = directory.resolve(table + FILE_SUFFIX + ".tmp");
+            Path targetIndex = directory.resolve(table + INDEX_SUFFIX);
+            Path temporaryIndex = directory.resolve(table + INDEX_SUFFIX + ".tmp");
+            long rows;
+            try (OutputStream data = new BufferedOutputStream(Files.newOutputStream(temporary));
+                 DataOutputStream index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporaryIndex)))) {
+                rows = stream(table, new MemberWriter(data, index));
+            }
+            // A rewrite (archived before, but not dropped) must never pair the new data with the old index
+            Files.deleteIfExists(targetIndex);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(temporaryIndex, targetIndex, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return rows;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive " + table, e);
+        }
+    }
+
+    private long stream(String table, MemberWriter writer) throws IOException {
+        // Inside a transaction the PostgreSQL driver honours the fetch size with a cursor,
+        // so the partition is never held in memory
+        JdbcTemplate cursor = new JdbcTemplate(jdbcTemplate.getDataSource());
+        cursor.setFetchSize(1000);
+        long[] rows = new long[1];
+        writer.member(null, CSV_HEADER + '\n');
+        readOnlyTransaction.executeWithoutResult(status -> cursor.query(
+                "SELECT id, player_id, time_elapsed, score, level_reached, created_at, ended_at FROM " + table +
+                " ORDER BY player_id, score DESC, id DESC",
+                resultSet -> {
+                    Timestamp endedAt = resultSet.getTimestamp("ended_at");
+                    UUID playerId = resultSet.getObject("player_id", UUID.class);
+                    String line = csvLine(resultSet.getString("id"), playerId,
+                            resultSet.getFloat("time_elapsed"), resultSet.getInt("score"), resultSet.getInt("level_reached"),
+                            resultSet.getTimestamp("created_at").toLocalDateTime(),
+                            endedAt != null ? endedAt.toLocalDateTime() : null);
+                    try {
+                        writer.line(playerId, line);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rows[0]++;
+                }));
+        writer.finish();
+        return rows[0];
+    }
+
+    static String csvLine(Object id, Object playerId, float timeElapsed, int score, int levelReached,
+                          LocalDateTime createdAt, LocalDateTime endedAt) {
+        return String.valueOf(id) + ',' + playerId + ',' + timeElapsed + ',' + score + ',' + levelReached + ','
+                + (createdAt != null ? createdAt : "") + ',' + (endedAt != null ? endedAt : "") + '\n';
+    }
+
+    private List<RunResponse> readArchived(UUID playerId) {
+        List<RunResponse> runs = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return runs;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Path index = directory.resolve(name.substring(0, name.length() - FILE_SUFFIX.length()) + INDEX_SUFFIX);
+                if (Files.exists(index)) {
+                    readIndexed(file, index, playerId, runs);
+                } else {
+                    readScanning(file, playerId, runs);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read archived runs", e);
+        }
+        return runs;
+    }
+
+    private void readIndexed(Path file, Path index, UUID playerId, List<RunResponse> runs) throws IOException {
+        long offset = -1;
+        int length = 0;
+        try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+            ByteBuffer record = ByteBuffer.allocate(INDEX_RECORD_BYTES);
+            long low = 0;
+            long high = channel.size() / INDEX_RECORD_BYTES - 1;
+            while (low <= high && offset < 0) {
+                long middle = (low + high) >>> 1;
+                record.clear();
+                readFully(channel, record, middle * INDEX_RECORD_BYTES);
+                record.flip();
+                int comparison = compareUnsigned(new UUID(record.getLong(), record.getLong()), playerId);
+                if (comparison == 0) {
+                    offset = record.getLong();
+                    length = record.getInt();
+                } else if (comparison < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+        }
+        if (offset < 0) {
+            return;
+        }
+        ByteBuffer member = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readFully(channel, member, offset);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(member.array())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                runs.add(parse(line, playerId));
+            }
+        }
+    }
+
+    // Files written before the index existed: one sequential pass
+    private void readScanning(Path file, UUID playerId, List<RunResponse> runs) throws IOException {
+        String player = playerId.toString();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // player_id follows the 36-character run id and a comma
+                if (line.regionMatches(37, player, 0, 36)) {
+                    runs.add(parse(line, playerId));
+                }
+            }
+        }
+    }
+
+    private static RunResponse parse(String line, UUID playerId) {
+        String[] fields = line.split(",", -1);
+        return new RunResponse(UUID.fromString(fields[0]), playerId,
+                Float.parseFloat(fields[2]), Integer.parseInt(fields[3]), Integer.parseInt(fields[4]));
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Archive file is truncated");
+            }
+        }
+    }
+
+    // PostgreSQL orders uuids byte-wise, i.e. as unsigned 128-bit numbers
+    static int compareUnsigned(UUID a, UUID b) {
+        int comparison = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return comparison != 0 ? comparison : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    /**
+     * Writes one gzip member per player and an index record for each
+     */
+    private static final class MemberWriter {
+        private final OutputStream data;
+        private final DataOutputStream index;
+        private final StringBuilder lines = new StringBuilder();
+        private UUID player;
+        private long offset;
+
+        private MemberWriter(OutputStream data, DataOutputStream index) {
+            this.data = data;
+            this.index = index;
+        }
+
+        void line(UUID playerId, String line) throws IOException {
+            if (player != null && !player.equals(playerId)) {
+                if (compareUnsigned(player, playerId) > 0) {
+                    throw new IllegalStateException("Rows are not ordered by player_id");
+                }
+                member(player, lines);
+                lines.setLength(0);
+            }
+            player = playerId;
+            lines.append(line);
+        }
+
+        void finish() throws IOException {
+            if (player != null) {
+                member(player, lines);
+            }
+        }
+
+        void member(UUID playerId, CharSequence content) throws IOException {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(compressed), StandardCharsets.UTF_8)) {
+                writer.append(content);
+            }
+            compressed.writeTo(data);
+            if (playerId != null) {
+                index.writeLong(playerId.getMostSignificantBits());
+                index.writeLong(playerId.getLeastSignificantBits());
+                index.writeLong(offset);
+                index.writeInt(compressed.size());
+            }
+            offset += compressed.size();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.datasource.ReplicaRouting;
+import com.echoshift.musyaffa.models.Run;
+import com.echoshift.musyaffa.repositories.RunRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Writes run history to an output stream as NDJSON or CSV (the RunArchive file format).
+ * Rows come from a forward-only query read RunRepository.EXPORT_FETCH_SIZE at a time, and each
+ * Run is detached once written, so memory stays flat however many runs are exported.
+ */
+@Service
+public class RunExportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private final RunRepository runRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public RunExportService(RunRepository runRepository,
+                            EntityManager entityManager,
+                            ObjectMapper objectMapper,
+                            PlatformTransactionManager transactionManager) {
+        this.runRepository = runRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Export the runs of one player (oldest first), or every run when playerId is null.
+     * Returns the number of runs written; the output stream is left open.
+     */
+    public long export(UUID playerId, Format format, OutputStream output) {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        // The heaviest read there is, and it tolerates replica lag. The body is written on an
+        // async thread, outside the request's ReadYourWritesFilter scope.
+        try (ReplicaRouting.Scope scope = ReplicaRouting.allowReplicas()) {
+            return exportRows(playerId, format, writer);
+        }
+    }
+
+    private long exportRows(UUID playerId, Format format, Writer writer) {
+        // The stream holds a database cursor, which only stays open inside the transaction
+        Long written = readOnlyTransaction.execute(status -> {
+            try (Stream<Run> runs = playerId != null ? runRepository.streamByPlayerId(playerId) : runRepository.streamAll()) {
+                if (format == Format.CSV) {
+                    writer.write(RunArchive.CSV_HEADER);
+                    writer.write('\n');
+                }
+                long rows = 0;
+                for (Run run : (Iterable<Run>) runs::iterator) {
+                    writer.write(format == Format.CSV ? csvLine(run) : jsonLine(run));
+                    entityManager.detach(run);
+                    if (++rows % RunRepository.EXPORT_FETCH_SIZE == 0) {
+                        // Hand each batch to the client rather than buffering the response
+                        writer.flush();
+                    }
+                }
+                writer.flush();
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write run export", e);
+            }
+        });
+        return written != null ? written : 0;
+    }
+
+    private static String csvLine(Run run) {
+        return RunArchive.csvLine(run.getId(), run.getPlayerId(),
+                run.getTimeElapsed() != null ? run.getTimeElapsed() : 0f,
+                run.getScore() != null ? run.getScore() : 0,
+                run.getLevelReached() != null ? run.getLevelReached() : 0,
+                run.getCreatedAt(), run.getEndedAt());
+    }
+
+    private String jsonLine(Run run) throws IOException {
+        StringWriter line = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(line)) {
+            generator.writeStartObject();
+            generator.writeStringField("id", String.valueOf(run.getId()));
+            generator.writeStringField("playerId", String.valueOf(run.getPlayerId()));
+            generator.writeObjectField("timeElapsed", run.getTimeElapsed());
+            generator.writeObjectField("score", run.getScore());
+            generator.writeObjectField("levelReached", run.getLevelReached());
+            generator.writeStringField("createdAt", run.getCreatedAt() != null ? run.getCreatedAt().toString() : null);
+            generator.writeStringField("endedAt", run.getEndedAt() != null ? run.getEndedAt().toString() : null);
+            generator.writeEndObject();
+        }
+        return line.append('\n').toString();
+    }
+}
@@ -0,0 +1,65 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.datasource.ReadYourWrites;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-player version of the run history, used as the ETag of GET /api/runs/{playerId} so an
+ * unchanged history is answered with 304 from memory, without a query.
+ *
+ * Every write to a player's runs must call changed() once it has committed. Versions come from
+ * one process-wide counter and the ETag carries the process start time, so a player evicted
+ * from the cache, or a restart, can never bring back an ETag that was handed out before.
+ * Versions are per process, like the principal cache and the leaderboard index.
+ */
+@Service
+public class RunHistoryVersions {
+
+    private static final DateTimeFormatter CUTOFF_MONTH = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong counter = new AtomicLong();
+    private final Cache<UUID, Long> versions;
+    private final ReadYourWrites readYourWrites;
+
+    public RunHistoryVersions(MeterRegistry meterRegistry,
+                              ReadYourWrites readYourWrites,
+                              @Value("${echoshift.runs.history-etag.maximum-size:100000}") long maximumSize) {
+        this.readYourWrites = readYourWrites;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, versions, "runHistoryVersions");
+    }
+
+    /**
+     * ETag of a player's hot history as of now. Read it before querying, so a write racing
+     * with the query can only make the ETag older than the body, never newer.
+     * The hot window and the Accept header (JSON or CBOR body) are part of it. It is weak
+     * because Tomcat does not gzip responses with strong ETags; If-None-Match compares weakly.
+     */
+    public String etag(UUID playerId, LocalDateTime hotCutoff, String accept) {
+        long version = versions.get(playerId, id -> counter.incrementAndGet());
+        return "W/\"" + epoch + "-" + Long.toString(version, 36) + "-" + hotCutoff.format(CUTOFF_MONTH)
+                + "-" + Integer.toHexString(accept != null ? accept.hashCode() : 0) + "\"";
+    }
+
+    /**
+     * The player's runs changed (committed): every ETag handed out so far is stale
+     */
+    public void changed(UUID playerId) {
+        versions.put(playerId, counter.incrementAndGet());
+        readYourWrites.playerChanged(playerId);
+    }
+}
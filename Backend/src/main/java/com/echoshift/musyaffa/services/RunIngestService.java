@@ -0,0 +1,190 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.RunBatchResult;
+import com.echoshift.musyaffa.dto.RunRequest;
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.models.Run;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Bulk insertion of runs uploaded after offline play.
+ * Runs are persisted in chunks of the Hibernate JDBC batch size, each chunk in its own
+ * transaction, and the persistence context is cleared between chunks so memory stays flat.
+ * UUID ids are generated in memory, so inserts are not forced out one by one.
+ * Player stats are bumped once per chunk, inside the chunk's transaction; the history
+ * version once the chunk has committed.
+ */
+@Service
+public class RunIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(RunIngestService.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final LeaderboardIndex leaderboardIndex;
+    private final PlayerStatsService playerStatsService;
+    private final RunHistoryVersions runHistoryVersions;
+    private final int chunkSize;
+    private final int maxItems;
+
+    public RunIngestService(PlatformTransactionManager transactionManager,
+                            LeaderboardIndex leaderboardIndex,
+                            PlayerStatsService playerStatsService,
+                            RunHistoryVersions runHistoryVersions,
+                            @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int chunkSize,
+                            @Value("${echoshift.runs.batch.max-items:10000}") int maxItems) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.leaderboardIndex = leaderboardIndex;
+        this.playerStatsService = playerStatsService;
+        this.runHistoryVersions = runHistoryVersions;
+        this.chunkSize = chunkSize;
+        this.maxItems = maxItems;
+    }
+
+    public int getMaxItems() {
+        return maxItems;
+    }
+
+    /**
+     * Insert every run for the principal, returning one result per input item in order.
+     * Items beyond the configured maximum are rejected without being read further.
+     * If an item cannot be read (e.g. a malformed NDJSON line), the runs read before it are
+     * still written and the last result reports the failure with its line; nothing after it is read.
+     */
+    public List<RunBatchResult> ingest(SessionPrincipal principal, Iterator<RunRequest> requests) {
+        List<RunBatchResult> results = new ArrayList<>();
+        List<Run> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkIndexes = new ArrayList<>(chunkSize);
+        int index = 0;
+
+        while (true) {
+            RunRequest request;
+            try {
+                if (!requests.hasNext()) {
+                    break;
+                }
+                if (index >= maxItems) {
+                    results.add(RunBatchResult.failed(index, "Batch exceeds the maximum of " + maxItems + " runs"));
+                    break;
+                }
+                request = requests.next();
+            } catch (RuntimeException e) {
+                log.warn("Stopped reading run batch at item {}: {}", index, e.getMessage());
+                results.add(RunBatchResult.failed(index, unreadable(e)));
+                break;
+            }
+            String problem = validate(request);
+            if (problem != null) {
+                results.add(RunBatchResult.failed(index, problem));
+            } else {
+                chunk.add(toRun(principal, request));
+                chunkIndexes.add(index);
+                // Reserve the slot; filled in once the chunk is written
+                results.add(null);
+            }
+            index++;
+
+            if (chunk.size() == chunkSize) {
+                writeChunk(principal, chunk, chunkIndexes, results);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(principal, chunk, chunkIndexes, results);
+        }
+        return results;
+    }
+
+    private void writeChunk(SessionPrincipal principal, List<Run> chunk, List<Integer> chunkIndexes, List<RunBatchResult> results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Run run : chunk) {
+                    entityManager.persist(run);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                recordStats(principal, chunk);
+            });
+            runHistoryVersions.changed(principal.getPlayerId());
+            Run best = null;
+            for (int i = 0; i < chunk.size(); i++) {
+                Run run = chunk.get(i);
+                results.set(chunkIndexes.get(i), RunBatchResult.created(chunkIndexes.get(i), run.getId()));
+                if (best == null || run.getScore() > best.getScore()) {
+                    best = run;
+                }
+            }
+            if (best != null) {
+                leaderboardIndex.recordRun(principal.getPlayerId(), principal.getUsername(), best.getId(), best.getScore());
+            }
+        } catch (Exception e) {
+            log.warn("Error inserting run batch", e);
+            for (Integer chunkIndex : chunkIndexes) {
+                results.set(chunkIndex, RunBatchResult.failed(chunkIndex, "Error creating run: " + e.getMessage()));
+            }
+        }
+        chunk.clear();
+        chunkIndexes.clear();
+    }
+
+    private static String unreadable(RuntimeException e) {
+        // Stream readers wrap the parser's exception, which knows where the input went wrong
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonProcessingException jsonException && jsonException.getLocation() != null) {
+                return "Could not read run at line " + jsonException.getLocation().getLineNr() + ": "
+                        + jsonException.getOriginalMessage() + "; nothing after it was read";
+            }
+        }
+        return "Could not read run: " + e.getMessage() + "; nothing after it was read";
+    }
+
+    private void recordStats(SessionPrincipal principal, List<Run> chunk) {
+        double playTime = 0;
+        int bestScore = 0;
+        int highestLevel = 0;
+        for (Run run : chunk) {
+            playTime += run.getTimeElapsed();
+            bestScore = Math.max(bestScore, run.getScore());
+            highestLevel = Math.max(highestLevel, run.getLevelReached());
+        }
+        playerStatsService.runsCreated(principal.getPlayerId(), chunk.size(), playTime, bestScore, highestLevel);
+    }
+
+    private static String validate(RunRequest request) {
+        if (request == null) {
+            return "Run cannot be null";
+        }
+        if (request.getScore() != null && request.getScore() < 0) {
+            return "Score cannot be negative";
+        }
+        if (request.getTimeElapsed() != null && request.getTimeElapsed() < 0) {
+            return "Time elapsed cannot be negative";
+        }
+        if (request.getLevelReached() != null && request.getLevelReached() < 1) {
+            return "Level reached must be at least 1";
+        }
+        return null;
+    }
+
+    private static Run toRun(SessionPrincipal principal, RunRequest request) {
+        Run run = new Run();
+        run.setPlayerId(principal.getPlayerId());
+        run.setTimeElapsed(request.getTimeElapsed() != null ? request.getTimeElapsed() : 0.0f);
+        run.setScore(request.getScore() != null ? request.getScore() : 0);
+        run.setLevelReached(request.getLevelReached() != null ? request.getLevelReached() : 1);
+        return run;
+    }
+}
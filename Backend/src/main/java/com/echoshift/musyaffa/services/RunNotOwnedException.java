@@ -0,0 +1,11 @@
+package com.echoshift.musyaffa.services;
+
+/**
+ * Thrown when a session tries to change a run that belongs to another player.
+ */
+public class RunNotOwnedException extends RuntimeException {
+
+    public RunNotOwnedException(String message) {
+        super(message);
+    }
+}
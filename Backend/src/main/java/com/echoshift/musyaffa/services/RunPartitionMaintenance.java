@@ -0,0 +1,225 @@
+package com.echoshift.musyaffa.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps the monthly range partitions of runs (PostgreSQL only, see V4__partition_runs.sql):
+ * creates the partitions of the coming months ahead of time, and detaches partitions that
+ * ended more than archive.after-months ago, writes them to RunArchive and drops them, so the
+ * live table, its indexes and vacuum work stay bounded by the retention window. The per-player
+ * totals and best run of a dropped partition are folded into archived_run_totals in the same
+ * transaction as the DROP, so player stats and the leaderboard keep counting archived runs.
+ *
+ * A partition that was detached but not dropped (e.g. the process stopped half way) is picked
+ * up again on the next cycle. Rows that landed in the DEFAULT partition because their month had
+ * no partition yet are moved into the new partition as it is created; failed cycles are counted
+ * in echoshift.runs.partitions.failures.
+ */
+@Service
+@ConditionalOnProperty(name = "echoshift.runs.partitions.enabled", havingValue = "true")
+public class RunPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(RunPartitionMaintenance.class);
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern UPPER_BOUND = Pattern.compile("TO \\('([^']+)'\\)");
+
+    private static final String PARTITIONS_SQL =
+            "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = 'runs'::regclass";
+    // Former partitions: same naming, no longer attached to runs
+    private static final String DETACHED_SQL =
+            "SELECT c.relname FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+            "WHERE n.nspname = current_schema() AND c.relkind = 'r' " +
+            "AND (c.relname LIKE 'runs\\_p%' OR c.relname = 'runs_legacy') " +
+            "AND NOT EXISTS (SELECT 1 FROM pg_inherits i WHERE i.inhrelid = c.oid)";
+    private static final String FOLD_TOTALS_SQL =
+            "INSERT INTO archived_run_totals (player_id, total_runs, total_play_time, best_score, best_run_id, highest_level) " +
+            "SELECT player_id, COUNT(*), COALESCE(SUM(time_elapsed), 0), COALESCE(MAX(score), 0), " +
+            "(array_agg(id ORDER BY COALESCE(score, 0) DESC, id DESC))[1], COALESCE(MAX(level_reached), 0) " +
+            "FROM %s GROUP BY player_id " +
+            "ON CONFLICT (player_id) DO UPDATE SET " +
+            "total_runs = archived_run_totals.total_runs + EXCLUDED.total_runs, " +
+            "total_play_time = archived_run_totals.total_play_time + EXCLUDED.total_play_time, " +
+            "best_run_id = CASE WHEN EXCLUDED.best_score > archived_run_totals.best_score " +
+            "THEN EXCLUDED.best_run_id ELSE archived_run_totals.best_run_id END, " +
+            "best_score = GREATEST(archived_run_totals.best_score, EXCLUDED.best_score), " +
+            "highest_level = GREATEST(archived_run_totals.highest_level, EXCLUDED.highest_level)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RunArchive runArchive;
+    private final LeaderboardIndex leaderboardIndex;
+    private final TransactionTemplate transaction;
+    private final int premakeMonths;
+    private final int archiveAfterMonths;
+    private final Counter partitionsArchived;
+    private final Counter rowsArchived;
+    private final Counter failures;
+
+    public RunPartitionMaintenance(JdbcTemplate jdbcTemplate,
+                                   RunArchive runArchive,
+                                   LeaderboardIndex leaderboardIndex,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${echoshift.runs.partitions.premake-months:2}") int premakeMonths,
+                                   @Value("${echoshift.runs.archive.after-months:12}") int archiveAfterMonths) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.runArchive = runArchive;
+        this.leaderboardIndex = leaderboardIndex;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.premakeMonths = premakeMonths;
+        this.archiveAfterMonths = archiveAfterMonths;
+        this.partitionsArchived = Counter.builder("echoshift.runs.archive.partitions")
+                .description("Runs partitions detached and archived to files")
+                .register(meterRegistry);
+        this.rowsArchived = Counter.builder("echoshift.runs.archive.rows")
+                .description("Runs written to archive files")
+                .register(meterRegistry);
+        this.failures = Counter.builder("echoshift.runs.partitions.failures")
+                .description("Partition maintenance cycles that failed")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${echoshift.runs.partitions.cron:0 15 3 * * *}")
+    public void maintain() {
+        try {
+            createUpcomingPartitions();
+            archiveExpiredPartitions();
+        } catch (Exception e) {
+            failures.increment();
+            log.error("Runs partition maintenance failed; inserts past the last partition go to the DEFAULT partition", e);
+        }
+    }
+
+    void createUpcomingPartitions() {
+        // Partitions are contiguous, so anything below the highest upper bound is already covered
+        LocalDateTime coveredUntil = null;
+        String defaultPartition = null;
+        for (Partition partition : partitions()) {
+            if (partition.isDefault) {
+                defaultPartition = partition.name;
+            }
+            if (partition.upperBound != null && (coveredUntil == null || partition.upperBound.isAfter(coveredUntil))) {
+                coveredUntil = partition.upperBound;
+            }
+        }
+        YearMonth month = YearMonth.now();
+        for (int i = 0; i <= premakeMonths; i++, month = month.plusMonths(1)) {
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            if (coveredUntil != null && from.isBefore(coveredUntil)) {
+                continue;
+            }
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            String name = "runs_p" + month.format(PARTITION_SUFFIX);
+            if (defaultPartition != null && Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT EXISTS (SELECT 1 FROM " + defaultPartition + " WHERE created_at >= ? AND created_at < ?)",
+                    Boolean.class, from, to))) {
+                moveFromDefault(defaultPartition, name, from, to);
+            } else {
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF runs FOR VALUES FROM ('"
+                        + from + "') TO ('" + to + "')");
+            }
+            log.info("Created runs partition {}", name);
+        }
+    }
+
+    /**
+     * CREATE TABLE ... PARTITION OF fails while the DEFAULT partition holds rows of the new range,
+     * so build the partition beside runs, move those rows into it and attach it, all or nothing
+     */
+    private void moveFromDefault(String defaultPartition, String name, LocalDateTime from, LocalDateTime to) {
+        transaction.executeWithoutResult(status -> {
+            jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE runs INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            int moved = jdbcTemplate.update("WITH moved AS (DELETE FROM " + defaultPartition
+                    + " WHERE created_at >= ? AND created_at < ? RETURNING *) INSERT INTO " + name
+                    + " SELECT * FROM moved", from, to);
+            jdbcTemplate.execute("ALTER TABLE runs ATTACH PARTITION " + name + " FOR VALUES FROM ('"
+                    + from + "') TO ('" + to + "')");
+            log.warn("Moved {} runs from {} into {}", moved, defaultPartition, name);
+        });
+    }
+
+    void archiveExpiredPartitions() {
+        LocalDateTime cutoff = YearMonth.now().minusMonths(archiveAfterMonths).atDay(1).atStartOfDay();
+        for (Partition partition : partitions()) {
+            if (partition.upperBound != null && !partition.upperBound.isAfter(cutoff)) {
+                jdbcTemplate.execute("ALTER TABLE runs DETACH PARTITION " + partition.name);
+                log.info("Detached runs partition {}", partition.name);
+            }
+        }
+        boolean archived = false;
+        for (String table : jdbcTemplate.queryForList(DETACHED_SQL, String.class)) {
+            archived |= archive(table);
+        }
+        if (archived) {
+            leaderboardIndex.reloadArchived();
+        }
+    }
+
+    private boolean archive(String table) {
+        long written = runArchive.archiveTable(table);
+        Long stored = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        if (stored == null || stored != written) {
+            log.error("Archive of {} has {} rows but the table has {}; keeping the table", table, written, stored);
+            return false;
+        }
+        // Either the totals move over and the rows go, or neither
+        transaction.executeWithoutResult(status -> {
+            jdbcTemplate.update(String.format(FOLD_TOTALS_SQL, table));
+            jdbcTemplate.execute("DROP TABLE " + table);
+        });
+        partitionsArchived.increment();
+        rowsArchived.increment(written);
+        log.info("Archived and dropped {} ({} runs)", table, written);
+        return true;
+    }
+
+    private List<Partition> partitions() {
+        List<Partition> partitions = new ArrayList<>();
+        jdbcTemplate.query(PARTITIONS_SQL, resultSet -> {
+            // The default partition has no bound; range bounds read FROM (...) TO ('...')
+            String bound = resultSet.getString(2);
+            Matcher matcher = UPPER_BOUND.matcher(bound);
+            LocalDateTime upperBound = matcher.find() ? LocalDateTime.parse(matcher.group(1).replace(' ', 'T')) : null;
+            partitions.add(new Partition(resultSet.getString(1), upperBound, "DEFAULT".equals(bound)));
+        });
+        return partitions;
+    }
+
+    private static final class Partition {
+        private final String name;
+        private final LocalDateTime upperBound;
+        private final boolean isDefault;
+
+        private Partition(String name, LocalDateTime upperBound, boolean isDefault) {
+            this.name = name;
+            this.upperBound = upperBound;
+            this.isDefault = isDefault;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.RunRequest;
+import com.echoshift.musyaffa.dto.RunResponse;
+import com.echoshift.musyaffa.repositories.RunRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for in-progress run updates.
+ * Keeps only the latest score/timeElapsed/levelReached per run and writes the
+ * coalesced state in JDBC batches, so a burst of PUTs costs one UPDATE per flush.
+ * Each entry also remembers the values last written, so player_stats receives the
+ * net change of a flush in the same transaction.
+ * History pages are ordered by the stored score, so a flush also moves the history version.
+ *
+ * Writes of a run are serialized by a striped per-run lock: the scheduled flush holds the
+ * locks of a batch while it writes it, and flush(UUID) and discard take the same lock, so
+ * once either returns no older buffered state of that run can still reach the database.
+ */
+@Service
+public class RunUpdateBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(RunUpdateBuffer.class);
+
+    private static final String UPDATE_SQL =
+            "UPDATE runs SET score = ?, time_elapsed = ?, level_reached = ? WHERE id = ?";
+    private static final int LOCK_STRIPES = 256;
+
+    private final RunRepository runRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PlayerStatsService playerStatsService;
+    private final RunHistoryVersions runHistoryVersions;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Counter updatesAbsorbed;
+    private final Counter rowsWritten;
+    private final Map<UUID, PendingRun> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public RunUpdateBuffer(RunRepository runRepository,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           PlayerStatsService playerStatsService,
+                           RunHistoryVersions runHistoryVersions,
+                           MeterRegistry meterRegistry,
+                           @Value("${echoshift.runs.write-behind.enabled:false}") boolean enabled,
+                           @Value("${echoshift.runs.write-behind.batch-size:100}") int batchSize) {
+        this.runRepository = runRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.playerStatsService = playerStatsService;
+        this.runHistoryVersions = runHistoryVersions;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.updatesAbsorbed = Counter.builder("echoshift.runs.write_behind.updates")
+                .description("Run updates accepted into the write-behind buffer")
+                .register(meterRegistry);
+        this.rowsWritten = Counter.builder("echoshift.runs.write_behind.rows")
+                .description("Coalesced run rows written to the database")
+                .register(meterRegistry);
+        meterRegistry.gauge("echoshift.runs.write_behind.pending", pending, Map::size);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Merge an update by the given player into the buffered state of a run.
+     * Returns empty if the run does not exist; throws RunNotOwnedException, leaving the
+     * buffered state untouched, if it belongs to another player.
+     */
+    public Optional<RunResponse> update(UUID runId, UUID playerId, RunRequest updateData) {
+        // Merge into a buffered entry without locking; if a flush detaches it in the meantime
+        // the merge yields null and the update starts over from the database
+        PendingRun merged = pending.computeIfPresent(runId, (id, current) -> mergeOwned(current, playerId, updateData));
+        if (merged == null) {
+            ReentrantLock lock = lockFor(runId);
+            lock.lock();
+            try {
+                // Holding the run's lock, no flush can write it between the load and the merge,
+                // so the loaded values are what the database holds
+                merged = pending.computeIfPresent(runId, (id, current) -> mergeOwned(current, playerId, updateData));
+                if (merged == null) {
+                    Optional<PendingRun> fromDb = runRepository.findById(runId).map(PendingRun::new);
+                    if (!fromDb.isPresent()) {
+                        return Optional.empty();
+                    }
+                    PendingRun base = fromDb.get();
+                    merged = pending.compute(runId, (id, current) -> mergeOwned(current != null ? current : base, playerId, updateData));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        updatesAbsorbed.increment();
+        return Optional.of(merged.toResponse());
+    }
+
+    private static PendingRun mergeOwned(PendingRun state, UUID playerId, RunRequest updateData) {
+        if (!state.playerId.equals(playerId)) {
+            throw new RunNotOwnedException("You can only update your own runs");
+        }
+        return state.merge(updateData);
+    }
+
+    /**
+     * Buffered state of a run that has not been written yet, if any
+     */
+    public Optional<RunResponse> pendingState(UUID runId) {
+        PendingRun current = pending.get(runId);
+        return current != null ? Optional.of(current.toResponse()) : Optional.empty();
+    }
+
+    /**
+     * Write the buffered state of a single run immediately (used when a run ends)
+     */
+    public void flush(UUID runId) {
+        ReentrantLock lock = lockFor(runId);
+        lock.lock();
+        try {
+            PendingRun current = pending.get(runId);
+            if (current != null) {
+                writeAndDetach(List.of(current));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop buffered state of a run that is being deleted, waiting for a write of it in progress
+     */
+    public void discard(UUID runId) {
+        ReentrantLock lock = lockFor(runId);
+        lock.lock();
+        try {
+            pending.remove(runId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${echoshift.runs.write-behind.flush-interval-ms:2000}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<UUID> ids = new ArrayList<>(pending.keySet());
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<UUID> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            try {
+                flushBatch(batch);
+            } catch (Exception e) {
+                log.error("Error flushing buffered run updates", e);
+            }
+        }
+    }
+
+    /**
+     * Write the current state of the given runs holding their locks, taken in stripe order
+     * so concurrent batches cannot deadlock
+     */
+    private void flushBatch(List<UUID> ids) {
+        Set<Integer> stripes = new TreeSet<>();
+        for (UUID id : ids) {
+            stripes.add(stripe(id));
+        }
+        List<ReentrantLock> held = new ArrayList<>(stripes.size());
+        try {
+            for (int stripe : stripes) {
+                locks[stripe].lock();
+                held.add(locks[stripe]);
+            }
+            // Entries written by flush(UUID) or dropped by discard since the ids were listed are gone
+            List<PendingRun> runs = new ArrayList<>(ids.size());
+            for (UUID id : ids) {
+                PendingRun current = pending.get(id);
+                if (current != null) {
+                    runs.add(current);
+                }
+            }
+            if (!runs.isEmpty()) {
+                writeAndDetach(runs);
+            }
+        } finally {
+            for (ReentrantLock lock : held) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Write the runs (callers hold their locks) and drop the entries that were not updated
+     * again meanwhile; those that were now build on the values just written
+     */
+    private void writeAndDetach(List<PendingRun> runs) {
+        write(runs);
+        for (PendingRun run : runs) {
+            pending.computeIfPresent(run.id, (id, current) -> current == run ? null : current.writtenAs(run));
+        }
+    }
+
+    private void write(List<PendingRun> runs) {
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] updated = jdbcTemplate.batchUpdate(UPDATE_SQL, runs, runs.size(), (ps, run) -> {
+                ps.setInt(1, run.score);
+                ps.setFloat(2, run.timeElapsed);
+                ps.setInt(3, run.levelReached);
+                ps.setObject(4, run.id);
+            })[0];
+            // A run deleted since it was buffered matches no row and must not change its player's stats
+            // (drivers may report SUCCESS_NO_INFO, -2, instead of a count; only 0 means no row)
+            List<PlayerStatsService.RunChange> changes = new ArrayList<>(runs.size());
+            for (int i = 0; i < runs.size(); i++) {
+                PlayerStatsService.RunChange change = runs.get(i).change();
+                boolean matched = i >= updated.length || updated[i] != 0;
+                if (matched && !change.isNoop()) {
+                    changes.add(change);
+                }
+            }
+            playerStatsService.runsChanged(changes);
+        });
+        rowsWritten.increment(runs.size());
+        Set<UUID> players = new HashSet<>();
+        for (PendingRun run : runs) {
+            if (players.add(run.playerId)) {
+                runHistoryVersions.changed(run.playerId);
+            }
+        }
+    }
+
+    private ReentrantLock lockFor(UUID runId) {
+        return locks[stripe(runId)];
+    }
+
+    private static int stripe(UUID runId) {
+        return Math.floorMod(runId.hashCode(), LOCK_STRIPES);
+    }
+
+    /**
+     * Immutable snapshot of a run; every merge produces a new instance so flushes
+     * can detect concurrent updates by identity. The stored* fields hold the values
+     * currently in the database.
+     */
+    private static final class PendingRun {
+        private final UUID id;
+        private final UUID playerId;
+        private final float timeElapsed;
+        private final int score;
+        private final int levelReached;
+        private final Float storedTimeElapsed;
+        private final Integer storedScore;
+        private final Integer storedLevelReached;
+
+        private PendingRun(com.echoshift.musyaffa.models.Run run) {
+            this(run.getId(), run.getPlayerId(),
+                    run.getTimeElapsed() != null ? run.getTimeElapsed() : 0.0f,
+                    run.getScore() != null ? run.getScore() : 0,
+                    run.getLevelReached() != null ? run.getLevelReached() : 1,
+                    run.getTimeElapsed(), run.getScore(), run.getLevelReached());
+        }
+
+        private PendingRun(UUID id, UUID playerId, float timeElapsed, int score, int levelReached,
+                           Float storedTimeElapsed, Integer storedScore, Integer storedLevelReached) {
+            this.id = id;
+            this.playerId = playerId;
+            this.timeElapsed = timeElapsed;
+            this.score = score;
+            this.levelReached = levelReached;
+            this.storedTimeElapsed = storedTimeElapsed;
+            this.storedScore = storedScore;
+            this.storedLevelReached = storedLevelReached;
+        }
+
+        private PendingRun merge(RunRequest updateData) {
+            return new PendingRun(id, playerId,
+                    updateData.getTimeElapsed() != null ? updateData.getTimeElapsed() : timeElapsed,
+                    updateData.getScore() != null ? updateData.getScore() : score,
+                    updateData.getLevelReached() != null ? updateData.getLevelReached() : levelReached,
+                    storedTimeElapsed, storedScore, storedLevelReached);
+        }
+
+        /**
+         * This state on top of what the given snapshot has just written
+         */
+        private PendingRun writtenAs(PendingRun written) {
+            return new PendingRun(id, playerId, timeElapsed, score, levelReached,
+                    written.timeElapsed, written.score, written.levelReached);
+        }
+
+        private PlayerStatsService.RunChange change() {
+            return new PlayerStatsService.RunChange(playerId, storedTimeElapsed, storedScore, storedLevelReached,
+                    timeElapsed, score, levelReached);
+        }
+
+        private RunResponse toResponse() {
+            return new RunResponse(id, playerId, timeElapsed, score, levelReached);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.repositories.PlayerSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Incrementally deletes expired and inactive player_sessions rows.
+ * Each cycle walks the table in primary-key order, deleting small batches in their own
+ * short transactions, and stops once its time budget is spent; the next cycle resumes
+ * after the last id seen, so no single statement ever locks a large part of the table.
+ *
+ * With signed tokens enabled, inactive rows are what rebuilds the revocation list after
+ * a restart, so they are kept until the session would have expired anyway.
+ */
+@Service
+@ConditionalOnProperty(name = "echoshift.session.reaper.enabled", havingValue = "true", matchIfMissing = true)
+public class SessionReaper {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionReaper.class);
+
+    private static final UUID FIRST_ID = new UUID(0L, 0L);
+
+    private final PlayerSessionRepository playerSessionRepository;
+    private final SessionService sessionService;
+    private final boolean keepInactiveUntilExpiry;
+    private final int batchSize;
+    private final long timeBudgetNanos;
+    private final Counter purged;
+    private final Counter budgetExhausted;
+    private final Timer cycleTimer;
+    private UUID resumeAfter = FIRST_ID;
+
+    public SessionReaper(PlayerSessionRepository playerSessionRepository,
+                         SessionService sessionService,
+                         SignedSessionTokens signedTokens,
+                         MeterRegistry meterRegistry,
+                         @Value("${echoshift.session.reaper.batch-size:500}") int batchSize,
+                         @Value("${echoshift.session.reaper.time-budget-ms:200}") long timeBudgetMillis) {
+        this.playerSessionRepository = playerSessionRepository;
+        this.sessionService = sessionService;
+        this.keepInactiveUntilExpiry = signedTokens.isEnabled();
+        this.batchSize = batchSize;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.purged = Counter.builder("echoshift.sessions.reaper.purged")
+                .description("Expired or inactive player_sessions rows deleted by the reaper")
+                .register(meterRegistry);
+        this.budgetExhausted = Counter.builder("echoshift.sessions.reaper.budget_exhausted")
+                .description("Reaper cycles that stopped because their time budget ran out")
+                .register(meterRegistry);
+        this.cycleTimer = Timer.builder("echoshift.sessions.reaper.cycle")
+                .description("Duration of one reaper cycle")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${echoshift.session.reaper.interval-ms:60000}",
+               initialDelayString = "${echoshift.session.reaper.interval-ms:60000}")
+    public void reap() {
+        cycleTimer.record(() -> {
+            try {
+                reapCycle();
+            } catch (Exception e) {
+                log.error("Session reaper cycle failed", e);
+            }
+        });
+    }
+
+    /**
+     * Run one budgeted cycle and return the number of rows deleted
+     */
+    int reapCycle() {
+        long deadline = System.nanoTime() + timeBudgetNanos;
+        LocalDateTime expiredBefore = sessionService.expiryCutoff();
+        LocalDateTime inactiveBefore = keepInactiveUntilExpiry ? expiredBefore : LocalDateTime.now();
+        int deleted = 0;
+
+        while (true) {
+            List<UUID> ids = playerSessionRepository.findPurgeableIds(resumeAfter, expiredBefore, inactiveBefore, Limit.of(batchSize));
+            if (ids.isEmpty()) {
+                // Reached the end of the table; start from the beginning next cycle
+                resumeAfter = FIRST_ID;
+                break;
+            }
+            deleted += playerSessionRepository.deleteByIds(ids);
+            resumeAfter = ids.get(ids.size() - 1);
+            if (ids.size() < batchSize) {
+                resumeAfter = FIRST_ID;
+                break;
+            }
+            if (System.nanoTime() >= deadline) {
+                budgetExhausted.increment();
+                break;
+            }
+        }
+
+        purged.increment(deleted);
+        if (deleted > 0) {
+            log.info("Session reaper deleted {} sessions", deleted);
+        }
+        return deleted;
+    }
+}
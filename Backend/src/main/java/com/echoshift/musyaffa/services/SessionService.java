@@ -0,0 +1,223 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.datasource.ReplicaRouting;
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.dto.SessionWatermark;
+import com.echoshift.musyaffa.models.Player;
+import com.echoshift.musyaffa.models.PlayerSession;
+import com.echoshift.musyaffa.repositories.PlayerSessionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves session tokens to players through a bounded, TTL-evicting in-process cache.
+ * All session deactivation must go through this service so the cache is invalidated
+ * in the same call that updates player_sessions.
+ *
+ * With echoshift.session.signed-tokens.enabled new sessions get HMAC-signed tokens that
+ * resolve without the cache or the database (see SignedSessionTokens); UUID tokens issued
+ * before the switch keep resolving through the cache until they are logged out.
+ *
+ * Logging a player out everywhere does not scan the cache for their tokens. Each cached entry
+ * carries the generation current when its row was read; the logout records a newer generation
+ * for the player, and hits on entries read before it are dropped and loaded again. A load that
+ * raced with the logout and read the still-active row is caught the same way.
+ */
+@Service
+public class SessionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionService.class);
+
+    private final PlayerSessionRepository playerSessionRepository;
+    private final Cache<String, CachedPrincipal> principalCache;
+    // Advanced by every logout from all devices; entries read before a player's mark are stale
+    private final AtomicLong generation = new AtomicLong();
+    // Player -> generation of their last logout from all devices. Kept for the cache TTL, after
+    // which every entry read before it has expired too
+    private final Cache<UUID, Long> revokedBefore;
+    private final SignedSessionTokens signedTokens;
+    private final Duration sessionTtl;
+
+    public SessionService(PlayerSessionRepository playerSessionRepository,
+                          SignedSessionTokens signedTokens,
+                          MeterRegistry meterRegistry,
+                          @Value("${echoshift.session.cache.maximum-size:100000}") long maximumSize,
+                          @Value("${echoshift.session.cache.ttl:10m}") Duration ttl,
+                          @Value("${echoshift.session.ttl:7d}") Duration sessionTtl) {
+        this.playerSessionRepository = playerSessionRepository;
+        this.signedTokens = signedTokens;
+        this.sessionTtl = sessionTtl;
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.revokedBefore = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, principalCache, "sessionTokens");
+    }
+
+    /**
+     * Resolve an active session token, hitting the database only on a cache miss
+     */
+    public Optional<SessionPrincipal> resolve(String sessionToken) {
+        if (sessionToken == null || sessionToken.trim().isEmpty()) {
+            return Optional.empty();
+        }
+        if (SignedSessionTokens.isSignedToken(sessionToken)) {
+            return signedTokens.verify(sessionToken);
+        }
+        // get(key, loader) is atomic per key, so an invalidate racing with a load
+        // waits for the load and then removes the possibly stale entry
+        CachedPrincipal cached = principalCache.get(sessionToken, this::loadPrincipal);
+        if (cached != null && isRevoked(cached)) {
+            principalCache.asMap().remove(sessionToken, cached);
+            cached = principalCache.get(sessionToken, this::loadPrincipal);
+        }
+        return cached != null ? Optional.of(cached.principal) : Optional.empty();
+    }
+
+    private CachedPrincipal loadPrincipal(String sessionToken) {
+        // Read before the row: a logout committed after this still marks the entry stale
+        long loadedAt = generation.get();
+        LocalDateTime cutoff = expiryCutoff();
+        Optional<SessionPrincipal> principal = playerSessionRepository.findPrincipalBySessionToken(sessionToken, cutoff);
+        if (principal.isEmpty() && ReplicaRouting.replicasAllowed()) {
+            // A session created moments ago may not have reached the replica yet
+            principal = ReplicaRouting.onPrimary(() -> playerSessionRepository.findPrincipalBySessionToken(sessionToken, cutoff));
+        }
+        return principal.map(found -> new CachedPrincipal(found, loadedAt)).orElse(null);
+    }
+
+    private boolean isRevoked(CachedPrincipal cached) {
+        Long revoked = revokedBefore.getIfPresent(cached.principal.getPlayerId());
+        return revoked != null && cached.loadedAt < revoked;
+    }
+
+    /**
+     * Sessions created at or before this instant have expired. A principal already cached
+     * may outlive it by at most the cache TTL.
+     */
+    public LocalDateTime expiryCutoff() {
+        return LocalDateTime.now().minus(sessionTtl);
+    }
+
+    /**
+     * Lookup that never touches the database, for callers that resolve misses themselves
+     * (the reactive endpoints): signed tokens are verified, UUID tokens come from the cache
+     */
+    public Optional<SessionPrincipal> resolveLocally(String sessionToken) {
+        if (SignedSessionTokens.isSignedToken(sessionToken)) {
+            return signedTokens.verify(sessionToken);
+        }
+        CachedPrincipal cached = principalCache.getIfPresent(sessionToken);
+        if (cached == null) {
+            return Optional.empty();
+        }
+        if (isRevoked(cached)) {
+            principalCache.asMap().remove(sessionToken, cached);
+            return Optional.empty();
+        }
+        return Optional.of(cached.principal);
+    }
+
+    /**
+     * Stamp to take before reading a session row for remember, so a logout from all devices
+     * that commits in between still invalidates it
+     */
+    public long loadStamp() {
+        return generation.get();
+    }
+
+    public void remember(String sessionToken, SessionPrincipal principal, long loadStamp) {
+        principalCache.put(sessionToken, new CachedPrincipal(principal, loadStamp));
+    }
+
+    /**
+     * Create a new active session for the player and prime the cache with it
+     */
+    public String createSession(Player player) {
+        if (signedTokens.isEnabled()) {
+            // The row keeps the token id (its signature) and the exact issue time, which is
+            // what rebuilds the deny list after a restart
+            SignedSessionTokens.Token token = signedTokens.issue(player.getId(), player.getUsername());
+            PlayerSession session = new PlayerSession(token.getId(), player);
+            session.setCreatedAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(token.getIssuedAt()), ZoneId.systemDefault()));
+            playerSessionRepository.save(session);
+            return token.getValue();
+        }
+        String sessionToken = UUID.randomUUID().toString();
+        playerSessionRepository.save(new PlayerSession(sessionToken, player));
+        principalCache.put(sessionToken, new CachedPrincipal(new SessionPrincipal(player.getId(), player.getUsername()), generation.get()));
+        return sessionToken;
+    }
+
+    /**
+     * Deactivate a single session, returning false if it was not active
+     */
+    public boolean deactivateSession(String sessionToken) {
+        if (SignedSessionTokens.isSignedToken(sessionToken)) {
+            Optional<String> tokenId = signedTokens.tokenId(sessionToken);
+            tokenId.ifPresent(playerSessionRepository::deactivateSessionByToken);
+            return signedTokens.revoke(sessionToken);
+        }
+        int updated = playerSessionRepository.deactivateSessionByToken(sessionToken);
+        principalCache.invalidate(sessionToken);
+        return updated > 0;
+    }
+
+    /**
+     * Deactivate every active session of a player (logout from all devices)
+     */
+    public void deactivateAllPlayerSessions(UUID playerId) {
+        playerSessionRepository.deactivateAllPlayerSessions(playerId);
+        // After the update has committed; its cached tokens are dropped as they are next used
+        revokedBefore.put(playerId, generation.incrementAndGet());
+        signedTokens.revokeIssuedUpTo(playerId, System.currentTimeMillis());
+    }
+
+    /**
+     * The deny list is in memory, so replay revocations still within the token lifetime
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void restoreRevocations() {
+        if (!signedTokens.isEnabled()) {
+            return;
+        }
+        List<SessionWatermark> watermarks = playerSessionRepository.findRevocationWatermarks(expiryCutoff());
+        for (SessionWatermark watermark : watermarks) {
+            signedTokens.revokeIssuedUpTo(watermark.getPlayerId(),
+                    watermark.getRevokedUpTo().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        log.info("Restored signed-token revocations for {} players", watermarks.size());
+    }
+
+    private static final class CachedPrincipal {
+        private final SessionPrincipal principal;
+        // Generation current before the session row was read
+        private final long loadedAt;
+
+        private CachedPrincipal(SessionPrincipal principal, long loadedAt) {
+            this.principal = principal;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
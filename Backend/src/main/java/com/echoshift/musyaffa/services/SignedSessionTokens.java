@@ -0,0 +1,218 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Self-describing session tokens: "s1." + base64url(player id, issued-at, expires-at, nonce,
+ * username) + "." + base64url(HMAC-SHA256 of everything before it). Verifying one needs no
+ * database access. The 128-bit random nonce makes every token and its signature unique, even
+ * for two logins of a player in the same millisecond.
+ *
+ * Revocation is an in-memory deny list: single tokens by signature and whole players by a
+ * "not before" issue time. Entries live only as long as a token can, so the list stays small. SessionService
+ * rebuilds the per-player part from player_sessions on startup.
+ */
+@Service
+public class SignedSessionTokens {
+
+    static final String PREFIX = "s1.";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final int NONCE_BYTES = 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final boolean enabled;
+    private final Duration ttl;
+    private final ThreadLocal<Mac> mac;
+    private final Cache<String, Boolean> revokedTokens;
+    private final Cache<UUID, Long> notBefore;
+
+    public SignedSessionTokens(MeterRegistry meterRegistry,
+                               @Value("${echoshift.session.signed-tokens.enabled:false}") boolean enabled,
+                               @Value("${echoshift.session.signed-tokens.secret:}") String secret,
+                               @Value("${echoshift.session.ttl:7d}") Duration ttl) {
+        if (enabled && secret.length() < 32) {
+            throw new IllegalStateException("echoshift.session.signed-tokens.secret must be at least 32 characters when signed tokens are enabled");
+        }
+        this.enabled = enabled;
+        this.ttl = ttl;
+        SecretKeySpec key = new SecretKeySpec(secret.isEmpty() ? new byte[1] : secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac instance = Mac.getInstance(ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        this.revokedTokens = Caffeine.newBuilder().expireAfterWrite(ttl).build();
+        this.notBefore = Caffeine.newBuilder().expireAfterWrite(ttl).build();
+        meterRegistry.gauge("echoshift.session.deny_list.size", this,
+                tokens -> tokens.revokedTokens.estimatedSize() + tokens.notBefore.estimatedSize());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static boolean isSignedToken(String sessionToken) {
+        return sessionToken != null && sessionToken.startsWith(PREFIX);
+    }
+
+    /**
+     * Issue a token for the player. The issue time is kept strictly after any revocation
+     * watermark, so a login right after "log out everywhere" is not revoked by it.
+     */
+    public Token issue(UUID playerId, String username) {
+        long issuedAt = System.currentTimeMillis();
+        Long watermark = notBefore.getIfPresent(playerId);
+        if (watermark != null && issuedAt <= watermark) {
+            issuedAt = watermark + 1;
+        }
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        byte[] nonce = new byte[NONCE_BYTES];
+        RANDOM.nextBytes(nonce);
+        ByteBuffer payload = ByteBuffer.allocate(32 + NONCE_BYTES + name.length)
+                .putLong(playerId.getMostSignificantBits())
+                .putLong(playerId.getLeastSignificantBits())
+                .putLong(issuedAt)
+                .putLong(issuedAt + ttl.toMillis())
+                .put(nonce)
+                .put(name);
+        String unsigned = PREFIX + ENCODER.encodeToString(payload.array());
+        String signature = ENCODER.encodeToString(sign(unsigned));
+        return new Token(unsigned + "." + signature, signature, playerId, issuedAt);
+    }
+
+    /**
+     * Verify signature, expiry and the deny list, returning the principal only for a live token
+     */
+    public Optional<SessionPrincipal> verify(String sessionToken) {
+        return parse(sessionToken)
+                .filter(token -> token.expiresAt > System.currentTimeMillis())
+                .filter(token -> !isRevoked(token))
+                .map(token -> new SessionPrincipal(token.playerId, token.username));
+    }
+
+    /**
+     * Revoke one token; false if it is not a valid, live token
+     */
+    public boolean revoke(String sessionToken) {
+        Optional<Parsed> parsed = parse(sessionToken);
+        if (!parsed.isPresent() || isRevoked(parsed.get())) {
+            return false;
+        }
+        revokedTokens.put(parsed.get().signature, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Revoke every token of the player issued up to the given time
+     */
+    public void revokeIssuedUpTo(UUID playerId, long issuedAtMillis) {
+        notBefore.asMap().merge(playerId, issuedAtMillis, Math::max);
+    }
+
+    /**
+     * The token id stored in player_sessions.session_token for a signed token
+     */
+    public Optional<String> tokenId(String sessionToken) {
+        return parse(sessionToken).map(token -> token.signature);
+    }
+
+    private boolean isRevoked(Parsed token) {
+        Long watermark = notBefore.getIfPresent(token.playerId);
+        return (watermark != null && token.issuedAt <= watermark)
+                || revokedTokens.getIfPresent(token.signature) != null;
+    }
+
+    private Optional<Parsed> parse(String sessionToken) {
+        if (!enabled || !isSignedToken(sessionToken)) {
+            return Optional.empty();
+        }
+        int dot = sessionToken.lastIndexOf('.');
+        if (dot <= PREFIX.length()) {
+            return Optional.empty();
+        }
+        try {
+            String signature = sessionToken.substring(dot + 1);
+            if (!MessageDigest.isEqual(sign(sessionToken.substring(0, dot)), DECODER.decode(signature))) {
+                return Optional.empty();
+            }
+            ByteBuffer payload = ByteBuffer.wrap(DECODER.decode(sessionToken.substring(PREFIX.length(), dot)));
+            UUID playerId = new UUID(payload.getLong(), payload.getLong());
+            long issuedAt = payload.getLong();
+            long expiresAt = payload.getLong();
+            payload.position(payload.position() + NONCE_BYTES);
+            byte[] name = new byte[payload.remaining()];
+            payload.get(name);
+            return Optional.of(new Parsed(playerId, issuedAt, expiresAt, new String(name, StandardCharsets.UTF_8), signature));
+        } catch (IllegalArgumentException | java.nio.BufferUnderflowException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String unsigned) {
+        return mac.get().doFinal(unsigned.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * A freshly issued token together with the id persisted for it
+     */
+    public static final class Token {
+        private final String value;
+        private final String id;
+        private final UUID playerId;
+        private final long issuedAt;
+
+        Token(String value, String id, UUID playerId, long issuedAt) {
+            this.value = value;
+            this.id = id;
+            this.playerId = playerId;
+            this.issuedAt = issuedAt;
+        }
+
+        public String getValue() { return value; }
+
+        public String getId() { return id; }
+
+        public UUID getPlayerId() { return playerId; }
+
+        public long getIssuedAt() { return issuedAt; }
+    }
+
+    private static final class Parsed {
+        final UUID playerId;
+        final long issuedAt;
+        final long expiresAt;
+        final String username;
+        final String signature;
+
+        Parsed(UUID playerId, long issuedAt, long expiresAt, String username, String signature) {
+            this.playerId = playerId;
+            this.issuedAt = issuedAt;
+            this.expiresAt = expiresAt;
+            this.username = username;
+            this.signature = signature;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.echoshift.musyaffa.web;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a handler that requires a valid session token in the Authorization header.
+ * AuthenticationInterceptor answers 401 before the handler runs (and before its body is read)
+ * when the token is missing or invalid; otherwise the handler can declare a SessionPrincipal
+ * parameter to receive the resolved player.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Authenticated {
+}
@@ -0,0 +1,68 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.services.SessionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Registers AuthenticationInterceptor for the API (followed by SessionRateLimitInterceptor when
+ * rate limits are enabled) and lets @Authenticated handlers take the resolved SessionPrincipal
+ * as a parameter
+ */
+@Configuration
+@Profile("!reactive")
+public class AuthenticationConfig implements WebMvcConfigurer {
+
+    private final SessionService sessionService;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<RateLimits> rateLimits;
+
+    public AuthenticationConfig(SessionService sessionService, ObjectMapper objectMapper, ObjectProvider<RateLimits> rateLimits) {
+        this.sessionService = sessionService;
+        this.objectMapper = objectMapper;
+        this.rateLimits = rateLimits;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AuthenticationInterceptor(sessionService, objectMapper)).addPathPatterns("/api/**");
+        rateLimits.ifAvailable(limits ->
+                registry.addInterceptor(new SessionRateLimitInterceptor(limits, objectMapper)).addPathPatterns("/api/**"));
+    }
+
+    @Override
+    public void addArgumentResolvers(List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(new SessionPrincipalArgumentResolver());
+    }
+
+    private static final class SessionPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            return SessionPrincipal.class.equals(parameter.getParameterType());
+        }
+
+        @Override
+        public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                      NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+            Object principal = webRequest.getAttribute(AuthenticationInterceptor.PRINCIPAL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+            if (principal == null) {
+                throw new IllegalStateException("SessionPrincipal parameter on a handler without @Authenticated: " + parameter.getMethod());
+            }
+            return principal;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.services.SessionService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Resolves the session token of @Authenticated handlers once per request, through
+ * SessionService (principal cache, or one projection query on a miss), and keeps the
+ * SessionPrincipal as a request attribute. Runs after handler mapping but before argument
+ * resolution, so a request without a valid session never has its JSON body parsed.
+ */
+public class AuthenticationInterceptor implements HandlerInterceptor {
+
+    public static final String PRINCIPAL_ATTRIBUTE = AuthenticationInterceptor.class.getName() + ".principal";
+
+    private final SessionService sessionService;
+    private final ObjectMapper objectMapper;
+
+    public AuthenticationInterceptor(SessionService sessionService, ObjectMapper objectMapper) {
+        this.sessionService = sessionService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        if (!(handler instanceof HandlerMethod handlerMethod) || !handlerMethod.hasMethodAnnotation(Authenticated.class)) {
+            return true;
+        }
+        String sessionToken = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (sessionToken == null || sessionToken.trim().isEmpty()) {
+            return reject(response, "Session token is required");
+        }
+        Optional<SessionPrincipal> principal = sessionService.resolve(sessionToken);
+        if (principal.isEmpty()) {
+            return reject(response, "Invalid session");
+        }
+        request.setAttribute(PRINCIPAL_ATTRIBUTE, principal.get());
+        return true;
+    }
+
+    private boolean reject(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpStatus.UNAUTHORIZED.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), BaseResponse.error(message));
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package com.echoshift.musyaffa.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * CBOR (application/cbor) as an alternative wire format for every endpoint: clients opt in
+ * with Content-Type and Accept, anything else keeps getting JSON. The mapper is built from
+ * the same Spring Boot Jackson settings as the JSON one, so both encode the same fields.
+ */
+@Configuration
+public class CborConfig {
+
+    private final ObjectMapper cborMapper;
+
+    public CborConfig(Jackson2ObjectMapperBuilder builder) {
+        this.cborMapper = builder.createXmlMapper(false).factory(new CBORFactory()).build();
+    }
+
+    /**
+     * Picked up by HttpMessageConverters after the JSON converter, which stays the default
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter() {
+        return new MappingJackson2CborHttpMessageConverter(cborMapper);
+    }
+
+    /**
+     * The same for WebFlux (reactive profile). Custom codecs are consulted before the defaults,
+     * so the JSON encoder is registered again ahead of CBOR to keep JSON the default for clients that accept anything.
+     */
+    @Bean
+    public CodecCustomizer cborCodecCustomizer(ObjectMapper objectMapper) {
+        return configurer -> {
+            configurer.customCodecs().register(new Jackson2JsonEncoder(objectMapper));
+            configurer.customCodecs().register(new Jackson2CborDecoder(cborMapper, MediaType.APPLICATION_CBOR));
+            configurer.customCodecs().register(new SingleValueCborEncoder(cborMapper));
+        };
+    }
+
+    /**
+     * Jackson2CborEncoder only implements encodeValue and rejects every encode call, which is
+     * what HTTP message writers use; single-value bodies (every BaseResponse) go through encodeValue.
+     * Streams (Flux bodies) are still rejected, so they should not be offered as application/cbor.
+     */
+    private static final class SingleValueCborEncoder extends Jackson2CborEncoder {
+
+        private SingleValueCborEncoder(ObjectMapper mapper) {
+            super(mapper, MediaType.APPLICATION_CBOR);
+        }
+
+        @Override
+        public Flux<DataBuffer> encode(Publisher<?> inputStream, DataBufferFactory bufferFactory, ResolvableType elementType,
+                                       MimeType mimeType, Map<String, Object> hints) {
+            if (inputStream instanceof Mono<?> value) {
+                return value.map(body -> encodeValue(body, bufferFactory, elementType, mimeType, hints)).flux();
+            }
+            return super.encode(inputStream, bufferFactory, elementType, mimeType, hints);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.echoshift.musyaffa.web.IdempotentResponses.StoredResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Records and replays IdempotentResponses for servlet requests. Runs after the rate limit but
+ * ahead of the concurrency limit, so a replayed response takes no permit and no database
+ * connection.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 7)
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    private final IdempotentResponses idempotentResponses;
+    private final ObjectMapper objectMapper;
+
+    public IdempotencyFilter(IdempotentResponses idempotentResponses, ObjectMapper objectMapper) {
+        this.idempotentResponses = idempotentResponses;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(IdempotentResponses.HEADER) == null
+                || !idempotentResponses.applies(request.getMethod(), request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(IdempotentResponses.HEADER);
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > IdempotentResponses.MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, "Invalid Idempotency-Key");
+            return;
+        }
+        String cacheKey = IdempotentResponses.cacheKey(request.getHeader(HttpHeaders.AUTHORIZATION), request.getRemoteAddr(),
+                request.getMethod(), request.getRequestURI(), idempotencyKey);
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = idempotentResponses.claim(cacheKey, mine);
+        if (existing != null) {
+            replay(existing, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper recorder = new ContentCachingResponseWrapper(response);
+        StoredResponse recorded = null;
+        try {
+            filterChain.doFilter(request, recorder);
+            recorded = record(recorder);
+        } finally {
+            if (recorded == null) {
+                recorded = new StoredResponse(HttpStatus.INTERNAL_SERVER_ERROR.value(), jsonHeaders(),
+                        objectMapper.writeValueAsBytes(BaseResponse.error("Error processing request")));
+            }
+            idempotentResponses.complete(cacheKey, mine, recorded);
+        }
+        recorder.copyBodyToResponse();
+    }
+
+    private static StoredResponse record(ContentCachingResponseWrapper recorder) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String name : recorder.getHeaderNames()) {
+            headers.put(name, List.copyOf(recorder.getHeaders(name)));
+        }
+        if (recorder.getContentType() != null) {
+            headers.set(HttpHeaders.CONTENT_TYPE, recorder.getContentType());
+        }
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        return new StoredResponse(recorder.getStatus(), headers, recorder.getContentAsByteArray());
+    }
+
+    private void replay(CompletableFuture<StoredResponse> existing, HttpServletResponse response) throws IOException {
+        StoredResponse stored;
+        try {
+            stored = existing.get(idempotentResponses.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            writeError(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the original request");
+            return;
+        } catch (ExecutionException e) {
+            // Never completed exceptionally; complete() always gets a response
+            throw new IllegalStateException(e.getCause());
+        }
+
+        response.setStatus(stored.getStatus());
+        for (Map.Entry<String, List<String>> header : stored.getHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                response.addHeader(header.getKey(), value);
+            }
+        }
+        response.setHeader(IdempotentResponses.REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), BaseResponse.error(message));
+    }
+
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+}
@@ -0,0 +1,126 @@
+package com.echoshift.musyaffa.web;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Responses of POST /api/runs and PATCH /api/runs/{id}/end sent with an Idempotency-Key header,
+ * kept in a bounded, TTL-evicting cache so a client retry gets the original response back
+ * byte for byte instead of creating or ending the run again (see IdempotencyFilter).
+ *
+ * The first request with a key claims it by inserting an incomplete future; duplicates that
+ * arrive while it runs wait on that future, so concurrent retries collapse to one execution.
+ * Keys are scoped to the session token (or client address), method and path, so one client
+ * can never replay another's response. 5xx outcomes are handed to waiting duplicates but not
+ * kept, so a later retry runs again.
+ */
+@Component
+public class IdempotentResponses {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private static final List<String> METHODS = List.of("POST", "PATCH");
+    private static final List<PathPattern> PATTERNS = List.of(
+            PathPatternParser.defaultInstance.parse("/api/runs"),
+            PathPatternParser.defaultInstance.parse("/api/runs/{id}/end"));
+
+    private final Cache<String, CompletableFuture<StoredResponse>> responses;
+    private final Duration maxWait;
+
+    public IdempotentResponses(MeterRegistry meterRegistry,
+                               @Value("${echoshift.idempotency.maximum-size:100000}") long maximumSize,
+                               @Value("${echoshift.idempotency.ttl:1h}") Duration ttl,
+                               @Value("${echoshift.idempotency.max-wait:10s}") Duration maxWait) {
+        this.maxWait = maxWait;
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, "idempotentResponses");
+    }
+
+    /**
+     * How long a duplicate waits for the original request before giving up with 409
+     */
+    public Duration getMaxWait() {
+        return maxWait;
+    }
+
+    public boolean applies(String method, String path) {
+        if (!METHODS.contains(method)) {
+            return false;
+        }
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (int i = 0; i < METHODS.size(); i++) {
+            if (METHODS.get(i).equals(method) && PATTERNS.get(i).matches(pathContainer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String cacheKey(String sessionToken, String remoteAddress, String method, String path, String idempotencyKey) {
+        String owner = sessionToken != null && !sessionToken.isEmpty() ? "session:" + sessionToken : "address:" + remoteAddress;
+        return owner + '\n' + method + ' ' + path + '\n' + idempotencyKey;
+    }
+
+    /**
+     * Claim the key with the caller's incomplete future. Returns null if the caller now owns
+     * the execution, or the future of the request that got there first.
+     */
+    public CompletableFuture<StoredResponse> claim(String cacheKey, CompletableFuture<StoredResponse> mine) {
+        return responses.asMap().putIfAbsent(cacheKey, mine);
+    }
+
+    /**
+     * Publish the outcome of the owning request to waiting and later duplicates
+     */
+    public void complete(String cacheKey, CompletableFuture<StoredResponse> mine, StoredResponse response) {
+        if (response.getStatus() >= 500) {
+            responses.asMap().remove(cacheKey, mine);
+        }
+        mine.complete(response);
+    }
+
+    /**
+     * Status, headers and body of a response as the client first received them
+     */
+    public static final class StoredResponse {
+        private final int status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        public StoredResponse(int status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
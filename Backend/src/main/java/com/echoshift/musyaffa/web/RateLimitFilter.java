@@ -0,0 +1,62 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the address limits of RateLimits to servlet requests. Runs ahead of the concurrency
+ * limit, so a rejected request never takes a permit, a session lookup or a database connection.
+ * The client address is the forwarded one when server.forward-headers-strategy is set.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@ConditionalOnProperty(name = "echoshift.rate-limit.enabled", havingValue = "true")
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimits rateLimits;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimits rateLimits, ObjectMapper objectMapper) {
+        this.rateLimits = rateLimits;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long retryAfter = rateLimits.acquire(request.getMethod(), request.getRequestURI(), request.getRemoteAddr());
+        if (retryAfter > 0) {
+            reject(response, objectMapper, retryAfter);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    static void reject(HttpServletResponse response, ObjectMapper objectMapper, long retryAfter) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), BaseResponse.error("Too many requests, please retry later"));
+    }
+}
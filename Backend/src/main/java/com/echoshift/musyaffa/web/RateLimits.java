@@ -0,0 +1,148 @@
+package com.echoshift.musyaffa.web;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token-bucket limits for the endpoints a misbehaving client can flood: run score updates
+ * per client address and per authenticated player, login and registration per address.
+ * Address limits are checked by RateLimitFilter / ReactiveRateLimitFilter before any other work;
+ * player limits only once the session is validated (SessionRateLimitInterceptor, or the reactive
+ * run endpoints), so made-up tokens can neither mint fresh buckets nor skip the address limit.
+ *
+ * Each bucket is a single AtomicLong updated with compare-and-set (the GCRA form of a token
+ * bucket: it stores when the bucket will be full again rather than a token count). Buckets
+ * live in a bounded Caffeine cache per limit and expire once they would have refilled, so an
+ * expired bucket and a full one behave the same.
+ */
+@Component
+@ConditionalOnProperty(name = "echoshift.rate-limit.enabled", havingValue = "true")
+public class RateLimits {
+
+    private final List<Limit> limits;
+
+    public RateLimits(MeterRegistry meterRegistry,
+                      @Value("${echoshift.rate-limit.max-keys:100000}") long maxKeys,
+                      @Value("${echoshift.rate-limit.run-updates.capacity:20}") int runUpdatesCapacity,
+                      @Value("${echoshift.rate-limit.run-updates.refill-per-second:5}") double runUpdatesRefill,
+                      @Value("${echoshift.rate-limit.run-updates.address-capacity:200}") int runUpdatesAddressCapacity,
+                      @Value("${echoshift.rate-limit.run-updates.address-refill-per-second:50}") double runUpdatesAddressRefill,
+                      @Value("${echoshift.rate-limit.login.capacity:10}") int loginCapacity,
+                      @Value("${echoshift.rate-limit.login.refill-per-second:0.2}") double loginRefill,
+                      @Value("${echoshift.rate-limit.registration.capacity:5}") int registrationCapacity,
+                      @Value("${echoshift.rate-limit.registration.refill-per-second:0.05}") double registrationRefill) {
+        List<String> runUpdates = List.of("PUT /api/runs/{id}", "PATCH /api/runs/{id}/end");
+        this.limits = List.of(
+                new Limit("run-updates", runUpdates, true,
+                        runUpdatesCapacity, runUpdatesRefill, maxKeys, meterRegistry),
+                new Limit("run-updates-address", runUpdates, false,
+                        runUpdatesAddressCapacity, runUpdatesAddressRefill, maxKeys, meterRegistry),
+                new Limit("login", List.of("POST /api/players/login"), false,
+                        loginCapacity, loginRefill, maxKeys, meterRegistry),
+                new Limit("registration", List.of("POST /api/players"), false,
+                        registrationCapacity, registrationRefill, maxKeys, meterRegistry));
+    }
+
+    /**
+     * Take a token from the address limits of the request, returning 0 if it may proceed or
+     * the number of seconds after which it would be accepted
+     */
+    public long acquire(String method, String path, String remoteAddress) {
+        return acquire(method, path, false, "address:" + remoteAddress);
+    }
+
+    /**
+     * Take a token from the per-player limits of a request whose session has been validated
+     */
+    public long acquireForPlayer(String method, String path, UUID playerId) {
+        return acquire(method, path, true, "player:" + playerId);
+    }
+
+    private long acquire(String method, String path, boolean perPlayer, String key) {
+        PathContainer pathContainer = PathContainer.parsePath(path);
+        for (Limit limit : limits) {
+            if (limit.perPlayer == perPlayer && limit.matches(method, pathContainer)) {
+                long retryAfter = limit.acquire(key);
+                if (retryAfter > 0) {
+                    return retryAfter;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static final class Limit {
+        private final List<String> methods = new ArrayList<>();
+        private final List<PathPattern> patterns = new ArrayList<>();
+        private final boolean perPlayer;
+        private final long intervalNanos;
+        private final long burstNanos;
+        private final Cache<String, AtomicLong> buckets;
+        private final Counter rejected;
+
+        /**
+         * routes are "METHOD /path/{pattern}" and share one bucket per key
+         */
+        private Limit(String name, List<String> routes, boolean perPlayer, int capacity, double refillPerSecond,
+                      long maxKeys, MeterRegistry meterRegistry) {
+            for (String route : routes) {
+                String[] parts = route.split(" ", 2);
+                methods.add(parts[0]);
+                patterns.add(PathPatternParser.defaultInstance.parse(parts[1]));
+            }
+            this.perPlayer = perPlayer;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+            this.burstNanos = intervalNanos * capacity;
+            this.buckets = Caffeine.newBuilder()
+                    .maximumSize(maxKeys)
+                    .expireAfterAccess(Duration.ofNanos(burstNanos))
+                    .build();
+            this.rejected = Counter.builder("echoshift.rate_limit.rejected")
+                    .description("Requests rejected with 429 by a rate limit")
+                    .tag("limit", name)
+                    .register(meterRegistry);
+        }
+
+        private boolean matches(String method, PathContainer path) {
+            for (int i = 0; i < methods.size(); i++) {
+                if (methods.get(i).equals(method) && patterns.get(i).matches(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long acquire(String key) {
+            long now = System.nanoTime();
+            AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(now));
+            while (true) {
+                long current = fullAt.get();
+                // nanoTime values are only comparable by difference
+                long next = (current - now > 0 ? current : now) + intervalNanos;
+                long wait = next - now - burstNanos;
+                if (wait > 0) {
+                    rejected.increment();
+                    return Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+                }
+                if (fullAt.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.services.SessionService;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.reactive.BindingContext;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.HandlerMethodArgumentResolver;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The reactive counterpart of AuthenticationConfig for the handlers WebFlux serves from the
+ * servlet controllers (players): a SessionPrincipal parameter of an @Authenticated handler is
+ * resolved from the Authorization header, and a missing or invalid session answers 401 with
+ * the same body as AuthenticationInterceptor. WebFlux has no handler interceptors, so the check
+ * happens while the handler's arguments are resolved.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveAuthenticationConfig implements WebFluxConfigurer {
+
+    private final SessionService sessionService;
+
+    public ReactiveAuthenticationConfig(SessionService sessionService) {
+        this.sessionService = sessionService;
+    }
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new SessionPrincipalArgumentResolver(sessionService));
+    }
+
+    private static final class SessionPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+
+        private final SessionService sessionService;
+
+        private SessionPrincipalArgumentResolver(SessionService sessionService) {
+            this.sessionService = sessionService;
+        }
+
+        @Override
+        public boolean supportsParameter(MethodParameter parameter) {
+            return SessionPrincipal.class.equals(parameter.getParameterType());
+        }
+
+        @Override
+        public Mono<Object> resolveArgument(MethodParameter parameter, BindingContext bindingContext, ServerWebExchange exchange) {
+            if (!parameter.hasMethodAnnotation(Authenticated.class)) {
+                return Mono.error(new IllegalStateException("SessionPrincipal parameter on a handler without @Authenticated: " + parameter.getMethod()));
+            }
+            String sessionToken = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            if (sessionToken == null || sessionToken.trim().isEmpty()) {
+                return Mono.error(new SessionRejectedException("Session token is required"));
+            }
+            // A principal cache miss queries through JPA, so keep it off the event loop
+            return Mono.fromCallable(() -> sessionService.resolve(sessionToken))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .flatMap(principal -> principal.<Mono<Object>>map(Mono::just)
+                            .orElseGet(() -> Mono.error(new SessionRejectedException("Invalid session"))));
+        }
+    }
+
+    static final class SessionRejectedException extends RuntimeException {
+        SessionRejectedException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    @RestControllerAdvice
+    @Profile("reactive")
+    static class SessionRejectedHandler {
+
+        @ExceptionHandler(SessionRejectedException.class)
+        ResponseEntity<BaseResponse<Void>> rejected(SessionRejectedException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(BaseResponse.error(e.getMessage()));
+        }
+    }
+}
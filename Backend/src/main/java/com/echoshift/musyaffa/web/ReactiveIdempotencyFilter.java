@@ -0,0 +1,138 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.echoshift.musyaffa.web.IdempotentResponses.StoredResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.reactivestreams.Publisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * IdempotentResponses for the reactive profile. Duplicates wait on the original request's
+ * future without blocking the event loop.
+ */
+@Component
+@Profile("reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 7)
+public class ReactiveIdempotencyFilter implements WebFilter {
+
+    private static final byte[] NO_BODY = new byte[0];
+
+    private final IdempotentResponses idempotentResponses;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveIdempotencyFilter(IdempotentResponses idempotentResponses, ObjectMapper objectMapper) {
+        this.idempotentResponses = idempotentResponses;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String idempotencyKey = request.getHeaders().getFirst(IdempotentResponses.HEADER);
+        String path = request.getPath().pathWithinApplication().value();
+        if (idempotencyKey == null || !idempotentResponses.applies(request.getMethod().name(), path)) {
+            return chain.filter(exchange);
+        }
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > IdempotentResponses.MAX_KEY_LENGTH) {
+            return writeError(exchange.getResponse(), HttpStatus.BAD_REQUEST, "Invalid Idempotency-Key");
+        }
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        String cacheKey = IdempotentResponses.cacheKey(request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION),
+                remoteAddress != null ? remoteAddress.getAddress().getHostAddress() : "unknown",
+                request.getMethod().name(), path, idempotencyKey);
+
+        CompletableFuture<StoredResponse> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = idempotentResponses.claim(cacheKey, mine);
+        if (existing != null) {
+            return replay(existing, exchange.getResponse());
+        }
+
+        AtomicReference<byte[]> body = new AtomicReference<>(NO_BODY);
+        ServerHttpResponse recorder = new ServerHttpResponseDecorator(exchange.getResponse()) {
+            @Override
+            public Mono<Void> writeWith(Publisher<? extends DataBuffer> content) {
+                return DataBufferUtils.join(content).flatMap(buffer -> {
+                    byte[] bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    body.set(bytes);
+                    return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+                });
+            }
+        };
+        return chain.filter(exchange.mutate().response(recorder).build())
+                .doOnSuccess(done -> idempotentResponses.complete(cacheKey, mine, record(recorder, body.get())))
+                .doFinally(signal -> {
+                    // Error or cancellation: release duplicates and let the next retry run again
+                    if (!mine.isDone()) {
+                        idempotentResponses.complete(cacheKey, mine, new StoredResponse(
+                                HttpStatus.INTERNAL_SERVER_ERROR.value(), jsonHeaders(), errorBody("Error processing request")));
+                    }
+                });
+    }
+
+    private static StoredResponse record(ServerHttpResponse recorder, byte[] body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(recorder.getHeaders());
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        HttpStatusCode status = recorder.getStatusCode();
+        return new StoredResponse(status != null ? status.value() : HttpStatus.OK.value(), headers, body);
+    }
+
+    private Mono<Void> replay(CompletableFuture<StoredResponse> existing, ServerHttpResponse response) {
+        return Mono.fromFuture(existing, true)
+                .timeout(idempotentResponses.getMaxWait())
+                .flatMap(stored -> {
+                    response.setStatusCode(HttpStatusCode.valueOf(stored.getStatus()));
+                    response.getHeaders().putAll(stored.getHeaders());
+                    response.getHeaders().set(IdempotentResponses.REPLAYED_HEADER, "true");
+                    response.getHeaders().setContentLength(stored.getBody().length);
+                    return response.writeWith(Mono.just(response.bufferFactory().wrap(stored.getBody())));
+                })
+                .onErrorResume(TimeoutException.class, e ->
+                        writeError(response, HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress"));
+    }
+
+    private Mono<Void> writeError(ServerHttpResponse response, HttpStatus status, String message) {
+        response.setStatusCode(status);
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(errorBody(message))));
+    }
+
+    private byte[] errorBody(String message) {
+        try {
+            return objectMapper.writeValueAsBytes(BaseResponse.error(message));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static HttpHeaders jsonHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return headers;
+    }
+}
@@ -0,0 +1,68 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.controllers.BaseResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Address limits of RateLimits for the reactive profile; the check itself never blocks, so it runs
+ * on the event loop. Per-player limits are applied by the run endpoints once the session resolves.
+ */
+@Component
+@Profile("reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 5)
+@ConditionalOnProperty(name = "echoshift.rate-limit.enabled", havingValue = "true")
+public class ReactiveRateLimitFilter implements WebFilter {
+
+    private final RateLimits rateLimits;
+    private final ObjectMapper objectMapper;
+
+    public ReactiveRateLimitFilter(RateLimits rateLimits, ObjectMapper objectMapper) {
+        this.rateLimits = rateLimits;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        String path = request.getPath().pathWithinApplication().value();
+        if (!path.startsWith("/api/")) {
+            return chain.filter(exchange);
+        }
+        InetSocketAddress remoteAddress = request.getRemoteAddress();
+        long retryAfter = rateLimits.acquire(request.getMethod().name(), path,
+                remoteAddress != null ? remoteAddress.getAddress().getHostAddress() : "unknown");
+        if (retryAfter == 0) {
+            return chain.filter(exchange);
+        }
+
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        response.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(BaseResponse.error("Too many requests, please retry later"));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+}
@@ -0,0 +1,86 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.datasource.ReadYourWrites;
+import com.echoshift.musyaffa.datasource.ReplicaRouting;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Lets GET requests read from replicas, except right after a write by the same session
+ * or to the requested player's runs (ReadYourWrites). Every other method runs entirely on
+ * the primary, so a write never builds on a stale replica read.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 15)
+@ConditionalOnProperty(name = "echoshift.datasource.replicas.enabled", havingValue = "true")
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final List<PathPattern> PLAYER_READS = List.of(
+            PathPatternParser.defaultInstance.parse("/api/runs/{playerId}"),
+            PathPatternParser.defaultInstance.parse("/api/runs/{playerId}/archive"),
+            PathPatternParser.defaultInstance.parse("/api/players/{playerId}/stats"),
+            PathPatternParser.defaultInstance.parse("/api/leaderboard/rank/{playerId}"));
+
+    private final ReadYourWrites readYourWrites;
+
+    public ReadYourWritesFilter(ReadYourWrites readYourWrites) {
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String sessionToken = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            if (sessionToken != null && response.getStatus() < 400) {
+                readYourWrites.sessionWrote(sessionToken);
+            }
+            return;
+        }
+        if ((sessionToken != null && readYourWrites.sessionWroteRecently(sessionToken)) || playerChangedRecently(request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        try (ReplicaRouting.Scope scope = ReplicaRouting.allowReplicas()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+
+    private boolean playerChangedRecently(HttpServletRequest request) {
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        for (PathPattern pattern : PLAYER_READS) {
+            PathPattern.PathMatchInfo match = pattern.matchAndExtract(path);
+            if (match != null) {
+                try {
+                    return readYourWrites.playerChangedRecently(UUID.fromString(match.getUriVariables().get("playerId")));
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,38 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+/**
+ * Applies the per-player limits of RateLimits after AuthenticationInterceptor has validated the
+ * session, so buckets exist only for real players and the body is still not parsed on rejection
+ */
+public class SessionRateLimitInterceptor implements HandlerInterceptor {
+
+    private final RateLimits rateLimits;
+    private final ObjectMapper objectMapper;
+
+    public SessionRateLimitInterceptor(RateLimits rateLimits, ObjectMapper objectMapper) {
+        this.rateLimits = rateLimits;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws IOException {
+        Object principal = request.getAttribute(AuthenticationInterceptor.PRINCIPAL_ATTRIBUTE);
+        if (!(principal instanceof SessionPrincipal sessionPrincipal)) {
+            return true;
+        }
+        long retryAfter = rateLimits.acquireForPlayer(request.getMethod(), request.getRequestURI(), sessionPrincipal.getPlayerId());
+        if (retryAfter > 0) {
+            RateLimitFilter.reject(response, objectMapper, retryAfter);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,114 @@
+package com.echoshift.musyaffa.web;
+
+import com.echoshift.musyaffa.datasource.SqlStatements;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Counts the SQL statements each API request executes (see StatementCountingDataSource) and
+ * logs the endpoint with its statements when it needs more than max-statements, which is how
+ * N+1 loads and redundant lookups show up. The recording is left on the request under
+ * RECORDING_ATTRIBUTE, so tests can assert exact counts per endpoint.
+ *
+ * Statements run on other threads (async export bodies, scheduled flushes) are not counted.
+ */
+@Component
+@Profile("!reactive")
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+@ConditionalOnProperty(name = "echoshift.sql.budget.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlBudgetFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    public static final String RECORDING_ATTRIBUTE = SqlBudgetFilter.class.getName() + ".recording";
+
+    private final MeterRegistry meterRegistry;
+    private final int maxStatements;
+    private final List<PathPattern> ignoredPaths;
+
+    public SqlBudgetFilter(MeterRegistry meterRegistry,
+                           @Value("${echoshift.sql.budget.max-statements:10}") int maxStatements,
+                           @Value("${echoshift.sql.budget.ignored-paths:}") List<String> ignoredPaths) {
+        this.meterRegistry = meterRegistry;
+        this.maxStatements = maxStatements;
+        this.ignoredPaths = ignoredPaths.stream()
+                .filter(path -> !path.isBlank())
+                .map(path -> PathPatternParser.defaultInstance.parse(path.trim()))
+                .toList();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!request.getRequestURI().startsWith("/api/")) {
+            return true;
+        }
+        PathContainer path = PathContainer.parsePath(request.getRequestURI());
+        return ignoredPaths.stream().anyMatch(pattern -> pattern.matches(path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatements.Recording recording = SqlStatements.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatements.stop(recording);
+            request.setAttribute(RECORDING_ATTRIBUTE, recording);
+            report(request, recording);
+        }
+    }
+
+    private void report(HttpServletRequest request, SqlStatements.Recording recording) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        DistributionSummary.builder("echoshift.sql.statements")
+                .description("SQL statements executed per API request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(recording.getCount());
+        if (recording.getCount() <= maxStatements) {
+            return;
+        }
+        Counter.builder("echoshift.sql.budget.exceeded")
+                .description("API requests that executed more SQL statements than the budget")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .increment();
+        StringBuilder message = new StringBuilder("SQL budget exceeded: ")
+                .append(request.getMethod()).append(' ').append(uri)
+                .append(" executed ").append(recording.getCount())
+                .append(" statements (budget ").append(maxStatements).append(')');
+        List<String> statements = recording.getStatements();
+        for (int i = 0; i < statements.size(); i++) {
+            message.append("\n  ").append(i + 1).append(". ").append(statements.get(i));
+        }
+        if (recording.getCount() > statements.size()) {
+            message.append("\n  ... ").append(recording.getCount() - statements.size()).append(" more");
+        }
+        log.warn(message.toString());
+    }
+}
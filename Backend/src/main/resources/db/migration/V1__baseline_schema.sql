@@ -0,0 +1,33 @@
+-- Schema as shipped in dump.sql. Databases created from the dump (or by Hibernate's
+-- ddl-auto=update) already have these tables, so every statement is a no-op there.
+
+CREATE TABLE IF NOT EXISTS players (
+    id uuid DEFAULT gen_random_uuid() NOT NULL,
+    username character varying(50) NOT NULL,
+    password character varying(255) NOT NULL,
+    experience integer DEFAULT 0,
+    CONSTRAINT players_pkey PRIMARY KEY (id),
+    CONSTRAINT players_username_key UNIQUE (username)
+);
+
+CREATE TABLE IF NOT EXISTS player_sessions (
+    id uuid DEFAULT gen_random_uuid() NOT NULL,
+    session_token character varying(255) NOT NULL,
+    player_id uuid NOT NULL,
+    is_active boolean DEFAULT true NOT NULL,
+    created_at timestamp without time zone DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    updated_at timestamp without time zone DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    CONSTRAINT player_sessions_pkey PRIMARY KEY (id),
+    CONSTRAINT player_sessions_session_token_key UNIQUE (session_token),
+    CONSTRAINT player_sessions_player_id_fkey FOREIGN KEY (player_id) REFERENCES players(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS runs (
+    id uuid DEFAULT gen_random_uuid() NOT NULL,
+    player_id uuid NOT NULL,
+    time_elapsed double precision DEFAULT 0 NOT NULL,
+    score integer DEFAULT 0,
+    level_reached integer DEFAULT 1,
+    CONSTRAINT runs_pkey PRIMARY KEY (id),
+    CONSTRAINT runs_player_id_fkey FOREIGN KEY (player_id) REFERENCES players(id)
+);
@@ -0,0 +1,11 @@
+-- Per-player aggregates maintained by PlayerStatsService. Rows are filled lazily on the
+-- first run write; start once with --rebuild-player-stats to backfill existing players.
+
+CREATE TABLE IF NOT EXISTS player_stats (
+    player_id uuid NOT NULL,
+    total_runs bigint DEFAULT 0 NOT NULL,
+    best_score integer DEFAULT 0 NOT NULL,
+    total_play_time double precision DEFAULT 0 NOT NULL,
+    highest_level integer DEFAULT 0 NOT NULL,
+    CONSTRAINT player_stats_pkey PRIMARY KEY (player_id)
+);
@@ -0,0 +1,31 @@
+-- Prepares runs for V4, which attaches the whole table as the partition covering everything
+-- before next month. Nothing here scans or rewrites runs, but each ALTER TABLE takes ACCESS
+-- EXCLUSIVE until the migration commits: it queues behind long-running transactions on runs and
+-- blocks every query queued after it, so lock_timeout makes it fail (and be retried) instead of
+-- stalling traffic. The CHECK below states the partition bound up front and the foreign key the
+-- partitioned table will have; both are NOT VALID, and V3_2 validates them under a lock that
+-- lets reads and writes continue. With both valid, and the index from V3_3, the ATTACH in V4
+-- neither scans runs nor builds an index.
+
+SET LOCAL lock_timeout = '5s';
+
+-- Existing rows are stamped with the migration time (a constant default, so no table rewrite)
+ALTER TABLE runs ADD COLUMN IF NOT EXISTS created_at timestamp without time zone DEFAULT CURRENT_TIMESTAMP NOT NULL;
+ALTER TABLE runs ADD COLUMN IF NOT EXISTS ended_at timestamp without time zone;
+
+-- Same bound expression as the ATTACH in V4; if the month turns in between, V4's bound is the
+-- later one and the constraint still implies it
+DO $$
+BEGIN
+    EXECUTE format('ALTER TABLE runs ADD CONSTRAINT runs_created_at_bound CHECK (created_at < %L) NOT VALID',
+                   date_trunc('month', now()) + interval '1 month');
+END $$;
+
+-- Databases created from dump.sql have this key already; schemas created by Hibernate do not,
+-- and the ATTACH would add and validate it under its lock
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'runs'::regclass AND contype = 'f') THEN
+        ALTER TABLE runs ADD CONSTRAINT runs_player_id_fkey FOREIGN KEY (player_id) REFERENCES players(id) NOT VALID;
+    END IF;
+END $$;
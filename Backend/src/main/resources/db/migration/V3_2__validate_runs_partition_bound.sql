@@ -0,0 +1,17 @@
+-- Scans runs to validate the bound and foreign key added by V3_1. VALIDATE CONSTRAINT takes
+-- SHARE UPDATE EXCLUSIVE, so reads and writes continue during the scan; it gets a transaction of
+-- its own because the ACCESS EXCLUSIVE lock V3_1 took would otherwise be held throughout.
+
+ALTER TABLE runs VALIDATE CONSTRAINT runs_created_at_bound;
+
+-- The foreign key V3_1 added; one that came with the schema is valid already
+DO $$
+DECLARE
+    constraint_name name;
+BEGIN
+    FOR constraint_name IN
+        SELECT conname FROM pg_constraint WHERE conrelid = 'runs'::regclass AND contype = 'f' AND NOT convalidated
+    LOOP
+        EXECUTE format('ALTER TABLE runs VALIDATE CONSTRAINT %I', constraint_name);
+    END LOOP;
+END $$;
@@ -0,0 +1,7 @@
+-- The partitioned runs of V4 has PRIMARY KEY (id, created_at), and a partition must carry a
+-- matching unique index. Without one the ATTACH would build it while holding ACCESS EXCLUSIVE on
+-- the whole table, so it is built here CONCURRENTLY, with writes continuing, and V4 turns it into
+-- the table's primary key. Runs outside a transaction (V3_3__runs_partition_key_index.sql.conf);
+-- a failed build leaves an INVALID index that IF NOT EXISTS would skip, so drop it before retrying.
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS runs_id_created_at_idx ON runs (id, created_at);
@@ -0,0 +1,15 @@
+-- Indexes for the per-request queries. CONCURRENTLY keeps runs and player_sessions writable
+-- while they build. It cannot run inside a transaction block, so V3__hot_query_indexes.sql.conf
+-- sets executeInTransaction=false, and spring.flyway.postgresql.transactional-lock=false keeps
+-- Flyway's own lock from holding a transaction the build would wait on. A build that fails
+-- leaves an INVALID index behind, which IF NOT EXISTS would then skip: drop it before retrying.
+
+-- Run history pages (ORDER BY score DESC, id DESC with keyset cursor), a player's best runs,
+-- MAX(score) per player for the leaderboard and the player_stats aggregates
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_runs_player_score_id
+    ON runs (player_id, score DESC, id DESC);
+
+-- deactivateAllPlayerSessions and findAllByPlayerIdAndIsActive(.., true): only active rows,
+-- which stay a small fraction of the table as sessions expire
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_player_sessions_player_active
+    ON player_sessions (player_id) WHERE is_active;
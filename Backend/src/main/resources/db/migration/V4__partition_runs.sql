@@ -0,0 +1,57 @@
+-- runs becomes a table range-partitioned by created_at, one partition per month, kept by
+-- RunPartitionMaintenance (partitions for the coming months, archival of old ones).
+-- The old table is attached as a single partition covering everything before next month, so no
+-- row is copied. Everything below only changes the catalog: the CHECK validated by V3_2 proves
+-- the bound, so the ATTACH does not scan; the unique index V3_3 built becomes the partition's
+-- primary key, and the legacy index and foreign key are attached as they are, so nothing is
+-- built or validated. The ACCESS EXCLUSIVE lock taken by the RENAME is held until commit;
+-- lock_timeout keeps the wait for it from stalling traffic (the migration fails and is retried).
+
+SET LOCAL lock_timeout = '5s';
+
+ALTER TABLE runs RENAME TO runs_legacy;
+ALTER INDEX IF EXISTS idx_runs_player_score_id RENAME TO runs_legacy_player_score_id_idx;
+
+-- The primary key on id alone gives way to one on (id, created_at) over V3_3's index, matching
+-- the new table's; this also frees the runs_pkey name. The foreign key V3_1 ensured is renamed.
+DO $$
+DECLARE
+    primary_key name;
+BEGIN
+    SELECT conname INTO primary_key FROM pg_constraint WHERE conrelid = 'runs_legacy'::regclass AND contype = 'p';
+    IF primary_key IS NOT NULL THEN
+        EXECUTE format('ALTER TABLE runs_legacy DROP CONSTRAINT %I', primary_key);
+    END IF;
+    ALTER TABLE runs_legacy ADD CONSTRAINT runs_legacy_pkey PRIMARY KEY USING INDEX runs_id_created_at_idx;
+    IF EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'runs_legacy'::regclass AND conname = 'runs_player_id_fkey') THEN
+        ALTER TABLE runs_legacy RENAME CONSTRAINT runs_player_id_fkey TO runs_legacy_player_id_fkey;
+    END IF;
+END $$;
+
+CREATE TABLE runs (
+    id uuid DEFAULT gen_random_uuid() NOT NULL,
+    player_id uuid NOT NULL,
+    time_elapsed double precision DEFAULT 0 NOT NULL,
+    score integer DEFAULT 0,
+    level_reached integer DEFAULT 1,
+    created_at timestamp without time zone DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    ended_at timestamp without time zone,
+    -- The partition key has to be part of the primary key; ids stay unique as UUIDs
+    CONSTRAINT runs_pkey PRIMARY KEY (id, created_at),
+    CONSTRAINT runs_player_id_fkey FOREIGN KEY (player_id) REFERENCES players(id)
+) PARTITION BY RANGE (created_at);
+
+-- Created on every partition; the legacy table's equivalent index is attached, not rebuilt
+CREATE INDEX idx_runs_player_score_id ON runs (player_id, score DESC, id DESC);
+
+DO $$
+BEGIN
+    EXECUTE format('ALTER TABLE runs ATTACH PARTITION runs_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                   date_trunc('month', now()) + interval '1 month');
+END $$;
+
+-- Implied by the partition bound from here on
+ALTER TABLE runs_legacy DROP CONSTRAINT runs_created_at_bound;
+
+-- Safety net for rows outside every monthly partition (e.g. maintenance not run yet)
+CREATE TABLE runs_default PARTITION OF runs DEFAULT;
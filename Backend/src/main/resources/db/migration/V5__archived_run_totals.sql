@@ -0,0 +1,13 @@
+-- Per-player aggregates of the runs RunPartitionMaintenance has archived to files and dropped,
+-- folded in within the same transaction as the DROP. PlayerStatsService and LeaderboardIndex
+-- add them to what is still in runs, so totals and bests survive archival.
+
+CREATE TABLE IF NOT EXISTS archived_run_totals (
+    player_id uuid NOT NULL,
+    total_runs bigint DEFAULT 0 NOT NULL,
+    total_play_time double precision DEFAULT 0 NOT NULL,
+    best_score integer DEFAULT 0 NOT NULL,
+    best_run_id uuid,
+    highest_level integer DEFAULT 0 NOT NULL,
+    CONSTRAINT archived_run_totals_pkey PRIMARY KEY (player_id)
+);
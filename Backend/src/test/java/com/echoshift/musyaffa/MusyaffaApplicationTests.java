@@ -1,13 +1,108 @@
 package com.echoshift.musyaffa;
 
+import com.echoshift.musyaffa.datasource.SqlStatements;
+import com.echoshift.musyaffa.web.SqlBudgetFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
-@SpringBootTest
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+// The scheduled write-behind flush is pushed out of the way so it never lands between a PUT and
+// the PATCH that flushes its buffered state
+@SpringBootTest(properties = {
+		"echoshift.runs.write-behind.enabled=true",
+		"echoshift.runs.write-behind.flush-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
 class MusyaffaApplicationTests {
 
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
 	@Test
 	void contextLoads() {
 	}
 
+	/**
+	 * Exact SQL statement counts of the per-request endpoints (write-behind on).
+	 * A change that adds a round trip fails here; update the count only if the query is meant to be there.
+	 */
+	@Test
+	void statementsPerEndpoint() throws Exception {
+		String username = "statements-" + UUID.randomUUID();
+		String credentials = "{\"username\":\"" + username + "\",\"password\":\"pw\"}";
+
+		// username check, player insert, session insert
+		JsonNode registration = body(assertStatements(3, post("/api/players").contentType(MediaType.APPLICATION_JSON).content(credentials)));
+		String playerId = registration.at("/data/player/id").asText();
+		// player by username, deactivate old sessions, session insert
+		JsonNode login = body(assertStatements(3, post("/api/players/login").contentType(MediaType.APPLICATION_JSON).content(credentials)));
+		String sessionToken = login.at("/data/sessionToken").asText();
+		// principal cached at login; player by id
+		assertStatements(1, get("/api/players/session/validate").header(HttpHeaders.AUTHORIZATION, sessionToken));
+
+		// run insert, stats update that misses, stats row insert, stats update (first run of the player)
+		JsonNode run = body(assertStatements(4, post("/api/runs").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":5}")));
+		String runId = run.at("/data/id").asText();
+		// run lookup; the score itself goes to the write-behind buffer
+		assertStatements(1, put("/api/runs/" + runId).header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":6}"));
+		// buffered state flushed with its stats delta, ended_at set, run reloaded, final score and stats delta
+		assertStatements(6, patch("/api/runs/" + runId + "/end").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":7}"));
+
+		MvcResult history = assertStatements(1, get("/api/runs/" + playerId));
+		assertStatements(0, get("/api/runs/" + playerId).header(HttpHeaders.IF_NONE_MATCH, history.getResponse().getHeader(HttpHeaders.ETAG)));
+		assertStatements(1, get("/api/runs/" + playerId + "/archive"));
+		assertStatements(1, get("/api/players/" + playerId + "/stats"));
+		assertStatements(0, get("/api/leaderboard"));
+		assertStatements(0, get("/api/leaderboard/rank/" + playerId));
+
+		// run lookup, delete, player's next best run for the leaderboard, stats delta, stats best/highest recomputed
+		assertStatements(5, delete("/api/runs/" + runId).header(HttpHeaders.AUTHORIZATION, sessionToken));
+		assertStatements(1, post("/api/players/logout").header(HttpHeaders.AUTHORIZATION, sessionToken));
+	}
+
+	/**
+	 * Perform the request and assert it succeeded with exactly the expected number of SQL statements
+	 */
+	private MvcResult assertStatements(int expected, MockHttpServletRequestBuilder request) throws Exception {
+		MvcResult result = mockMvc.perform(request).andReturn();
+		String endpoint = result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+		int status = result.getResponse().getStatus();
+		assertTrue(status < 400, () -> endpoint + " returned " + status);
+		SqlStatements.Recording recording = (SqlStatements.Recording) result.getRequest().getAttribute(SqlBudgetFilter.RECORDING_ATTRIBUTE);
+		assertNotNull(recording, () -> endpoint + " was not recorded");
+		assertEquals(expected, recording.getCount(), () -> endpoint + " executed " + recording.getStatements());
+		return result;
+	}
+
+	private JsonNode body(MvcResult result) throws Exception {
+		return objectMapper.readTree(result.getResponse().getContentAsString());
+	}
+
 }
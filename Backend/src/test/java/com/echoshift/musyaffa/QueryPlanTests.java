@@ -0,0 +1,216 @@
+package com.echoshift.musyaffa;
+
+import com.echoshift.musyaffa.datasource.SqlStatements;
+import com.echoshift.musyaffa.web.SqlBudgetFilter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Drives the per-request endpoints against PostgreSQL 16 in a container, with the schema built
+ * by the Flyway migrations (V4's partitioned runs included) and a few hundred thousand seeded
+ * rows, captures the SQL each request executes (SqlStatements) and runs EXPLAIN (GENERIC_PLAN)
+ * on every statement. Fails if a plan sequentially scans a table that holds data; empty
+ * partitions such as runs_default are scanned for free.
+ *
+ * Skipped where Docker is not available.
+ */
+@SpringBootTest(properties = {
+		"spring.flyway.enabled=true",
+		"spring.jpa.hibernate.ddl-auto=none",
+		"echoshift.runs.partitions.enabled=true",
+		// Run updates go straight to the database, so their UPDATE is captured too
+		"echoshift.runs.write-behind.enabled=false"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+@EnabledIf("dockerAvailable")
+class QueryPlanTests {
+
+	// Tables below this many rows (by the planner's estimate) may be scanned
+	private static final int SCANNABLE_ROWS = 1000;
+
+	private static final Pattern SEQ_SCAN = Pattern.compile("Seq Scan on (\\w+)");
+
+	private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	// Statements captured per endpoint, in request order
+	private final Map<String, Set<String>> statements = new LinkedHashMap<>();
+
+	static boolean dockerAvailable() {
+		return DockerClientFactory.instance().isDockerAvailable();
+	}
+
+	@DynamicPropertySource
+	static void postgres(DynamicPropertyRegistry registry) {
+		POSTGRES.start();
+		registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+		registry.add("spring.datasource.username", POSTGRES::getUsername);
+		registry.add("spring.datasource.password", POSTGRES::getPassword);
+	}
+
+	@Test
+	void perRequestStatementsUseIndexes() throws Exception {
+		seed();
+
+		String credentials = "{\"username\":\"explain-" + UUID.randomUUID() + "\",\"password\":\"pw\"}";
+		String playerId = body(record(post("/api/players").contentType(MediaType.APPLICATION_JSON).content(credentials)))
+				.at("/data/player/id").asText();
+		String sessionToken = body(record(post("/api/players/login").contentType(MediaType.APPLICATION_JSON).content(credentials)))
+				.at("/data/sessionToken").asText();
+		record(get("/api/players/session/validate").header(HttpHeaders.AUTHORIZATION, sessionToken));
+
+		String runId = body(record(post("/api/runs").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":5}"))).at("/data/id").asText();
+		record(post("/api/runs/batch").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("[{\"score\":3},{\"score\":4}]"));
+		record(put("/api/runs/" + runId).header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":6}"));
+		record(patch("/api/runs/" + runId + "/end").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":7}"));
+
+		String cursor = body(record(get("/api/runs/" + playerId).param("limit", "1"))).at("/nextCursor").asText();
+		record(get("/api/runs/" + playerId).param("limit", "1").param("cursor", cursor));
+		record(get("/api/runs/" + playerId + "/archive"));
+		record(get("/api/players/" + playerId + "/stats"));
+		record(get("/api/leaderboard"));
+		record(get("/api/leaderboard/rank/" + playerId));
+
+		record(delete("/api/runs/" + runId).header(HttpHeaders.AUTHORIZATION, sessionToken));
+		record(post("/api/players/logout").header(HttpHeaders.AUTHORIZATION, sessionToken));
+
+		Set<String> populated = new HashSet<>(jdbcTemplate.queryForList(
+				"SELECT relname FROM pg_class WHERE relkind = 'r' AND reltuples >= ?", String.class, SCANNABLE_ROWS));
+		List<String> failures = new ArrayList<>();
+		for (Map.Entry<String, Set<String>> endpoint : statements.entrySet()) {
+			for (String sql : endpoint.getValue()) {
+				String plan;
+				try {
+					plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN (GENERIC_PLAN) " + numberParameters(sql), String.class));
+				} catch (RuntimeException e) {
+					failures.add(endpoint.getKey() + ": could not EXPLAIN " + sql + "\n" + e.getMessage());
+					continue;
+				}
+				Matcher scan = SEQ_SCAN.matcher(plan);
+				while (scan.find()) {
+					if (populated.contains(scan.group(1))) {
+						failures.add(endpoint.getKey() + " scans " + scan.group(1) + ":\n" + sql + "\n" + plan);
+						break;
+					}
+				}
+			}
+		}
+		assertTrue(failures.isEmpty(), String.join("\n\n", failures));
+	}
+
+	/**
+	 * 5000 players with 40 runs each over the last year, ten sessions each, their stats and
+	 * archived totals for half of them
+	 */
+	private void seed() {
+		jdbcTemplate.execute("INSERT INTO players (username, password) " +
+				"SELECT 'seed-' || g, 'x' FROM generate_series(1, 5000) g");
+		// They all land in the partition V4 made of the old table
+		jdbcTemplate.execute("INSERT INTO runs (player_id, time_elapsed, score, level_reached, created_at) " +
+				"SELECT p.id, random() * 600, (random() * 10000)::int, 1 + (random() * 20)::int, now() - random() * interval '365 days' " +
+				"FROM players p, generate_series(1, 40)");
+		// The newest session of each player is still active
+		jdbcTemplate.execute("INSERT INTO player_sessions (session_token, player_id, is_active, created_at) " +
+				"SELECT gen_random_uuid()::text, p.id, g = 1, now() - g * interval '9 days' " +
+				"FROM players p, generate_series(1, 10) g");
+		jdbcTemplate.execute("INSERT INTO player_stats (player_id, total_runs, best_score, total_play_time, highest_level) " +
+				"SELECT player_id, COUNT(*), MAX(score), SUM(time_elapsed), MAX(level_reached) FROM runs GROUP BY player_id");
+		jdbcTemplate.execute("INSERT INTO archived_run_totals (player_id, total_runs, total_play_time, best_score, best_run_id, highest_level) " +
+				"SELECT id, 10, 600, 5000, gen_random_uuid(), 10 FROM players WHERE username LIKE 'seed-%' AND random() < 0.5");
+		jdbcTemplate.execute("ANALYZE");
+	}
+
+	/**
+	 * Perform the request, check it succeeded and keep the statements it executed
+	 */
+	private MvcResult record(MockHttpServletRequestBuilder request) throws Exception {
+		MvcResult result = mockMvc.perform(request).andReturn();
+		String endpoint = result.getRequest().getMethod() + " " + result.getRequest().getRequestURI();
+		int status = result.getResponse().getStatus();
+		assertTrue(status < 400, () -> endpoint + " returned " + status);
+		SqlStatements.Recording recording = (SqlStatements.Recording) result.getRequest().getAttribute(SqlBudgetFilter.RECORDING_ATTRIBUTE);
+		assertNotNull(recording, () -> endpoint + " was not recorded");
+		for (String sql : recording.getStatements()) {
+			String verb = sql.stripLeading().toLowerCase(Locale.ROOT);
+			if (verb.startsWith("select") || verb.startsWith("insert") || verb.startsWith("update")
+					|| verb.startsWith("delete") || verb.startsWith("with")) {
+				statements.computeIfAbsent(endpoint, key -> new LinkedHashSet<>()).add(sql);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * JDBC ? placeholders as the $1, $2, ... EXPLAIN (GENERIC_PLAN) accepts; quoted text is left alone
+	 */
+	static String numberParameters(String sql) {
+		StringBuilder numbered = new StringBuilder(sql.length() + 8);
+		boolean quoted = false;
+		int parameter = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (c == '\'') {
+				quoted = !quoted;
+			}
+			if (c == '?' && !quoted) {
+				numbered.append('$').append(++parameter);
+			} else {
+				numbered.append(c);
+			}
+		}
+		return numbered.toString();
+	}
+
+	private JsonNode body(MvcResult result) throws Exception {
+		return objectMapper.readTree(result.getResponse().getContentAsString());
+	}
+}
@@ -0,0 +1,193 @@
+package com.echoshift.musyaffa.controllers;
+
+import com.echoshift.musyaffa.services.PasswordService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Password checks on login (legacy rows, wrong passwords, a saturated hashing pool) and player stats
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class PlayerControllerTests {
+
+	// Registration and login are rate limited per address, so each request comes from its own
+	private static final AtomicInteger ADDRESSES = new AtomicInteger();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void legacyPlainTextPasswordIsUpgradedOnLogin() throws Exception {
+		String username = "legacy-" + UUID.randomUUID();
+		// Written before hashing was introduced: the raw password, no {id} prefix
+		jdbcTemplate.update("INSERT INTO players (id, username, password, experience) VALUES (?, ?, 'legacy-pw', 0)",
+				UUID.randomUUID(), username);
+
+		assertEquals(200, login(username, "legacy-pw").getResponse().getStatus());
+		String stored = storedPassword(username);
+		assertTrue(stored.startsWith("{bcrypt}"), stored);
+
+		// The upgraded hash verifies, the old plain value no longer matches as a hash
+		assertEquals(200, login(username, "legacy-pw").getResponse().getStatus());
+		assertEquals(stored, storedPassword(username));
+	}
+
+	@Test
+	void wrongPasswordsAreRejected() throws Exception {
+		String username = "wrong-" + UUID.randomUUID();
+		mockMvc.perform(post("/api/players").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + username + "\",\"password\":\"right-pw\"}")
+				.with(request -> {
+					request.setRemoteAddr("10.0.5." + ADDRESSES.incrementAndGet());
+					return request;
+				})).andReturn();
+
+		MvcResult wrong = login(username, "wrong-pw");
+		assertEquals(401, wrong.getResponse().getStatus());
+		assertEquals("Invalid username or password", body(wrong).at("/message").asText());
+		// An unknown username gets the same answer
+		MvcResult unknown = login("unknown-" + UUID.randomUUID(), "right-pw");
+		assertEquals(401, unknown.getResponse().getStatus());
+		assertEquals("Invalid username or password", body(unknown).at("/message").asText());
+		assertEquals(200, login(username, "right-pw").getResponse().getStatus());
+	}
+
+	@Test
+	void statsComeFromTheMaintainedRow() throws Exception {
+		JsonNode registration = body(mockMvc.perform(post("/api/players").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"stats-" + UUID.randomUUID() + "\",\"password\":\"pw\"}")
+				.with(request -> {
+					request.setRemoteAddr("10.0.5." + ADDRESSES.incrementAndGet());
+					return request;
+				})).andReturn());
+		String playerId = registration.at("/data/player/id").asText();
+		String sessionToken = registration.at("/data/sessionToken").asText();
+
+		// Registered but no run yet: zeros rather than 404
+		MvcResult empty = mockMvc.perform(get("/api/players/" + playerId + "/stats")).andReturn();
+		assertEquals(200, empty.getResponse().getStatus());
+		assertEquals(0, body(empty).at("/data/totalRuns").asLong());
+
+		for (String run : new String[] {
+				"{\"score\":40,\"timeElapsed\":12.5,\"levelReached\":3}",
+				"{\"score\":90,\"timeElapsed\":30.0,\"levelReached\":2}"}) {
+			mockMvc.perform(post("/api/runs").header(HttpHeaders.AUTHORIZATION, sessionToken)
+					.contentType(MediaType.APPLICATION_JSON).content(run)).andReturn();
+		}
+
+		MvcResult stats = mockMvc.perform(get("/api/players/" + playerId + "/stats")).andReturn();
+		assertEquals(200, stats.getResponse().getStatus());
+		assertTrue(MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(stats.getResponse().getContentType())));
+		JsonNode data = body(stats).at("/data");
+		assertEquals(playerId, data.at("/playerId").asText());
+		assertEquals(2, data.at("/totalRuns").asLong());
+		assertEquals(90, data.at("/bestScore").asInt());
+		assertEquals(42.5, data.at("/totalPlayTime").asDouble(), 0.01);
+		assertEquals(3, data.at("/highestLevel").asInt());
+
+		MvcResult unknown = mockMvc.perform(get("/api/players/" + UUID.randomUUID() + "/stats")).andReturn();
+		assertEquals(404, unknown.getResponse().getStatus());
+		assertEquals("Player not found", body(unknown).at("/message").asText());
+	}
+
+	/**
+	 * One hashing thread and a queue of one, both taken by slow checks before the login
+	 */
+	@Nested
+	@TestPropertySource(properties = {
+			"echoshift.password.hashing.threads=1",
+			"echoshift.password.hashing.queue-capacity=1",
+			"echoshift.password.hashing.max-wait-ms=30000"
+	})
+	class SaturatedHashing {
+
+		// Its own context, so its own MockMvc rather than the enclosing instance's
+		@Autowired
+		private MockMvc saturatedMockMvc;
+
+		@Autowired
+		private PasswordService passwordService;
+
+		@Autowired
+		private MeterRegistry meterRegistry;
+
+		@Test
+		void loginAnswers503WithRetryAfter() throws Exception {
+			// Verifying takes the stored hash's cost, whatever the configured strength
+			String slowHash = "{bcrypt}" + new BCryptPasswordEncoder(14).encode("pw");
+			// One hashing thread busy and one check queued, each caller blocked on its own thread
+			ExecutorService callers = Executors.newFixedThreadPool(2);
+			Future<?> running = callers.submit(() -> passwordService.matches("pw", slowHash));
+			Future<?> queued = callers.submit(() -> passwordService.matches("pw", slowHash));
+			try {
+				while (meterRegistry.get("executor.queued").tag("name", "passwordHashing").gauge().value() < 1
+						|| meterRegistry.get("executor.active").tag("name", "passwordHashing").gauge().value() < 1) {
+					Thread.sleep(5);
+				}
+
+				MvcResult busy = login(saturatedMockMvc, "busy-" + UUID.randomUUID(), "pw");
+				assertEquals(503, busy.getResponse().getStatus());
+				assertEquals("1", busy.getResponse().getHeader("Retry-After"));
+				assertEquals("Server is busy, please retry", body(busy).at("/message").asText());
+			} finally {
+				running.get();
+				queued.get();
+				callers.shutdown();
+			}
+		}
+	}
+
+	private MvcResult login(String username, String password) throws Exception {
+		return login(mockMvc, username, password);
+	}
+
+	private MvcResult login(MockMvc mockMvc, String username, String password) throws Exception {
+		return mockMvc.perform(post("/api/players/login").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + username + "\",\"password\":\"" + password + "\"}")
+				.with(request -> {
+					request.setRemoteAddr("10.0.5." + ADDRESSES.incrementAndGet());
+					return request;
+				})).andReturn();
+	}
+
+	private String storedPassword(String username) {
+		return jdbcTemplate.queryForObject("SELECT password FROM players WHERE username = ?", String.class, username);
+	}
+
+	private JsonNode body(MvcResult result) throws Exception {
+		return objectMapper.readTree(result.getResponse().getContentAsString());
+	}
+}
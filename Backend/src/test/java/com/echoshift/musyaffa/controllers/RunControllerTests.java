@@ -0,0 +1,344 @@
+package com.echoshift.musyaffa.controllers;
+
+import com.echoshift.musyaffa.services.AdminAccess;
+import com.echoshift.musyaffa.services.RunArchive;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class RunControllerTests {
+
+	// Registration is rate limited per address, so each test's player signs up from its own
+	private static final AtomicInteger ADDRESSES = new AtomicInteger();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private RunArchive runArchive;
+
+	@Test
+	void malformedStreamLineReportsWhatWasCommitted() throws Exception {
+		JsonNode registration = register("stream");
+		String sessionToken = registration.at("/data/sessionToken").asText();
+		UUID playerId = UUID.fromString(registration.at("/data/player/id").asText());
+
+		MvcResult result = mockMvc.perform(post("/api/runs/batch").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType("application/x-ndjson")
+				.content("{\"score\":1}\n{\"score\":2}\n{\"score\":oops}\n{\"score\":4}\n")).andReturn();
+
+		JsonNode results = objectMapper.readTree(result.getResponse().getContentAsString()).at("/data");
+		assertEquals(201, result.getResponse().getStatus());
+		assertEquals(3, results.size());
+		assertTrue(results.get(0).at("/success").asBoolean());
+		assertTrue(results.get(1).at("/success").asBoolean());
+		assertFalse(results.get(2).at("/success").asBoolean());
+		assertTrue(results.get(2).at("/message").asText().contains("line 3"), results.get(2).at("/message").asText());
+		assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM runs WHERE player_id = ?", Integer.class, playerId));
+	}
+
+	@Test
+	void jsonArraySpanningSeveralChunksReportsEveryItem() throws Exception {
+		JsonNode registration = register("batch");
+		UUID playerId = UUID.fromString(registration.at("/data/player/id").asText());
+		// Three chunks of the default 50; the invalid item sits in the second
+		StringBuilder batch = new StringBuilder("[");
+		for (int i = 0; i < 120; i++) {
+			batch.append(i > 0 ? "," : "").append("{\"score\":").append(i == 60 ? -1 : i).append('}');
+		}
+
+		MvcResult result = mockMvc.perform(post("/api/runs/batch").header(HttpHeaders.AUTHORIZATION, registration.at("/data/sessionToken").asText())
+				.contentType(MediaType.APPLICATION_JSON).content(batch.append(']').toString())).andReturn();
+
+		assertEquals(201, result.getResponse().getStatus());
+		JsonNode body = objectMapper.readTree(result.getResponse().getContentAsString());
+		assertEquals("Batch processed: 119 created, 1 failed", body.at("/message").asText());
+		JsonNode results = body.at("/data");
+		assertEquals(120, results.size());
+		for (int i = 0; i < 120; i++) {
+			assertEquals(i, results.get(i).at("/index").asInt());
+			assertEquals(i != 60, results.get(i).at("/success").asBoolean(), "item " + i);
+		}
+		assertEquals("Score cannot be negative", results.get(60).at("/message").asText());
+		// The rest of its chunk and the chunks around it are written
+		assertEquals(119, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM runs WHERE player_id = ?", Integer.class, playerId));
+		assertEquals(119, jdbcTemplate.queryForObject("SELECT total_runs FROM player_stats WHERE player_id = ?", Integer.class, playerId));
+	}
+
+	@Test
+	void malformedElementInAJsonArrayRejectsTheWholeBatch() throws Exception {
+		JsonNode registration = register("batch");
+		UUID playerId = UUID.fromString(registration.at("/data/player/id").asText());
+
+		// The array is bound before anything is written, so nothing is committed
+		MvcResult result = mockMvc.perform(post("/api/runs/batch").header(HttpHeaders.AUTHORIZATION, registration.at("/data/sessionToken").asText())
+				.contentType(MediaType.APPLICATION_JSON).content("[{\"score\":1},{\"score\":oops},{\"score\":3}]")).andReturn();
+
+		assertEquals(400, result.getResponse().getStatus());
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM runs WHERE player_id = ?", Integer.class, playerId));
+	}
+
+	@Test
+	void malformedStreamLineAfterAFullChunkKeepsEverythingBeforeIt() throws Exception {
+		JsonNode registration = register("stream");
+		UUID playerId = UUID.fromString(registration.at("/data/player/id").asText());
+		// A full chunk of 50 is committed while reading, the next 24 after the bad line 75
+		StringBuilder stream = new StringBuilder();
+		for (int line = 1; line <= 80; line++) {
+			stream.append(line == 75 ? "{\"score\":oops}" : "{\"score\":" + line + "}").append('\n');
+		}
+
+		MvcResult result = mockMvc.perform(post("/api/runs/batch").header(HttpHeaders.AUTHORIZATION, registration.at("/data/sessionToken").asText())
+				.contentType("application/x-ndjson").content(stream.toString())).andReturn();
+
+		assertEquals(201, result.getResponse().getStatus());
+		JsonNode results = objectMapper.readTree(result.getResponse().getContentAsString()).at("/data");
+		assertEquals(75, results.size());
+		for (int i = 0; i < 74; i++) {
+			assertTrue(results.get(i).at("/success").asBoolean(), "item " + i);
+		}
+		assertFalse(results.get(74).at("/success").asBoolean());
+		assertTrue(results.get(74).at("/message").asText().contains("line 75"), results.get(74).at("/message").asText());
+		// Lines after the bad one are never read
+		assertEquals(74, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM runs WHERE player_id = ?", Integer.class, playerId));
+	}
+
+	@Test
+	void historyLeavesOlderRunsToTheArchive() throws Exception {
+		JsonNode registration = register("history");
+		UUID playerId = UUID.fromString(registration.at("/data/player/id").asText());
+		mockMvc.perform(post("/api/runs").header(HttpHeaders.AUTHORIZATION, registration.at("/data/sessionToken").asText())
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":10}")).andReturn();
+		// Created the day before the hot window starts, with a better score than the recent run
+		jdbcTemplate.update("INSERT INTO runs (id, player_id, time_elapsed, score, level_reached, created_at) VALUES (?, ?, 1.0, 99, 1, ?)",
+				UUID.randomUUID(), playerId, Timestamp.valueOf(runArchive.hotCutoff().minusDays(1)));
+
+		JsonNode hot = objectMapper.readTree(mockMvc.perform(get("/api/runs/" + playerId)).andReturn().getResponse().getContentAsString());
+		assertEquals(1, hot.at("/data").size());
+		assertEquals(10, hot.at("/data/0/score").asInt());
+		assertTrue(hot.at("/nextCursor").isMissingNode() || hot.at("/nextCursor").isNull());
+
+		JsonNode archived = objectMapper.readTree(mockMvc.perform(get("/api/runs/" + playerId + "/archive")).andReturn().getResponse().getContentAsString());
+		assertEquals(1, archived.at("/data").size());
+		assertEquals(99, archived.at("/data/0/score").asInt());
+	}
+
+	@Test
+	void historyPagesFollowTheKeysetCursor() throws Exception {
+		UUID playerId = UUID.fromString(register("cursor").at("/data/player/id").asText());
+		// Three runs tie on score; within a tie pages continue by id, descending
+		long prefix = UUID.randomUUID().getMostSignificantBits();
+		UUID best = insertRun(new UUID(prefix, 9), playerId, 30);
+		UUID tiedLow = insertRun(new UUID(prefix, 1), playerId, 20);
+		UUID tiedHigh = insertRun(new UUID(prefix, 3), playerId, 20);
+		UUID tiedMiddle = insertRun(new UUID(prefix, 2), playerId, 20);
+		UUID worst = insertRun(new UUID(prefix, 8), playerId, 10);
+
+		JsonNode first = history(playerId, null);
+		assertEquals(List.of(best.toString(), tiedHigh.toString()), ids(first));
+		JsonNode second = history(playerId, first.at("/nextCursor").asText());
+		assertEquals(List.of(tiedMiddle.toString(), tiedLow.toString()), ids(second));
+		JsonNode last = history(playerId, second.at("/nextCursor").asText());
+		assertEquals(List.of(worst.toString()), ids(last));
+		assertTrue(last.at("/nextCursor").isMissingNode() || last.at("/nextCursor").isNull());
+	}
+
+	@Test
+	void rejectsInvalidCursors() throws Exception {
+		UUID playerId = UUID.randomUUID();
+		for (String cursor : List.of("not-a-cursor", "", "MTA6bm90LWEtdXVpZA")) {
+			MvcResult result = mockMvc.perform(get("/api/runs/" + playerId).param("cursor", cursor)).andReturn();
+			assertEquals(400, result.getResponse().getStatus(), cursor);
+			assertEquals("Invalid cursor", objectMapper.readTree(result.getResponse().getContentAsString()).at("/message").asText());
+		}
+	}
+
+	private UUID insertRun(UUID id, UUID playerId, int score) {
+		jdbcTemplate.update("INSERT INTO runs (id, player_id, time_elapsed, score, level_reached, created_at) VALUES (?, ?, 1.0, ?, 1, ?)",
+				id, playerId, score, Timestamp.valueOf(LocalDateTime.now()));
+		return id;
+	}
+
+	private JsonNode history(UUID playerId, String cursor) throws Exception {
+		MvcResult result = mockMvc.perform(cursor != null
+				? get("/api/runs/" + playerId).param("limit", "2").param("cursor", cursor)
+				: get("/api/runs/" + playerId).param("limit", "2")).andReturn();
+		assertEquals(200, result.getResponse().getStatus());
+		return objectMapper.readTree(result.getResponse().getContentAsString());
+	}
+
+	@Test
+	void exportStreamsNdjsonAndCsvToAdmins() throws Exception {
+		JsonNode registration = register("export");
+		String playerId = registration.at("/data/player/id").asText();
+		for (int score : new int[] {5, 8}) {
+			mockMvc.perform(post("/api/runs").header(HttpHeaders.AUTHORIZATION, registration.at("/data/sessionToken").asText())
+					.contentType(MediaType.APPLICATION_JSON).content("{\"score\":" + score + "}")).andReturn();
+		}
+
+		MvcResult ndjson = export(get("/api/runs/export").param("playerId", playerId)
+				.header(AdminAccess.HEADER, "test-admin-token"));
+		assertEquals(200, ndjson.getResponse().getStatus());
+		assertEquals("application/x-ndjson", MediaType.parseMediaType(ndjson.getResponse().getContentType()).toString());
+		assertEquals("attachment; filename=\"runs-" + playerId + ".ndjson\"", ndjson.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION));
+		String[] lines = ndjson.getResponse().getContentAsString().split("\n");
+		assertEquals(2, lines.length);
+		List<Integer> scores = new ArrayList<>();
+		for (String line : lines) {
+			JsonNode run = objectMapper.readTree(line);
+			assertEquals(playerId, run.at("/playerId").asText());
+			scores.add(run.at("/score").asInt());
+		}
+		scores.sort(null);
+		assertEquals(List.of(5, 8), scores);
+
+		MvcResult csv = export(get("/api/runs/export").param("playerId", playerId).param("format", "csv")
+				.header(AdminAccess.HEADER, "test-admin-token"));
+		assertEquals(200, csv.getResponse().getStatus());
+		assertEquals("text/csv", MediaType.parseMediaType(csv.getResponse().getContentType()).toString());
+		assertEquals("attachment; filename=\"runs-" + playerId + ".csv\"", csv.getResponse().getHeader(HttpHeaders.CONTENT_DISPOSITION));
+		String[] rows = csv.getResponse().getContentAsString().split("\n");
+		assertEquals("id,player_id,time_elapsed,score,level_reached,created_at,ended_at", rows[0]);
+		assertEquals(3, rows.length);
+		assertTrue(rows[1].contains(playerId), rows[1]);
+	}
+
+	@Test
+	void exportRejectsNonAdminsAndUnknownFormats() throws Exception {
+		MvcResult anonymous = export(get("/api/runs/export"));
+		assertEquals(403, anonymous.getResponse().getStatus());
+		MvcResult wrongToken = export(get("/api/runs/export").header(AdminAccess.HEADER, "guess"));
+		assertEquals(403, wrongToken.getResponse().getStatus());
+		assertEquals("Admin access required", objectMapper.readTree(wrongToken.getResponse().getContentAsString()).at("/message").asText());
+
+		MvcResult xml = export(get("/api/runs/export").param("format", "xml")
+				.header(AdminAccess.HEADER, "test-admin-token"));
+		assertEquals(400, xml.getResponse().getStatus());
+		assertEquals(MediaType.APPLICATION_JSON_VALUE, xml.getResponse().getContentType());
+		assertEquals("Format must be ndjson or csv", objectMapper.readTree(xml.getResponse().getContentAsString()).at("/message").asText());
+	}
+
+	@Test
+	void runsNegotiateCbor() throws Exception {
+		JsonNode registration = register("cbor");
+		String playerId = registration.at("/data/player/id").asText();
+		ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+
+		MvcResult created = mockMvc.perform(post("/api/runs").header(HttpHeaders.AUTHORIZATION, registration.at("/data/sessionToken").asText())
+				.contentType(MediaType.APPLICATION_CBOR).accept(MediaType.APPLICATION_CBOR)
+				.content(cbor.writeValueAsBytes(Map.of("score", 12, "levelReached", 2)))).andReturn();
+		assertEquals(201, created.getResponse().getStatus());
+		assertEquals(MediaType.APPLICATION_CBOR_VALUE, created.getResponse().getContentType());
+		JsonNode run = cbor.readTree(created.getResponse().getContentAsByteArray()).at("/data");
+		assertEquals(12, run.at("/score").asInt());
+		assertEquals(2, run.at("/levelReached").asInt());
+		// UUIDs travel as 16 binary bytes rather than 36 characters
+		String runId = cbor.treeToValue(run.at("/id"), UUID.class).toString();
+
+		MvcResult history = mockMvc.perform(get("/api/runs/" + playerId).accept(MediaType.APPLICATION_CBOR)).andReturn();
+		assertEquals(MediaType.APPLICATION_CBOR_VALUE, history.getResponse().getContentType());
+		assertEquals(HttpHeaders.ACCEPT, history.getResponse().getHeader(HttpHeaders.VARY));
+		JsonNode runs = cbor.readTree(history.getResponse().getContentAsByteArray()).at("/data");
+		assertEquals(1, runs.size());
+		assertEquals(runId, cbor.treeToValue(runs.get(0).at("/id"), UUID.class).toString());
+
+		// Clients that accept anything keep getting JSON
+		MvcResult json = mockMvc.perform(get("/api/runs/" + playerId).accept(MediaType.ALL)).andReturn();
+		assertEquals(MediaType.APPLICATION_JSON_VALUE, json.getResponse().getContentType());
+		assertEquals(List.of(runId), ids(objectMapper.readTree(json.getResponse().getContentAsString())));
+	}
+
+	@Test
+	void historyRevalidatesWithItsETag() throws Exception {
+		JsonNode registration = register("etag");
+		String playerId = registration.at("/data/player/id").asText();
+		String sessionToken = registration.at("/data/sessionToken").asText();
+		mockMvc.perform(post("/api/runs").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":3}")).andReturn();
+
+		MvcResult first = mockMvc.perform(get("/api/runs/" + playerId)).andReturn();
+		String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+		assertEquals(200, first.getResponse().getStatus());
+		assertTrue(etag != null && !etag.isEmpty());
+		assertEquals("no-cache", first.getResponse().getHeader(HttpHeaders.CACHE_CONTROL));
+
+		MvcResult unchanged = mockMvc.perform(get("/api/runs/" + playerId).header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+		assertEquals(304, unchanged.getResponse().getStatus());
+		assertEquals(etag, unchanged.getResponse().getHeader(HttpHeaders.ETAG));
+		assertEquals(0, unchanged.getResponse().getContentAsByteArray().length);
+
+		// The CBOR body is another representation with its own tag
+		MvcResult cbor = mockMvc.perform(get("/api/runs/" + playerId).accept(MediaType.APPLICATION_CBOR)
+				.header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+		assertEquals(200, cbor.getResponse().getStatus());
+		assertNotEquals(etag, cbor.getResponse().getHeader(HttpHeaders.ETAG));
+
+		// A new run changes the history, so the old tag no longer matches
+		mockMvc.perform(post("/api/runs").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":4}")).andReturn();
+		MvcResult changed = mockMvc.perform(get("/api/runs/" + playerId).header(HttpHeaders.IF_NONE_MATCH, etag)).andReturn();
+		assertEquals(200, changed.getResponse().getStatus());
+		assertNotEquals(etag, changed.getResponse().getHeader(HttpHeaders.ETAG));
+		assertEquals(2, ids(objectMapper.readTree(changed.getResponse().getContentAsString())).size());
+	}
+
+	private static List<String> ids(JsonNode page) {
+		List<String> ids = new ArrayList<>();
+		page.at("/data").forEach(run -> ids.add(run.at("/id").asText()));
+		return ids;
+	}
+
+	/**
+	 * Export bodies, error bodies included, are written asynchronously after the handler returns
+	 */
+	private MvcResult export(MockHttpServletRequestBuilder request) throws Exception {
+		MvcResult started = mockMvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+		return mockMvc.perform(asyncDispatch(started)).andReturn();
+	}
+
+	private JsonNode register(String prefix) throws Exception {
+		return objectMapper.readTree(mockMvc.perform(post("/api/players").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"" + prefix + "-" + UUID.randomUUID() + "\",\"password\":\"pw\"}")
+				.with(request -> {
+					request.setRemoteAddr("10.0.4." + ADDRESSES.incrementAndGet());
+					return request;
+				})).andReturn().getResponse().getContentAsString());
+	}
+}
@@ -0,0 +1,24 @@
+package com.echoshift.musyaffa.datasource;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReadYourWritesTests {
+
+	@Test
+	void windowMustOutlastTheStalestReplicaInUse() {
+		assertThrows(IllegalStateException.class,
+				() -> new ReadYourWrites(true, Duration.ofSeconds(5), 100, Duration.ofSeconds(10), 5000));
+		assertThrows(IllegalStateException.class,
+				() -> new ReadYourWrites(true, Duration.ofSeconds(15), 100, Duration.ofSeconds(10), 5000));
+		assertThrows(IllegalStateException.class,
+				() -> new ReadYourWrites(true, Duration.ofSeconds(20), 100, Duration.ZERO, 5000));
+		assertDoesNotThrow(() -> new ReadYourWrites(true, Duration.ofSeconds(20), 100, Duration.ofSeconds(10), 5000));
+		// Without replicas every read is on the primary anyway
+		assertDoesNotThrow(() -> new ReadYourWrites(false, Duration.ofSeconds(5), 100, Duration.ofSeconds(10), 5000));
+	}
+}
@@ -0,0 +1,72 @@
+package com.echoshift.musyaffa.reactive;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Ending runs through the reactive endpoints: the experience award commits with the end of the run
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles({"test", "reactive"})
+@AutoConfigureWebTestClient
+class ReactiveRunControllerTests {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void endingARunAwardsExperienceOnce() throws Exception {
+		JsonNode owner = register();
+		JsonNode other = register();
+		String sessionToken = owner.at("/data/sessionToken").asText();
+		String runId = objectMapper.readTree(webTestClient.post().uri("/api/runs").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).bodyValue("{\"score\":50}")
+				.exchange().expectStatus().isCreated().expectBody(String.class).returnResult().getResponseBody()).at("/data/id").asText();
+
+		// Another player cannot end it, and earns nothing for trying
+		endRun(runId, other.at("/data/sessionToken").asText()).expectStatus().isForbidden();
+		assertEquals(0, experience(other));
+
+		endRun(runId, sessionToken).expectStatus().isOk().expectBody().jsonPath("$.data.score").isEqualTo(100);
+		assertEquals(10, experience(owner));
+
+		// A retry is answered again but does not award twice
+		endRun(runId, sessionToken).expectStatus().isOk();
+		assertEquals(10, experience(owner));
+	}
+
+	private JsonNode register() throws Exception {
+		return objectMapper.readTree(webTestClient.post().uri("/api/players").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"username\":\"reactive-run-" + UUID.randomUUID() + "\",\"password\":\"pw\"}")
+				.exchange().expectStatus().isCreated().expectBody(String.class).returnResult().getResponseBody());
+	}
+
+	private WebTestClient.ResponseSpec endRun(String runId, String sessionToken) {
+		return webTestClient.patch().uri("/api/runs/" + runId + "/end").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).bodyValue("{\"score\":100}").exchange();
+	}
+
+	private int experience(JsonNode player) {
+		return jdbcTemplate.queryForObject("SELECT experience FROM players WHERE id = ?", Integer.class,
+				UUID.fromString(player.at("/data/player/id").asText()));
+	}
+}
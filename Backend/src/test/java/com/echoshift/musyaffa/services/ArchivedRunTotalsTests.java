@@ -0,0 +1,112 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.LeaderboardEntry;
+import com.echoshift.musyaffa.models.Player;
+import com.echoshift.musyaffa.models.Run;
+import com.echoshift.musyaffa.repositories.PlayerRepository;
+import com.echoshift.musyaffa.repositories.RunRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs archived out of the runs table (folded into archived_run_totals when their partition is
+ * dropped) keep counting towards player stats and the leaderboard.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ArchivedRunTotalsTests {
+
+	@Autowired
+	private PlayerRepository playerRepository;
+
+	@Autowired
+	private RunRepository runRepository;
+
+	@Autowired
+	private PlayerStatsService playerStatsService;
+
+	@Autowired
+	private LeaderboardIndex leaderboardIndex;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void rebuildAddsArchivedTotals() {
+		UUID playerId = newPlayer();
+		newRun(playerId, 40, 10f, 2);
+		archive(playerId, 3, 30.0, 90, UUID.randomUUID(), 5);
+
+		playerStatsService.rebuild(100);
+
+		Map<String, Object> stats = stats(playerId);
+		assertEquals(4L, ((Number) stats.get("total_runs")).longValue());
+		assertEquals(40.0, ((Number) stats.get("total_play_time")).doubleValue(), 0.01);
+		assertEquals(90, ((Number) stats.get("best_score")).intValue());
+		assertEquals(5, ((Number) stats.get("highest_level")).intValue());
+	}
+
+	@Test
+	void deletingLiveRunsKeepsArchivedMaxima() {
+		UUID playerId = newPlayer();
+		UUID runId = newRun(playerId, 40, 10f, 2);
+		archive(playerId, 3, 30.0, 25, UUID.randomUUID(), 7);
+		playerStatsService.rebuild(100);
+
+		runRepository.deleteById(runId);
+		playerStatsService.runDeleted(playerId, 10f);
+
+		Map<String, Object> stats = stats(playerId);
+		assertEquals(3L, ((Number) stats.get("total_runs")).longValue());
+		assertEquals(25, ((Number) stats.get("best_score")).intValue());
+		assertEquals(7, ((Number) stats.get("highest_level")).intValue());
+	}
+
+	@Test
+	void leaderboardKeepsArchivedBest() {
+		UUID playerId = newPlayer();
+		UUID archivedRunId = UUID.randomUUID();
+		UUID runId = newRun(playerId, 40, 10f, 2);
+		archive(playerId, 1, 5.0, 70, archivedRunId, 3);
+		leaderboardIndex.reloadArchived();
+
+		leaderboardIndex.refreshPlayer(playerId);
+		LeaderboardEntry entry = leaderboardIndex.rankOf(playerId).orElseThrow();
+		assertEquals(70, entry.getScore().intValue());
+
+		runRepository.deleteById(runId);
+		leaderboardIndex.runDeleted(playerId, runId);
+		assertEquals(70, leaderboardIndex.rankOf(playerId).orElseThrow().getScore().intValue());
+
+		leaderboardIndex.warm();
+		assertEquals(70, leaderboardIndex.rankOf(playerId).orElseThrow().getScore().intValue());
+	}
+
+	private void archive(UUID playerId, long runs, double playTime, int bestScore, UUID bestRunId, int highestLevel) {
+		jdbcTemplate.update("INSERT INTO archived_run_totals (player_id, total_runs, total_play_time, best_score, best_run_id, highest_level) " +
+				"VALUES (?, ?, ?, ?, ?, ?)", playerId, runs, playTime, bestScore, bestRunId, highestLevel);
+	}
+
+	private Map<String, Object> stats(UUID playerId) {
+		return jdbcTemplate.queryForMap(
+				"SELECT total_runs, total_play_time, best_score, highest_level FROM player_stats WHERE player_id = ?", playerId);
+	}
+
+	private UUID newPlayer() {
+		return playerRepository.save(new Player("archived-" + UUID.randomUUID(), "x")).getId();
+	}
+
+	private UUID newRun(UUID playerId, int score, float timeElapsed, int levelReached) {
+		Run run = runRepository.save(new Run(playerId, timeElapsed, score, levelReached));
+		playerStatsService.runsCreated(playerId, 1, timeElapsed, score, levelReached);
+		return run.getId();
+	}
+}
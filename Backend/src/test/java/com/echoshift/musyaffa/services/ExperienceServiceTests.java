@@ -0,0 +1,94 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.models.Player;
+import com.echoshift.musyaffa.repositories.PlayerRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Buffered experience awards; the scheduled flush is pushed out of the way
+ */
+@SpringBootTest(properties = {
+		"echoshift.experience.buffer.enabled=true",
+		"echoshift.experience.buffer.flush-interval-ms=3600000"
+})
+@ActiveProfiles("test")
+@DirtiesContext
+class ExperienceServiceTests {
+
+	@Autowired
+	private ExperienceService experienceService;
+
+	@Autowired
+	private PlayerRepository playerRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void awardsOfRolledBackTransactionsAreNotBuffered() {
+		Player player = playerRepository.save(new Player("experience-" + UUID.randomUUID(), "x"));
+
+		transactionTemplate.executeWithoutResult(status -> {
+			experienceService.award(player.getId(), 5);
+			status.setRollbackOnly();
+		});
+		transactionTemplate.executeWithoutResult(status -> experienceService.award(player.getId(), 7));
+
+		assertEquals(7, experienceService.currentExperience(playerRepository.findById(player.getId()).orElseThrow()));
+		experienceService.flush();
+		assertEquals(7, storedExperience(player.getId()));
+	}
+
+	@Test
+	void awardsRacingWithShutdownAreAllWritten() throws Exception {
+		Player player = playerRepository.save(new Player("experience-" + UUID.randomUUID(), "x"));
+		int threads = 4;
+		int awardsPerThread = 200;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					for (int j = 0; j < awardsPerThread; j++) {
+						experienceService.award(player.getId(), 1);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			experienceService.flushOnShutdown();
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		experienceService.flush();
+		assertEquals(threads * awardsPerThread, storedExperience(player.getId()));
+	}
+
+	private int storedExperience(UUID playerId) {
+		return jdbcTemplate.queryForObject("SELECT experience FROM players WHERE id = ?", Integer.class, playerId);
+	}
+}
@@ -0,0 +1,146 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.LeaderboardEntry;
+import com.echoshift.musyaffa.dto.PlayerBestRun;
+import com.echoshift.musyaffa.repositories.ArchivedRunTotalsRepository;
+import com.echoshift.musyaffa.repositories.RunRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The treap behind the leaderboard (ranks, ties, removal) and rebuilds racing with updates
+ */
+class LeaderboardIndexTests {
+
+	private final RunRepository runRepository = mock(RunRepository.class);
+	private final LeaderboardIndex index = new LeaderboardIndex(runRepository, mock(ArchivedRunTotalsRepository.class));
+
+	@Test
+	void tiedScoresShareARank() {
+		UUID first = record("first", 200);
+		UUID tied = record("tied", 200);
+		UUID third = record("third", 100);
+		UUID last = record("last", 50);
+
+		List<LeaderboardEntry> top = index.top(10);
+		assertEquals(List.of(1, 1, 3, 4), top.stream().map(LeaderboardEntry::getRank).toList());
+		assertEquals(List.of(200, 200, 100, 50), top.stream().map(LeaderboardEntry::getScore).toList());
+		assertEquals(1, index.rankOf(first).orElseThrow().getRank());
+		assertEquals(1, index.rankOf(tied).orElseThrow().getRank());
+		assertEquals(3, index.rankOf(third).orElseThrow().getRank());
+		assertEquals(4, index.rankOf(last).orElseThrow().getRank());
+		assertEquals(2, index.top(2).size());
+	}
+
+	@Test
+	void keepsEachPlayersBestRun() {
+		UUID playerId = UUID.randomUUID();
+		UUID best = UUID.randomUUID();
+		index.recordRun(playerId, "player", best, 100);
+		index.recordRun(playerId, "player", UUID.randomUUID(), 80);
+		assertEquals(100, index.rankOf(playerId).orElseThrow().getScore().intValue());
+
+		index.recordRun(playerId, "player", UUID.randomUUID(), 150);
+		assertEquals(150, index.rankOf(playerId).orElseThrow().getScore().intValue());
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	void removedPlayersMakeRoom() {
+		UUID first = record("first", 300);
+		UUID second = record("second", 200);
+		UUID third = record("third", 100);
+
+		index.removePlayer(first);
+		assertTrue(index.rankOf(first).isEmpty());
+		assertEquals(1, index.rankOf(second).orElseThrow().getRank());
+		assertEquals(2, index.rankOf(third).orElseThrow().getRank());
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	void ranksMatchASortedList() {
+		Random random = new Random(42);
+		Map<UUID, Integer> scores = new HashMap<>();
+		for (int i = 0; i < 2000; i++) {
+			int score = random.nextInt(500);
+			scores.put(record("player-" + i, score), score);
+		}
+		List<UUID> players = new ArrayList<>(scores.keySet());
+		for (int i = 0; i < 500; i++) {
+			UUID removed = players.remove(random.nextInt(players.size()));
+			index.removePlayer(removed);
+			scores.remove(removed);
+		}
+
+		for (Map.Entry<UUID, Integer> player : scores.entrySet()) {
+			long higher = scores.values().stream().filter(score -> score > player.getValue()).count();
+			assertEquals(higher + 1, index.rankOf(player.getKey()).orElseThrow().getRank());
+		}
+		List<LeaderboardEntry> top = index.top(scores.size());
+		assertEquals(scores.size(), top.size());
+		for (int i = 1; i < top.size(); i++) {
+			assertTrue(top.get(i - 1).getScore() >= top.get(i).getScore());
+		}
+	}
+
+	@Test
+	void warmKeepsUpdatesArrivingDuringTheQuery() {
+		UUID improved = UUID.randomUUID();
+		UUID deleted = UUID.randomUUID();
+		UUID unchanged = UUID.randomUUID();
+		when(runRepository.findBestRunPerPlayer()).thenAnswer(invocation -> {
+			// Applied after the snapshot below was read
+			index.recordRun(improved, "improved", UUID.randomUUID(), 500);
+			index.removePlayer(deleted);
+			return List.of(
+					new PlayerBestRun(improved, "improved", UUID.randomUUID(), 300),
+					new PlayerBestRun(deleted, "deleted", UUID.randomUUID(), 200),
+					new PlayerBestRun(unchanged, "unchanged", UUID.randomUUID(), 100));
+		});
+
+		index.warm();
+
+		assertEquals(500, index.rankOf(improved).orElseThrow().getScore().intValue());
+		assertTrue(index.rankOf(deleted).isEmpty());
+		assertEquals(2, index.rankOf(unchanged).orElseThrow().getRank());
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	void refreshKeepsUpdatesArrivingDuringTheQuery() {
+		UUID playerId = UUID.randomUUID();
+		UUID best = UUID.randomUUID();
+		index.recordRun(playerId, "player", best, 100);
+		when(runRepository.findBestRunsForPlayer(eq(playerId), any(Pageable.class))).thenAnswer(invocation -> {
+			// A new best recorded while the next best was being read
+			index.recordRun(playerId, "player", UUID.randomUUID(), 150);
+			return List.of(new PlayerBestRun(playerId, "player", UUID.randomUUID(), 80));
+		});
+
+		index.runDeleted(playerId, best);
+
+		assertEquals(150, index.rankOf(playerId).orElseThrow().getScore().intValue());
+		assertEquals(1, index.size());
+	}
+
+	private UUID record(String username, int score) {
+		UUID playerId = UUID.randomUUID();
+		index.recordRun(playerId, username, UUID.randomUUID(), score);
+		return playerId;
+	}
+}
@@ -0,0 +1,79 @@
+package com.echoshift.musyaffa.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hash formats, legacy plain values, rehash decisions and the bounded hashing pool
+ */
+class PasswordServiceTests {
+
+	private final PasswordService passwords = new PasswordService(new SimpleMeterRegistry(), 4, 2, 8, 2000);
+
+	@AfterEach
+	void shutdown() {
+		passwords.shutdown();
+	}
+
+	@Test
+	void hashesVerifyAndWrongPasswordsDoNot() {
+		String hash = passwords.hash("secret");
+		assertTrue(hash.startsWith("{bcrypt}"), hash);
+		assertTrue(passwords.matches("secret", hash));
+		assertFalse(passwords.matches("Secret", hash));
+		assertFalse(passwords.needsRehash(hash));
+	}
+
+	@Test
+	void legacyPlainValuesVerifyAndNeedARehash() {
+		assertTrue(passwords.matches("legacy-pw", "legacy-pw"));
+		assertFalse(passwords.matches("other-pw", "legacy-pw"));
+		assertTrue(passwords.needsRehash("legacy-pw"));
+	}
+
+	@Test
+	void weakerHashesNeedARehash() {
+		PasswordService stronger = new PasswordService(new SimpleMeterRegistry(), 5, 1, 1, 2000);
+		try {
+			assertTrue(stronger.needsRehash(passwords.hash("secret")));
+		} finally {
+			stronger.shutdown();
+		}
+	}
+
+	@Test
+	void saturatedPoolRejectsStraightAway() throws Exception {
+		// Its own registry: a second "passwordHashing" executor would share the first one's gauges
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		PasswordService saturated = new PasswordService(meterRegistry, 4, 1, 1, 30_000);
+		String slowHash = "{bcrypt}" + new BCryptPasswordEncoder(14).encode("pw");
+		// One hashing thread busy and one check queued, each caller blocked on its own thread
+		ExecutorService callers = Executors.newFixedThreadPool(2);
+		Future<?> running = callers.submit(() -> saturated.matches("pw", slowHash));
+		Future<?> queued = callers.submit(() -> saturated.matches("pw", slowHash));
+		try {
+			while (meterRegistry.get("executor.queued").tag("name", "passwordHashing").gauge().value() < 1) {
+				Thread.sleep(5);
+			}
+
+			assertThrows(PasswordHashingBusyException.class, () -> saturated.matches("pw", "pw"));
+			assertEquals(1.0, meterRegistry.get("echoshift.password_hashing.rejected").counter().count());
+		} finally {
+			running.get();
+			queued.get();
+			callers.shutdown();
+			saturated.shutdown();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.RunResponse;
+import com.echoshift.musyaffa.models.Player;
+import com.echoshift.musyaffa.models.Run;
+import com.echoshift.musyaffa.repositories.PlayerRepository;
+import com.echoshift.musyaffa.repositories.RunRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Archive files and their per-player index, written from a table shaped like a detached partition
+ */
+@SpringBootTest(properties = "echoshift.runs.archive.directory=target/run-archive-tests")
+@ActiveProfiles("test")
+class RunArchiveTests {
+
+	private static final String TABLE = "runs_p200001";
+	private static final Path DIRECTORY = Paths.get("target/run-archive-tests");
+
+	@Autowired
+	private RunArchive runArchive;
+
+	@Autowired
+	private PlayerRepository playerRepository;
+
+	@Autowired
+	private RunRepository runRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void cleanUp() throws Exception {
+		jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+		Files.deleteIfExists(DIRECTORY.resolve(TABLE + RunArchive.FILE_SUFFIX));
+		Files.deleteIfExists(DIRECTORY.resolve(TABLE + RunArchive.INDEX_SUFFIX));
+	}
+
+	@Test
+	void readsOnePlayersRunsThroughTheIndex() throws Exception {
+		List<UUID> players = new ArrayList<>();
+		List<UUID> runs = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			UUID playerId = playerRepository.save(new Player("archive-" + UUID.randomUUID(), "x")).getId();
+			players.add(playerId);
+			for (int j = 0; j < 3; j++) {
+				runs.add(runRepository.save(new Run(playerId, 1f + j, i * 10 + j, 1)).getId());
+			}
+		}
+		String ids = runs.stream().map(id -> "'" + id + "'").collect(Collectors.joining(", "));
+		jdbcTemplate.execute("CREATE TABLE " + TABLE + " AS SELECT * FROM runs WHERE id IN (" + ids + ")");
+		jdbcTemplate.execute("DELETE FROM runs WHERE id IN (" + ids + ")");
+
+		assertEquals(60, runArchive.archiveTable(TABLE));
+		assertTrue(Files.exists(DIRECTORY.resolve(TABLE + RunArchive.INDEX_SUFFIX)));
+
+		for (UUID playerId : players) {
+			List<RunResponse> page = runArchive.coldHistoryPage(playerId, null, 10);
+			assertEquals(3, page.size());
+			assertTrue(page.stream().allMatch(run -> run.getPlayerId().equals(playerId)));
+			assertTrue(page.get(0).getScore() > page.get(1).getScore());
+		}
+		assertTrue(runArchive.coldHistoryPage(UUID.randomUUID(), null, 10).isEmpty());
+
+		// The per-player gzip members still read as one CSV
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				new GZIPInputStream(Files.newInputStream(DIRECTORY.resolve(TABLE + RunArchive.FILE_SUFFIX))), StandardCharsets.UTF_8))) {
+			assertEquals(RunArchive.CSV_HEADER, reader.readLine());
+			assertEquals(60, reader.lines().count());
+		}
+
+		// Files without an index fall back to a full scan
+		Files.delete(DIRECTORY.resolve(TABLE + RunArchive.INDEX_SUFFIX));
+		assertEquals(3, runArchive.coldHistoryPage(players.get(7), null, 10).size());
+	}
+}
@@ -0,0 +1,237 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.RunRequest;
+import com.echoshift.musyaffa.models.Player;
+import com.echoshift.musyaffa.models.Run;
+import com.echoshift.musyaffa.repositories.PlayerRepository;
+import com.echoshift.musyaffa.repositories.RunRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Write-behind buffer against the test database; the scheduled flush is pushed out of the way
+ * so each test decides when (and on which threads) flushes run.
+ */
+@SpringBootTest(properties = {
+		"echoshift.runs.write-behind.enabled=true",
+		"echoshift.runs.write-behind.flush-interval-ms=3600000",
+		"echoshift.runs.write-behind.batch-size=10"
+})
+@ActiveProfiles("test")
+class RunUpdateBufferTests {
+
+	@Autowired
+	private RunUpdateBuffer buffer;
+
+	@Autowired
+	private PlayerRepository playerRepository;
+
+	@Autowired
+	private RunRepository runRepository;
+
+	@Autowired
+	private PlayerStatsService playerStatsService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void coalescesUpdatesIntoOneWrite() {
+		UUID playerId = newPlayer();
+		UUID runId = newRun(playerId, 10, 5, 1);
+
+		buffer.update(runId, playerId, request(20, null, null));
+		buffer.update(runId, playerId, request(30, 7f, null));
+		buffer.update(runId, playerId, request(null, null, 3));
+		assertEquals(10, storedScore(runId));
+		assertEquals(30, buffer.pendingState(runId).orElseThrow().getScore());
+
+		buffer.flush();
+		assertTrue(buffer.pendingState(runId).isEmpty());
+		Map<String, Object> row = jdbcTemplate.queryForMap("SELECT score, time_elapsed, level_reached FROM runs WHERE id = ?", runId);
+		assertEquals(30, ((Number) row.get("score")).intValue());
+		assertEquals(7.0, ((Number) row.get("time_elapsed")).doubleValue(), 0.001);
+		assertEquals(3, ((Number) row.get("level_reached")).intValue());
+		assertStatsMatchRuns(playerId);
+	}
+
+	@Test
+	void rejectsUpdatesOfAnotherPlayersRun() {
+		UUID playerId = newPlayer();
+		UUID runId = newRun(playerId, 10, 5, 1);
+		UUID otherId = newPlayer();
+
+		assertThrows(RunNotOwnedException.class, () -> buffer.update(runId, otherId, request(99, null, null)));
+		buffer.update(runId, playerId, request(20, null, null));
+		assertThrows(RunNotOwnedException.class, () -> buffer.update(runId, otherId, request(99, null, null)));
+		assertEquals(20, buffer.pendingState(runId).orElseThrow().getScore());
+		buffer.flush(runId);
+	}
+
+	@Test
+	void deletedRunDoesNotChangeStats() {
+		UUID playerId = newPlayer();
+		UUID keptId = newRun(playerId, 10, 5, 1);
+		UUID deletedId = newRun(playerId, 20, 5, 1);
+
+		buffer.update(deletedId, playerId, request(40, 9f, null));
+		// Deleted behind the buffer's back, as if the delete won a race with this flush
+		jdbcTemplate.update("DELETE FROM runs WHERE id = ?", deletedId);
+		playerStatsService.runDeleted(playerId, 5);
+		buffer.flush();
+
+		assertEquals(10, storedScore(keptId));
+		assertStatsMatchRuns(playerId);
+	}
+
+	/**
+	 * A run ending (flush(id), then the final values saved) while the scheduled flush writes the
+	 * same runs must keep the final values and count every change in player_stats exactly once
+	 */
+	@Test
+	void endingRunsWhileFlushingKeepsFinalState() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			for (int round = 0; round < 20; round++) {
+				UUID playerId = newPlayer();
+				List<UUID> runIds = new ArrayList<>();
+				for (int i = 0; i < 30; i++) {
+					UUID runId = newRun(playerId, 10, 5, 1);
+					buffer.update(runId, playerId, request(50 + i, 6f, 2));
+					runIds.add(runId);
+				}
+
+				CountDownLatch start = new CountDownLatch(1);
+				Future<?> flushing = executor.submit(() -> {
+					start.await();
+					buffer.flush();
+					return null;
+				});
+				Future<?> ending = executor.submit(() -> {
+					start.await();
+					for (UUID runId : runIds) {
+						endRun(runId, 1000);
+					}
+					return null;
+				});
+				start.countDown();
+				flushing.get();
+				ending.get();
+				buffer.flush();
+
+				for (UUID runId : runIds) {
+					assertEquals(1000, storedScore(runId), "run " + runId + " lost its final score");
+				}
+				assertStatsMatchRuns(playerId);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Updates racing with flushes that detach their entry must never fail and never lose a value
+	 */
+	@Test
+	void updatesRacingWithFlushes() throws Exception {
+		UUID playerId = newPlayer();
+		UUID runId = newRun(playerId, 0, 0, 1);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			Future<?> updating = executor.submit(() -> {
+				start.await();
+				for (int score = 1; score <= 2000; score++) {
+					buffer.update(runId, playerId, request(score, (float) score, null));
+				}
+				return null;
+			});
+			Future<?> flushing = executor.submit(() -> {
+				start.await();
+				while (!updating.isDone()) {
+					buffer.flush();
+				}
+				return null;
+			});
+			Future<?> ending = executor.submit(() -> {
+				start.await();
+				while (!updating.isDone()) {
+					buffer.flush(runId);
+				}
+				return null;
+			});
+			start.countDown();
+			updating.get();
+			flushing.get();
+			ending.get();
+		} finally {
+			executor.shutdownNow();
+		}
+		buffer.flush();
+
+		assertEquals(2000, storedScore(runId));
+		assertStatsMatchRuns(playerId);
+	}
+
+	/**
+	 * What RunController.endRun does with the run once the buffer is out of the way
+	 */
+	private void endRun(UUID runId, int finalScore) {
+		buffer.flush(runId);
+		Run run = runRepository.findById(runId).orElseThrow();
+		Float oldTime = run.getTimeElapsed();
+		Integer oldScore = run.getScore();
+		Integer oldLevel = run.getLevelReached();
+		run.setScore(finalScore);
+		Run saved = runRepository.save(run);
+		playerStatsService.runChanged(new PlayerStatsService.RunChange(saved.getPlayerId(), oldTime, oldScore, oldLevel,
+				saved.getTimeElapsed(), saved.getScore(), saved.getLevelReached()));
+	}
+
+	private void assertStatsMatchRuns(UUID playerId) {
+		Map<String, Object> runs = jdbcTemplate.queryForMap(
+				"SELECT COUNT(*) AS total_runs, COALESCE(SUM(time_elapsed), 0) AS total_play_time, " +
+				"COALESCE(MAX(score), 0) AS best_score, COALESCE(MAX(level_reached), 0) AS highest_level " +
+				"FROM runs WHERE player_id = ?", playerId);
+		Map<String, Object> stats = jdbcTemplate.queryForMap(
+				"SELECT total_runs, total_play_time, best_score, highest_level FROM player_stats WHERE player_id = ?", playerId);
+		assertEquals(((Number) runs.get("total_runs")).longValue(), ((Number) stats.get("total_runs")).longValue(), "total_runs");
+		assertEquals(((Number) runs.get("total_play_time")).doubleValue(), ((Number) stats.get("total_play_time")).doubleValue(), 0.01, "total_play_time");
+		assertEquals(((Number) runs.get("best_score")).intValue(), ((Number) stats.get("best_score")).intValue(), "best_score");
+		assertEquals(((Number) runs.get("highest_level")).intValue(), ((Number) stats.get("highest_level")).intValue(), "highest_level");
+	}
+
+	private UUID newPlayer() {
+		return playerRepository.save(new Player("buffer-" + UUID.randomUUID(), "x")).getId();
+	}
+
+	private UUID newRun(UUID playerId, int score, float timeElapsed, int levelReached) {
+		Run run = runRepository.save(new Run(playerId, timeElapsed, score, levelReached));
+		playerStatsService.runsCreated(playerId, 1, timeElapsed, score, levelReached);
+		return run.getId();
+	}
+
+	private int storedScore(UUID runId) {
+		return jdbcTemplate.queryForObject("SELECT score FROM runs WHERE id = ?", Integer.class, runId);
+	}
+
+	private static RunRequest request(Integer score, Float timeElapsed, Integer levelReached) {
+		return new RunRequest(score, timeElapsed, levelReached);
+	}
+}
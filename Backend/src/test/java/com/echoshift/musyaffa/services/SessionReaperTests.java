@@ -0,0 +1,124 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.repositories.PlayerSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Budgeted reaper cycles against player_sessions. Rows get ids below any random UUID, and the
+ * table is cleared of purgeable rows first, so each cycle's batches are predictable; the
+ * scheduled reaper is off so no other cycle runs in between.
+ */
+@SpringBootTest(properties = "echoshift.session.reaper.enabled=false")
+@ActiveProfiles("test")
+class SessionReaperTests {
+
+	private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+	@Autowired
+	private PlayerSessionRepository playerSessionRepository;
+
+	@Autowired
+	private SessionService sessionService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private UUID playerId;
+	private long idPrefix;
+
+	@BeforeEach
+	void setUp() {
+		reaper(false, 1000, 60_000).reapCycle();
+		playerId = UUID.randomUUID();
+		jdbcTemplate.update("INSERT INTO players (id, username, password, experience) VALUES (?, ?, 'pw', 0)",
+				playerId, "reaper-" + playerId);
+		// A fresh range per test, still below every random UUID
+		idPrefix = 1 + (System.nanoTime() & 0xffffffL);
+	}
+
+	@Test
+	void deletesExpiredAndInactiveSessionsAndKeepsLiveOnes() {
+		UUID live = session(1, true, LocalDateTime.now());
+		UUID expired = session(2, true, LocalDateTime.now().minusDays(8));
+		UUID inactive = session(3, false, LocalDateTime.now());
+
+		assertEquals(2, reaper(false, 500, 60_000).reapCycle());
+
+		assertTrue(exists(live));
+		assertFalse(exists(expired));
+		assertFalse(exists(inactive));
+	}
+
+	@Test
+	void keepsInactiveSessionsUntilExpiryWithSignedTokens() {
+		UUID inactive = session(1, false, LocalDateTime.now());
+		UUID inactiveExpired = session(2, false, LocalDateTime.now().minusDays(8));
+
+		// The inactive row is a revocation record the deny list is rebuilt from
+		assertEquals(1, reaper(true, 500, 60_000).reapCycle());
+
+		assertTrue(exists(inactive));
+		assertFalse(exists(inactiveExpired));
+	}
+
+	@Test
+	void resumesAfterTheLastIdWhenTheBudgetRunsOut() {
+		List<UUID> ids = List.of(
+				session(10, false, LocalDateTime.now()),
+				session(11, false, LocalDateTime.now()),
+				session(12, false, LocalDateTime.now()),
+				session(13, false, LocalDateTime.now()),
+				session(14, false, LocalDateTime.now()));
+		// No budget: every cycle stops after its first batch
+		SessionReaper reaper = reaper(false, 2, 0);
+
+		assertEquals(2, reaper.reapCycle());
+		assertFalse(exists(ids.get(0)));
+		assertFalse(exists(ids.get(1)));
+		assertTrue(exists(ids.get(2)));
+
+		// Appears behind the position the next cycle resumes from
+		UUID behind = session(1, false, LocalDateTime.now());
+		assertEquals(2, reaper.reapCycle());
+		assertFalse(exists(ids.get(3)));
+		assertTrue(exists(behind));
+
+		// The short batch reaches the end of the table, and the cycle after starts over
+		assertEquals(1, reaper.reapCycle());
+		assertFalse(exists(ids.get(4)));
+		assertEquals(1, reaper.reapCycle());
+		assertFalse(exists(behind));
+	}
+
+	private SessionReaper reaper(boolean signedTokens, int batchSize, long timeBudgetMillis) {
+		SignedSessionTokens tokens = new SignedSessionTokens(new SimpleMeterRegistry(), signedTokens, signedTokens ? SECRET : "", Duration.ofDays(7));
+		return new SessionReaper(playerSessionRepository, sessionService, tokens, new SimpleMeterRegistry(), batchSize, timeBudgetMillis);
+	}
+
+	private UUID session(long sequence, boolean active, LocalDateTime createdAt) {
+		UUID id = new UUID(idPrefix, sequence);
+		jdbcTemplate.update("INSERT INTO player_sessions (id, session_token, player_id, is_active, created_at) VALUES (?, ?, ?, ?, ?)",
+				id, UUID.randomUUID().toString(), playerId, active, Timestamp.valueOf(createdAt));
+		return id;
+	}
+
+	private boolean exists(UUID id) {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM player_sessions WHERE id = ?", Integer.class, id) > 0;
+	}
+}
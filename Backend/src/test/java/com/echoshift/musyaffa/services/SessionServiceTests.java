@@ -0,0 +1,83 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import com.echoshift.musyaffa.repositories.PlayerSessionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * The principal cache in front of player_sessions and its invalidation on logout from all devices
+ */
+class SessionServiceTests {
+
+	private final PlayerSessionRepository repository = mock(PlayerSessionRepository.class);
+	private final SessionService sessions = new SessionService(repository,
+			new SignedSessionTokens(new SimpleMeterRegistry(), false, "", Duration.ofDays(7)),
+			new SimpleMeterRegistry(), 1000, Duration.ofMinutes(10), Duration.ofDays(7));
+
+	@Test
+	void logoutFromAllDevicesDropsOnlyThatPlayersTokens() {
+		SessionPrincipal player = active("player-token");
+		SessionPrincipal other = active("other-token");
+		assertEquals(player.getPlayerId(), sessions.resolve("player-token").orElseThrow().getPlayerId());
+		assertEquals(other.getPlayerId(), sessions.resolve("other-token").orElseThrow().getPlayerId());
+
+		sessions.deactivateAllPlayerSessions(player.getPlayerId());
+		when(repository.findPrincipalBySessionToken(eq("player-token"), any(LocalDateTime.class))).thenReturn(Optional.empty());
+
+		assertTrue(sessions.resolve("player-token").isEmpty());
+		assertTrue(sessions.resolveLocally("player-token").isEmpty());
+		// The other player's token is still served from the cache
+		assertTrue(sessions.resolve("other-token").isPresent());
+		verify(repository, times(1)).findPrincipalBySessionToken(eq("other-token"), any(LocalDateTime.class));
+	}
+
+	@Test
+	void aLoadRacingWithTheLogoutIsNotKept() {
+		SessionPrincipal principal = new SessionPrincipal(UUID.randomUUID(), "player");
+		when(repository.findPrincipalBySessionToken(eq("token"), any(LocalDateTime.class)))
+				.thenAnswer(invocation -> {
+					// The row was read as active, then the logout commits before the entry is cached
+					sessions.deactivateAllPlayerSessions(principal.getPlayerId());
+					return Optional.of(principal);
+				})
+				.thenReturn(Optional.empty());
+
+		// Caught as soon as it is cached: reloaded, and the reload sees the logout
+		assertTrue(sessions.resolve("token").isEmpty());
+		assertTrue(sessions.resolveLocally("token").isEmpty());
+		verify(repository, times(2)).findPrincipalBySessionToken(eq("token"), any(LocalDateTime.class));
+	}
+
+	@Test
+	void rememberedPrincipalsReadBeforeTheLogoutAreStale() {
+		SessionPrincipal principal = new SessionPrincipal(UUID.randomUUID(), "player");
+		long loadStamp = sessions.loadStamp();
+		sessions.deactivateAllPlayerSessions(principal.getPlayerId());
+		sessions.remember("token", principal, loadStamp);
+		assertTrue(sessions.resolveLocally("token").isEmpty());
+
+		sessions.remember("token", principal, sessions.loadStamp());
+		assertTrue(sessions.resolveLocally("token").isPresent());
+	}
+
+	private SessionPrincipal active(String sessionToken) {
+		SessionPrincipal principal = new SessionPrincipal(UUID.randomUUID(), sessionToken);
+		when(repository.findPrincipalBySessionToken(eq(sessionToken), any(LocalDateTime.class))).thenReturn(Optional.of(principal));
+		return principal;
+	}
+}
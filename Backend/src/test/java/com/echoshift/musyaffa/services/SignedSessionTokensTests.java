@@ -0,0 +1,106 @@
+package com.echoshift.musyaffa.services;
+
+import com.echoshift.musyaffa.dto.SessionPrincipal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Signature, expiry and revocation of signed session tokens
+ */
+class SignedSessionTokensTests {
+
+	private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+	private final SignedSessionTokens tokens = signer(Duration.ofDays(7));
+
+	@Test
+	void verifiesIssuedTokens() {
+		UUID playerId = UUID.randomUUID();
+		SignedSessionTokens.Token token = tokens.issue(playerId, "player");
+
+		SessionPrincipal principal = tokens.verify(token.getValue()).orElseThrow();
+		assertEquals(playerId, principal.getPlayerId());
+		assertEquals("player", principal.getUsername());
+		assertEquals(token.getId(), tokens.tokenId(token.getValue()).orElseThrow());
+	}
+
+	@Test
+	void everyTokenIsUnique() {
+		UUID playerId = UUID.randomUUID();
+		// Far more tokens than milliseconds pass, so issue times repeat
+		Set<String> ids = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			assertTrue(ids.add(tokens.issue(playerId, "player").getId()));
+		}
+	}
+
+	@Test
+	void rejectsTamperedAndForeignTokens() {
+		String token = tokens.issue(UUID.randomUUID(), "player").getValue();
+		int dot = token.lastIndexOf('.');
+
+		// Payload changed, signature kept
+		String payload = token.substring(0, dot - 1) + (token.charAt(dot - 1) == 'A' ? 'B' : 'A') + token.substring(dot);
+		assertTrue(tokens.verify(payload).isEmpty());
+		// Signature cut short
+		assertTrue(tokens.verify(token.substring(0, token.length() - 2)).isEmpty());
+		// Signed with another secret
+		SignedSessionTokens other = new SignedSessionTokens(new SimpleMeterRegistry(), true, SECRET.toUpperCase(), Duration.ofDays(7));
+		assertTrue(tokens.verify(other.issue(UUID.randomUUID(), "player").getValue()).isEmpty());
+		// Session ids from player_sessions are not signed tokens
+		assertTrue(tokens.verify(UUID.randomUUID().toString()).isEmpty());
+	}
+
+	@Test
+	void rejectsExpiredTokens() throws InterruptedException {
+		SignedSessionTokens shortLived = signer(Duration.ofMillis(50));
+		String token = shortLived.issue(UUID.randomUUID(), "player").getValue();
+		assertTrue(shortLived.verify(token).isPresent());
+
+		Thread.sleep(100);
+		assertTrue(shortLived.verify(token).isEmpty());
+	}
+
+	@Test
+	void revokesSingleTokensAndEverythingIssuedBefore() {
+		UUID playerId = UUID.randomUUID();
+		SignedSessionTokens.Token first = tokens.issue(playerId, "player");
+		SignedSessionTokens.Token second = tokens.issue(playerId, "player");
+
+		assertTrue(tokens.revoke(first.getValue()));
+		assertFalse(tokens.revoke(first.getValue()));
+		assertTrue(tokens.verify(first.getValue()).isEmpty());
+		assertTrue(tokens.verify(second.getValue()).isPresent());
+
+		tokens.revokeIssuedUpTo(playerId, Math.max(first.getIssuedAt(), second.getIssuedAt()));
+		assertTrue(tokens.verify(second.getValue()).isEmpty());
+		// A login right after the revocation is not caught by it
+		assertTrue(tokens.verify(tokens.issue(playerId, "player").getValue()).isPresent());
+	}
+
+	@Test
+	void disabledTokensVerifyNothing() {
+		SignedSessionTokens disabled = new SignedSessionTokens(new SimpleMeterRegistry(), false, "", Duration.ofDays(7));
+		assertTrue(disabled.verify(tokens.issue(UUID.randomUUID(), "player").getValue()).isEmpty());
+	}
+
+	@Test
+	void requiresALongSecret() {
+		assertThrows(IllegalStateException.class,
+				() -> new SignedSessionTokens(new SimpleMeterRegistry(), true, "too-short", Duration.ofDays(7)));
+	}
+
+	private static SignedSessionTokens signer(Duration ttl) {
+		return new SignedSessionTokens(new SimpleMeterRegistry(), true, SECRET, ttl);
+	}
+}
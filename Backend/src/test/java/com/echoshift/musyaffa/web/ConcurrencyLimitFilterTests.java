@@ -0,0 +1,79 @@
+package com.echoshift.musyaffa.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Permits are held for the whole request, async processing included
+ */
+class ConcurrencyLimitFilterTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(new ObjectMapper(), meterRegistry, 1, 0);
+
+	@Test
+	void synchronousRequestsReleaseWhenTheyReturn() throws Exception {
+		assertEquals(200, perform(false).getStatus());
+		assertEquals(0, inFlight());
+		assertEquals(200, perform(false).getStatus());
+	}
+
+	@Test
+	void asyncRequestsHoldTheirPermitUntilCompletion() throws Exception {
+		MockHttpServletRequest export = new MockHttpServletRequest("GET", "/api/runs/export");
+		export.setAsyncSupported(true);
+		filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+		// The first dispatch has returned but the body is still being written
+		assertEquals(1, inFlight());
+		MockHttpServletResponse shed = perform(false);
+		assertEquals(503, shed.getStatus());
+		assertEquals("1", shed.getHeader("Retry-After"));
+
+		((MockAsyncContext) export.getAsyncContext()).complete();
+		assertEquals(0, inFlight());
+		assertEquals(200, perform(false).getStatus());
+	}
+
+	@Test
+	void asyncErrorsReleaseOnce() throws Exception {
+		MockHttpServletRequest export = new MockHttpServletRequest("GET", "/api/runs/export");
+		export.setAsyncSupported(true);
+		filter.doFilter(export, new MockHttpServletResponse(), (request, response) -> request.startAsync());
+
+		MockAsyncContext asyncContext = (MockAsyncContext) export.getAsyncContext();
+		for (AsyncListener listener : asyncContext.getListeners()) {
+			listener.onError(new AsyncEvent(asyncContext, new IllegalStateException("client went away")));
+		}
+		asyncContext.complete();
+
+		assertEquals(0, inFlight());
+		// Released once only: still one permit, so a held request sheds the next
+		perform(true);
+		assertEquals(503, perform(false).getStatus());
+	}
+
+	private MockHttpServletResponse perform(boolean async) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/leaderboard");
+		request.setAsyncSupported(async);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, (servletRequest, servletResponse) -> {
+			if (async) {
+				servletRequest.startAsync();
+			}
+		});
+		return response;
+	}
+
+	private double inFlight() {
+		return meterRegistry.get("echoshift.concurrency_limit.in_flight").gauge().value();
+	}
+}
@@ -0,0 +1,136 @@
+package com.echoshift.musyaffa.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Retries carrying the same Idempotency-Key get the first response back instead of
+ * running the request again
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class IdempotencyFilterTests {
+
+	// Registration is rate limited per address, so each test's player signs up from its own
+	private static final AtomicInteger ADDRESSES = new AtomicInteger();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private String playerId;
+	private String sessionToken;
+
+	@BeforeEach
+	void register() throws Exception {
+		MvcResult registration = mockMvc.perform(post("/api/players").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"idempotency-" + UUID.randomUUID() + "\",\"password\":\"pw\"}")
+				.with(request -> {
+					request.setRemoteAddr("10.0.3." + ADDRESSES.incrementAndGet());
+					return request;
+				})).andReturn();
+		playerId = objectMapper.readTree(registration.getResponse().getContentAsString()).at("/data/player/id").asText();
+		sessionToken = objectMapper.readTree(registration.getResponse().getContentAsString()).at("/data/sessionToken").asText();
+	}
+
+	@Test
+	void replaysTheFirstResponse() throws Exception {
+		MvcResult first = createRun("first", "{\"score\":5}");
+		MvcResult retry = createRun("first", "{\"score\":5}");
+
+		assertEquals(201, retry.getResponse().getStatus());
+		assertEquals(first.getResponse().getContentAsString(), retry.getResponse().getContentAsString());
+		assertNull(first.getResponse().getHeader(IdempotentResponses.REPLAYED_HEADER));
+		assertEquals("true", retry.getResponse().getHeader(IdempotentResponses.REPLAYED_HEADER));
+		assertEquals(1, runCount());
+
+		// Another key is another request
+		assertNotEquals(first.getResponse().getContentAsString(), createRun("second", "{\"score\":5}").getResponse().getContentAsString());
+		assertEquals(2, runCount());
+	}
+
+	@Test
+	void concurrentRetriesRunOnce() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<MvcResult>> retries = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				retries.add(executor.submit(() -> createRun("concurrent", "{\"score\":7}")));
+			}
+			Set<String> bodies = new HashSet<>();
+			for (Future<MvcResult> retry : retries) {
+				assertEquals(201, retry.get().getResponse().getStatus());
+				bodies.add(retry.get().getResponse().getContentAsString());
+			}
+			assertEquals(1, bodies.size());
+			assertEquals(1, runCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void replaysEndingARun() throws Exception {
+		String runId = objectMapper.readTree(createRun("create", "{\"score\":5}").getResponse().getContentAsString()).at("/data/id").asText();
+
+		MvcResult first = endRun(runId, "end");
+		MvcResult retry = endRun(runId, "end");
+		assertEquals(200, retry.getResponse().getStatus());
+		assertEquals(first.getResponse().getContentAsString(), retry.getResponse().getContentAsString());
+		assertEquals("true", retry.getResponse().getHeader(IdempotentResponses.REPLAYED_HEADER));
+	}
+
+	@Test
+	void rejectsInvalidKeys() throws Exception {
+		assertEquals(400, createRun("x".repeat(IdempotentResponses.MAX_KEY_LENGTH + 1), "{\"score\":5}").getResponse().getStatus());
+		assertEquals(0, runCount());
+	}
+
+	private MvcResult createRun(String idempotencyKey, String body) throws Exception {
+		return mockMvc.perform(post("/api/runs").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.header(IdempotentResponses.HEADER, idempotencyKey)
+				.contentType(MediaType.APPLICATION_JSON).content(body)).andReturn();
+	}
+
+	private MvcResult endRun(String runId, String idempotencyKey) throws Exception {
+		return mockMvc.perform(patch("/api/runs/" + runId + "/end").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.header(IdempotentResponses.HEADER, idempotencyKey)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":9}")).andReturn();
+	}
+
+	private long runCount() {
+		return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM runs WHERE player_id = ?", Long.class, UUID.fromString(playerId));
+	}
+}
@@ -0,0 +1,85 @@
+package com.echoshift.musyaffa.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+
+/**
+ * Rate limits through the servlet filter and interceptor, with tiny buckets that do not refill
+ * during the test
+ */
+@SpringBootTest(properties = {
+		"echoshift.rate-limit.enabled=true",
+		"echoshift.rate-limit.run-updates.capacity=2",
+		"echoshift.rate-limit.run-updates.refill-per-second=0.001",
+		"echoshift.rate-limit.run-updates.address-capacity=4",
+		"echoshift.rate-limit.run-updates.address-refill-per-second=0.001"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+class RateLimitFilterTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void madeUpTokensHitTheAddressLimit() throws Exception {
+		for (int i = 0; i < 4; i++) {
+			assertEquals(401, status(update("10.0.1.1", UUID.randomUUID().toString())));
+		}
+		assertEquals(429, status(update("10.0.1.1", UUID.randomUUID().toString())));
+		assertEquals(401, status(update("10.0.1.2", UUID.randomUUID().toString())));
+	}
+
+	@Test
+	void validSessionsAreLimitedPerPlayer() throws Exception {
+		JsonNode registration = objectMapper.readTree(mockMvc.perform(post("/api/players").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"limited-" + UUID.randomUUID() + "\",\"password\":\"pw\"}")).andReturn().getResponse().getContentAsString());
+		String sessionToken = registration.at("/data/sessionToken").asText();
+		String runId = objectMapper.readTree(mockMvc.perform(post("/api/runs").header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":1}")).andReturn().getResponse().getContentAsString()).at("/data/id").asText();
+
+		assertEquals(200, status(update("10.0.2.1", sessionToken, runId)));
+		// Another address does not reset the player's bucket
+		assertEquals(200, status(update("10.0.2.2", sessionToken, runId)));
+		MockHttpServletResponse limited = mockMvc.perform(update("10.0.2.3", sessionToken, runId)).andReturn().getResponse();
+		assertEquals(429, limited.getStatus());
+		assertNotNull(limited.getHeader(HttpHeaders.RETRY_AFTER));
+	}
+
+	private int status(MockHttpServletRequestBuilder request) throws Exception {
+		return mockMvc.perform(request).andReturn().getResponse().getStatus();
+	}
+
+	private static MockHttpServletRequestBuilder update(String address, String sessionToken) {
+		return update(address, sessionToken, UUID.randomUUID().toString());
+	}
+
+	private static MockHttpServletRequestBuilder update(String address, String sessionToken, String runId) {
+		return put("/api/runs/" + runId).header(HttpHeaders.AUTHORIZATION, sessionToken)
+				.contentType(MediaType.APPLICATION_JSON).content("{\"score\":2}")
+				.with(request -> {
+					request.setRemoteAddr(address);
+					return request;
+				});
+	}
+}
@@ -0,0 +1,50 @@
+package com.echoshift.musyaffa.web;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitsTests {
+
+	// run updates: 3 per player, refilled at 20/s; 5 per address; login 2 per address at 0.2/s
+	private final RateLimits rateLimits = new RateLimits(new SimpleMeterRegistry(), 1000,
+			3, 20, 5, 20, 2, 0.2, 1, 0.05);
+
+	@Test
+	void burstThenRetryAfter() {
+		assertEquals(0, rateLimits.acquire("POST", "/api/players/login", "10.0.0.1"));
+		assertEquals(0, rateLimits.acquire("POST", "/api/players/login", "10.0.0.1"));
+		// One token every 5 seconds
+		long retryAfter = rateLimits.acquire("POST", "/api/players/login", "10.0.0.1");
+		assertTrue(retryAfter >= 1 && retryAfter <= 5, () -> "Retry-After " + retryAfter);
+		// Other addresses and unlimited endpoints are unaffected
+		assertEquals(0, rateLimits.acquire("POST", "/api/players/login", "10.0.0.2"));
+		assertEquals(0, rateLimits.acquire("GET", "/api/leaderboard", "10.0.0.1"));
+	}
+
+	@Test
+	void refillsAtTheSustainedRate() throws Exception {
+		UUID playerId = UUID.randomUUID();
+		for (int i = 0; i < 3; i++) {
+			assertEquals(0, rateLimits.acquireForPlayer("PUT", "/api/runs/" + UUID.randomUUID(), playerId));
+		}
+		assertTrue(rateLimits.acquireForPlayer("PATCH", "/api/runs/" + UUID.randomUUID() + "/end", playerId) > 0);
+		Thread.sleep(120);
+		assertEquals(0, rateLimits.acquireForPlayer("PUT", "/api/runs/" + UUID.randomUUID(), playerId));
+	}
+
+	@Test
+	void playerAndAddressLimitsAreSeparate() {
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, rateLimits.acquire("PUT", "/api/runs/" + UUID.randomUUID(), "10.0.0.3"));
+		}
+		assertTrue(rateLimits.acquire("PUT", "/api/runs/" + UUID.randomUUID(), "10.0.0.3") > 0);
+		// Address limits never apply per player, nor player limits per address
+		assertEquals(0, rateLimits.acquireForPlayer("PUT", "/api/runs/" + UUID.randomUUID(), UUID.randomUUID()));
+		assertEquals(0, rateLimits.acquireForPlayer("POST", "/api/players/login", UUID.randomUUID()));
+	}
+}
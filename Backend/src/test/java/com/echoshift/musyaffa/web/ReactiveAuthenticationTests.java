@@ -0,0 +1,53 @@
+package com.echoshift.musyaffa.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @Authenticated player endpoints under the reactive profile, where WebFlux serves them
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = "spring.main.web-application-type=reactive")
+@ActiveProfiles({"test", "reactive"})
+@AutoConfigureWebTestClient
+class ReactiveAuthenticationTests {
+
+	@Autowired
+	private WebTestClient webTestClient;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void validateRequiresAValidSession() throws Exception {
+		String username = "reactive-" + UUID.randomUUID();
+		JsonNode registration = objectMapper.readTree(webTestClient.post().uri("/api/players").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"username\":\"" + username + "\",\"password\":\"pw\"}")
+				.exchange().expectStatus().isCreated().expectBody(String.class).returnResult().getResponseBody());
+		String sessionToken = registration.at("/data/sessionToken").asText();
+
+		webTestClient.get().uri("/api/players/session/validate").exchange()
+				.expectStatus().isUnauthorized()
+				.expectBody().jsonPath("$.success").isEqualTo(false).jsonPath("$.message").isEqualTo("Session token is required");
+		webTestClient.get().uri("/api/players/session/validate").header(HttpHeaders.AUTHORIZATION, UUID.randomUUID().toString()).exchange()
+				.expectStatus().isUnauthorized()
+				.expectBody().jsonPath("$.message").isEqualTo("Invalid session");
+
+		JsonNode valid = objectMapper.readTree(webTestClient.get().uri("/api/players/session/validate")
+				.header(HttpHeaders.AUTHORIZATION, sessionToken).exchange()
+				.expectStatus().isOk().expectBody(String.class).returnResult().getResponseBody());
+		assertEquals(username, valid.at("/data/username").asText());
+		assertEquals(registration.at("/data/player/id").asText(), valid.at("/data/id").asText());
+	}
+}